@@ -0,0 +1,459 @@
+package dev.meldau.sca;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Base class of all analysing Mojos. Holds the configuration shared by all goals and reads the
+ * class model the analyses work on.
+ *
+ * @author Ingo Meldau
+ */
+public abstract class AbstractSCAMojo extends AbstractMojo {
+  /** Maven output Directory */
+  @Parameter(property = "project.build.directory", required = true, readonly = true)
+  File outputDirectory;
+  /** sca output Directory */
+  @Parameter(
+      name = "scaOutputDir",
+      required = true,
+      defaultValue = "${project.build.directory}/sca-output")
+  File scaOutputDir;
+  /**
+   * Number of threads used to parse class files. 0 uses one thread per available processor, 1
+   * parses sequentially. The results are the same for every value.
+   */
+  @Parameter(name = "parallelism", defaultValue = "0")
+  int parallelism;
+  /**
+   * Class directories, jar and zip archives to analyse instead of the classes directory of the
+   * project. Archives are read in place without unpacking them.
+   */
+  @Parameter(name = "classInputs")
+  List<File> classInputs;
+  /** Modules of a Java runtime image to analyse, read through the jrt:/ file system */
+  @Parameter(name = "jrtModules")
+  List<String> jrtModules;
+  /** java home of the runtime image containing jrtModules, defaults to the running JVM */
+  @Parameter(name = "runtimeImage")
+  File runtimeImage;
+  /**
+   * If this parameter is true, the facts of all classes are cached in scaOutputDir and only new or
+   * changed class files are parsed in the next run. Goals whose inputs, configuration and outputs
+   * didn't change since their last successful run are skipped.
+   */
+  @Parameter(name = "incremental", defaultValue = "true")
+  boolean incremental;
+  /**
+   * If this parameter is true, the classes of the compile dependencies are read as well. They are
+   * not analysed themselves, but the coupling analysis includes the couplings between the classes
+   * of the project that run through them.
+   */
+  @Parameter(name = "includeDependencies", defaultValue = "false")
+  boolean includeDependencies;
+  /**
+   * Directory the facts of dependency archives are stored in, keyed by their checksum. It is shared
+   * by all modules and builds, so every dependency is parsed only once.
+   */
+  @Parameter(name = "dependencyCacheDir", defaultValue = "${user.home}/.m2/sca-cache")
+  File dependencyCacheDir;
+  /**
+   * If this parameter is true, the graphs are written to DOT files next to the images of the
+   * reports. The images are rendered from the graphs in memory either way.
+   */
+  @Parameter(name = "exportDot", defaultValue = "false")
+  boolean exportDot;
+  /**
+   * If this parameter is true, the results are written as NDJSON, one record per line, to
+   * ".ndjson" files instead of ".json" files.
+   */
+  @Parameter(name = "ndjson", defaultValue = "false")
+  boolean ndjson;
+  /**
+   * If this parameter is true, the results are written to a binary, columnar {@link MetricsFile}
+   * as well, which the reports map into memory instead of parsing the JSON results.
+   */
+  @Parameter(name = "binaryResults", defaultValue = "false")
+  boolean binaryResults;
+  /**
+   * If this parameter is true, the coupling and dependency graphs are stored as {@link
+   * GraphSnapshot}s. As long as the class inputs don't change, the goals load the graphs from the
+   * snapshots instead of reading the class files again.
+   */
+  @Parameter(name = "graphSnapshots", defaultValue = "false")
+  boolean graphSnapshots;
+  /**
+   * Wall clock time in milliseconds spent on improving the feedback arc sets found by the greedy
+   * algorithm, using the idle processors. 0 keeps the greedy result.
+   */
+  @Parameter(name = "feedbackArcSetBudgetMillis", defaultValue = "0")
+  long feedbackArcSetBudgetMillis;
+  /**
+   * If this parameter is true, the feedback arc set of the class dependencies prefers dependencies
+   * made of few references, which are cheaper to remove, over dependencies made of many
+   */
+  @Parameter(name = "weightedFeedbackArcSet", defaultValue = "false")
+  boolean weightedFeedbackArcSet;
+  /**
+   * Maximum number of elementary cycles listed per strongly connected component of the class
+   * dependencies, shortest first. 0 lists no cycles.
+   */
+  @Parameter(name = "maxCycles", defaultValue = "100")
+  int maxCycles;
+  /** Maximum number of classes of a listed cycle */
+  @Parameter(name = "maxCycleLength", defaultValue = "8")
+  int maxCycleLength;
+  /** Wall clock time in milliseconds spent on listing cycles, shared by all components */
+  @Parameter(name = "cycleEnumerationMillis", defaultValue = "5000")
+  long cycleEnumerationMillis;
+  /** The project being analysed */
+  @Parameter(defaultValue = "${project}", readonly = true)
+  MavenProject project;
+
+  /** Fingerprint of the class inputs, the inputs are walked only once per execution */
+  private String classInputsFingerprint;
+
+  /** @return directory containing the compiled classes of the project */
+  File getClassesDirectory() {
+    return new File(outputDirectory.getAbsolutePath() + "/classes");
+  }
+
+  /**
+   * @return configured class inputs, the classes directory of the project if neither class inputs
+   *     nor runtime modules are configured
+   */
+  List<File> getClassInputs() {
+    if (classInputs == null || classInputs.isEmpty()) {
+      return getJrtModules().isEmpty()
+          ? Collections.singletonList(getClassesDirectory())
+          : Collections.emptyList();
+    }
+    return classInputs;
+  }
+
+  /** @return configured modules of the runtime image */
+  List<String> getJrtModules() {
+    return jrtModules == null ? Collections.emptyList() : jrtModules;
+  }
+
+  /**
+   * @return one finder per class input and one for all runtime modules, archives are read by a
+   *     {@link ZipClassFinder}
+   */
+  List<ClassSourceFinder> getClassSourceFinders() {
+    List<ClassSourceFinder> classSourceFinders = new ArrayList<>();
+    for (File classInput : getClassInputs()) {
+      if (classInput.getName().endsWith(".jmod")) {
+        // jmod files are zip archives behind a short header, the classes are below classes/
+        classSourceFinders.add(new ZipClassFinder(classInput, "classes/"));
+      } else if (classInput.isFile()) {
+        classSourceFinders.add(new ZipClassFinder(classInput));
+      } else {
+        classSourceFinders.add(new ClassFileFinder(classInput, parallelism));
+      }
+    }
+    if (!getJrtModules().isEmpty()) {
+      classSourceFinders.add(new JrtClassFinder(runtimeImage, getJrtModules(), parallelism));
+    }
+    return classSourceFinders;
+  }
+
+  /** @return jar files and class directories of the resolved compile dependencies */
+  List<File> getDependencyFiles() {
+    List<File> dependencyFiles = new ArrayList<>();
+    if (project != null) {
+      for (Artifact artifact : project.getArtifacts()) {
+        if (artifact.getFile() != null && artifact.getArtifactHandler().isAddedToClasspath()) {
+          dependencyFiles.add(artifact.getFile());
+        }
+      }
+    }
+    return dependencyFiles;
+  }
+
+  /** @return files and directories written by the goal, they are part of its up-to-date check */
+  abstract List<File> getOutputs();
+
+  /**
+   * Starts the up-to-date check of a goal. The class inputs, the runtime modules, the plugin itself
+   * and the outputs of the goal are covered, the goal adds its own configuration.
+   */
+  UpToDateCheck createUpToDateCheck(String goal) throws MojoExecutionException {
+    return new UpToDateCheck(scaOutputDir, goal, this::getOutputs)
+        .addValue("classInputs", getClassInputsFingerprint())
+        .addValue("exportDot", exportDot)
+        .addValue("ndjson", ndjson)
+        .addValue("binaryResults", binaryResults)
+        .addValue("graphSnapshots", graphSnapshots)
+        .addValue("feedbackArcSetBudgetMillis", feedbackArcSetBudgetMillis)
+        .addValue("weightedFeedbackArcSet", weightedFeedbackArcSet)
+        .addValue("maxCycles", maxCycles)
+        .addValue("maxCycleLength", maxCycleLength)
+        .addValue("cycleEnumerationMillis", cycleEnumerationMillis);
+  }
+
+  /**
+   * @return fingerprint of the class inputs, the runtime modules, the dependencies and the plugin
+   *     itself, computed on first use
+   */
+  String getClassInputsFingerprint() throws MojoExecutionException {
+    if (classInputsFingerprint == null) {
+      UpToDateCheck upToDateCheck =
+          new UpToDateCheck(scaOutputDir, "class-inputs", Collections.emptyList());
+      try {
+        addClassInputs(upToDateCheck);
+      } catch (IOException e) {
+        e.printStackTrace();
+        throw new MojoExecutionException("Couldn't fingerprint the class inputs.");
+      }
+      classInputsFingerprint = upToDateCheck.getInputFingerprint();
+    }
+    return classInputsFingerprint;
+  }
+
+  /** Adds the class inputs, the runtime modules, the dependencies and the plugin itself */
+  private void addClassInputs(UpToDateCheck upToDateCheck) throws IOException {
+    upToDateCheck.addFiles(getClassInputs());
+    upToDateCheck.addValue("jrtModules", getJrtModules());
+    if (!getJrtModules().isEmpty()) {
+      File javaHome =
+          runtimeImage != null ? runtimeImage : new File(System.getProperty("java.home"));
+      upToDateCheck.addFiles(Collections.singletonList(new File(javaHome, "lib/modules")));
+    }
+    upToDateCheck.addValue("includeDependencies", includeDependencies);
+    if (includeDependencies) {
+      upToDateCheck.addFiles(getDependencyFiles());
+    }
+    upToDateCheck.addPlugin();
+  }
+
+  /**
+   * @param graph name of the graph
+   * @param localVariableCoupling whether local variables were read from the class files
+   * @return fingerprint of everything a graph is built from, it is the key of its snapshot. The
+   *     inputs aren't walked again, the fingerprint of the class inputs is reused.
+   */
+  String getGraphKey(String graph, boolean localVariableCoupling) throws MojoExecutionException {
+    return new UpToDateCheck(scaOutputDir, graph, Collections.emptyList())
+        .addValue("classInputs", getClassInputsFingerprint())
+        .addValue("localVariableCoupling", localVariableCoupling)
+        .getInputFingerprint();
+  }
+
+  /**
+   * @param key key of the snapshot, null if graphSnapshots is off
+   * @return snapshot of a graph, null if graphSnapshots is off or there is no snapshot matching
+   *     the key
+   */
+  GraphSnapshot loadGraphSnapshot(File snapshotFile, String key) {
+    if (key == null || !snapshotFile.isFile()) {
+      return null;
+    }
+    try {
+      GraphSnapshot snapshot = GraphSnapshot.open(snapshotFile);
+      if (snapshot.getKey().equals(key)) {
+        getLog().info("Loading graph snapshot " + snapshotFile);
+        return snapshot;
+      }
+      getLog().info("Graph snapshot " + snapshotFile + " is outdated.");
+    } catch (IOException e) {
+      getLog().warn("Couldn't read graph snapshot " + snapshotFile, e);
+    }
+    return null;
+  }
+
+  /** @return true if the goal can be skipped, never when incremental runs are switched off */
+  boolean isUpToDate(UpToDateCheck upToDateCheck) {
+    return incremental && upToDateCheck.isUpToDate(getLog());
+  }
+
+  /** Create directories if they don't exist */
+  @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
+  void createDirectories(File... directories) {
+    for (File f : directories) {
+      if (!f.exists()) {
+        //noinspection ResultOfMethodCallIgnored
+        f.mkdirs();
+      }
+    }
+  }
+
+  /**
+   * Read all class files of the project into one shared class model
+   *
+   * @param withLocalVariables whether the local variables of methods are needed by the analyses
+   */
+  ClassModel readClassModel(boolean withLocalVariables) throws MojoExecutionException {
+    return ClassModel.combine(readClassModels(getClassSourceFinders(), withLocalVariables));
+  }
+
+  /**
+   * Read the class files of all finders in one pass
+   *
+   * @param withLocalVariables whether the local variables of methods are needed by the analyses
+   * @return one class model per finder
+   */
+  List<ClassModel> readClassModels(
+      List<ClassSourceFinder> classSourceFinders, boolean withLocalVariables)
+      throws MojoExecutionException {
+    ClassFactsCache factsCache =
+        incremental
+            ? new ClassFactsCache(ClassFactsCache.getCacheFile(scaOutputDir, withLocalVariables))
+            : null;
+    try {
+      List<ClassModel> classModels =
+          ClassModel.readEach(classSourceFinders, parallelism, withLocalVariables, factsCache);
+      if (factsCache != null) {
+        getLog()
+            .info(
+                "Parsed "
+                    + factsCache.getMisses()
+                    + " class files, "
+                    + factsCache.getHits()
+                    + " were unchanged.");
+        saveFactsCache(factsCache);
+      }
+      return classModels;
+    } catch (FileNotFoundException e) {
+      e.printStackTrace();
+      throw new MojoExecutionException("Output directory or class input does not exist.");
+    } catch (IOException e) {
+      e.printStackTrace();
+      throw new MojoExecutionException(
+          "The plugin encountered a problem while reading the class files.");
+    } finally {
+      closeFinders(classSourceFinders);
+    }
+  }
+
+  /**
+   * Adds the classes of the dependencies to a class model if includeDependencies is set. Archives
+   * are taken from the shared dependency cache when another build parsed them before.
+   *
+   * @param withLocalVariables whether the local variables of methods are needed by the analyses
+   */
+  ClassModel readDependencies(ClassModel classModel, boolean withLocalVariables)
+      throws MojoExecutionException {
+    if (!includeDependencies) {
+      return classModel;
+    }
+    DependencyFactsCache dependencyFactsCache = new DependencyFactsCache(dependencyCacheDir);
+    List<ClassFacts> dependencyClassFacts = new ArrayList<>();
+    for (File dependencyFile : getDependencyFiles()) {
+      try {
+        dependencyClassFacts.addAll(
+            dependencyFactsCache.getFacts(dependencyFile, parallelism, withLocalVariables));
+      } catch (IOException e) {
+        e.printStackTrace();
+        throw new MojoExecutionException("Couldn't read the classes of " + dependencyFile + ".");
+      }
+    }
+    getLog()
+        .info(
+            "Read "
+                + dependencyClassFacts.size()
+                + " dependency classes, "
+                + dependencyFactsCache.getHits()
+                + " archives were taken from "
+                + dependencyCacheDir
+                + ".");
+    return classModel.withDependencies(dependencyClassFacts);
+  }
+
+  /** Save the facts cache, a cache that can't be written only slows down the next run */
+  private void saveFactsCache(ClassFactsCache factsCache) {
+    try {
+      factsCache.save();
+    } catch (IOException e) {
+      getLog().warn("Couldn't write class facts cache.", e);
+    }
+  }
+
+  /** Close finders that keep a file system open */
+  private void closeFinders(List<ClassSourceFinder> classSourceFinders) {
+    for (ClassSourceFinder classSourceFinder : classSourceFinders) {
+      if (classSourceFinder instanceof Closeable) {
+        try {
+          ((Closeable) classSourceFinder).close();
+        } catch (IOException e) {
+          getLog().warn("Couldn't close " + classSourceFinder, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a metrics file name, if binaryResults is set. Otherwise the file of a previous run is
+   * deleted, so the reports don't pick up stale results.
+   */
+  void saveMetricsFile(String name, List<String> classNames, Map<String, int[]> columns)
+      throws MojoExecutionException {
+    File metricsFile = new File(scaOutputDir, name);
+    try {
+      if (!binaryResults) {
+        Files.deleteIfExists(metricsFile.toPath());
+        return;
+      }
+      getLog().info("Writing Metrics File: " + metricsFile);
+      MetricsFile.write(metricsFile, classNames, columns);
+    } catch (IOException e) {
+      e.printStackTrace();
+      throw new MojoExecutionException("Couldn't write metrics file " + metricsFile);
+    }
+  }
+
+  /** Take over the shared configuration of another Mojo, used when goals are combined */
+  void inheritConfiguration(AbstractSCAMojo parent) {
+    this.outputDirectory = parent.outputDirectory;
+    this.scaOutputDir = parent.scaOutputDir;
+    this.parallelism = parent.parallelism;
+    this.classInputs = parent.classInputs;
+    this.jrtModules = parent.jrtModules;
+    this.runtimeImage = parent.runtimeImage;
+    this.incremental = parent.incremental;
+    this.includeDependencies = parent.includeDependencies;
+    this.dependencyCacheDir = parent.dependencyCacheDir;
+    this.exportDot = parent.exportDot;
+    this.ndjson = parent.ndjson;
+    this.binaryResults = parent.binaryResults;
+    this.graphSnapshots = parent.graphSnapshots;
+    this.feedbackArcSetBudgetMillis = parent.feedbackArcSetBudgetMillis;
+    this.weightedFeedbackArcSet = parent.weightedFeedbackArcSet;
+    this.maxCycles = parent.maxCycles;
+    this.maxCycleLength = parent.maxCycleLength;
+    this.cycleEnumerationMillis = parent.cycleEnumerationMillis;
+    this.project = parent.project;
+    this.classInputsFingerprint = parent.classInputsFingerprint;
+    this.setLog(parent.getLog());
+  }
+}
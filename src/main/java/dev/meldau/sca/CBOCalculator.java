@@ -1,11 +1,10 @@
 package dev.meldau.sca;
 
-import org.jgrapht.graph.DirectedMultigraph;
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
 
 /*
  * Copyright 2020-2021 Ingo Meldau
@@ -25,67 +24,88 @@ import java.util.Set;
 
 /**
  * This class calculates the Coupling Between Objects metric for a provided program in form of a
- * multigraph
+ * {@link CouplingGraph}
  *
  * @author Ingo Meldau
  */
 public class CBOCalculator {
 
-  final DirectedMultigraph<String, LabeledEdge> CLASS_GRAPH;
+  final CouplingGraph CLASS_GRAPH;
 
-  public CBOCalculator(DirectedMultigraph<String, LabeledEdge> classGraph) {
+  public CBOCalculator(CouplingGraph classGraph) {
     this.CLASS_GRAPH = classGraph;
   }
 
   /**
-   * Calculate Coupling Between Objects via degree, in degree and out degree of the class graph
+   * Calculate Coupling Between Objects via the out degree of the class graph, i.e. the number of
+   * distinct classes a class is coupled to
    *
    * @return CBOScores
    */
   HashMap<String, Integer> calculateCBO() {
     HashMap<String, Integer> CBOScores = new HashMap<>();
-    for (String vertex : CLASS_GRAPH.vertexSet()) {
-      Set<LabeledEdge> edgesFromVertex = CLASS_GRAPH.outgoingEdgesOf(vertex);
-      HashSet<String> targetVertices = new HashSet<String>();
-      for (LabeledEdge edge : edgesFromVertex) {
-        targetVertices.add(edge.getTarget().toString());
-      }
-      CBOScores.put(vertex, targetVertices.size());
+    for (int vertex = 0; vertex < CLASS_GRAPH.getVertexCount(); vertex++) {
+      CBOScores.put(CLASS_GRAPH.getVertex(vertex), CLASS_GRAPH.getOutDegree(vertex));
     }
     return CBOScores;
   }
 
+  /** Receives the pairwise CBO of two coupled classes */
+  interface PairCBOConsumer {
+    void accept(String firstClass, String secondClass, int pairCBO) throws IOException;
+  }
+
   /**
-   * Calculate pairwise Coupling Between Objects via sum of all edges between each vertex pair
+   * Calculate pairwise Coupling Between Objects via sum of all references between each vertex pair
    *
-   * @return pairCBOListOfLists
+   * @return pairCBOListOfLists, only pairs coupled in at least one direction
    */
   ArrayList<ArrayList<String>> calculatePairCBO() {
     // Array with list of pairs and respective values
     ArrayList<ArrayList<String>> pairCBOListOfLists = new ArrayList<>();
-    // iterates over all unique pairs of vertices
-    for (int i = 0; i < CLASS_GRAPH.vertexSet().size(); i++) {
-      for (int j = i + 1; j < CLASS_GRAPH.vertexSet().size(); j++) {
+    try {
+      calculatePairCBO(
+          (firstClass, secondClass, pairCBO) ->
+              pairCBOListOfLists.add(
+                  new ArrayList<>(
+                      Arrays.asList(firstClass, secondClass, String.valueOf(pairCBO)))));
+    } catch (IOException e) {
+      // Adding to a list doesn't fail
+      throw new UncheckedIOException(e);
+    }
+    return pairCBOListOfLists;
+  }
 
-        // Add sum of all edges between vertices to hashmap
-        ArrayList<String> pairCBOValues = new ArrayList<>();
-        pairCBOValues.add(CLASS_GRAPH.vertexSet().toArray()[i].toString());
-        pairCBOValues.add(CLASS_GRAPH.vertexSet().toArray()[j].toString());
-        pairCBOValues.add(
-            String.valueOf(
-                CLASS_GRAPH
-                        .getAllEdges(
-                            (String) CLASS_GRAPH.vertexSet().toArray()[i],
-                            (String) CLASS_GRAPH.vertexSet().toArray()[j])
-                        .size()
-                    + CLASS_GRAPH
-                        .getAllEdges(
-                            (String) CLASS_GRAPH.vertexSet().toArray()[j],
-                            (String) CLASS_GRAPH.vertexSet().toArray()[i])
-                        .size()));
-        pairCBOListOfLists.add(pairCBOValues);
+  /**
+   * Calculate pairwise Coupling Between Objects via sum of all references between each vertex pair.
+   * Only the adjacency of each vertex is walked, so pairs without any reference are skipped and the
+   * effort grows with the number of couplings instead of the square of the number of classes.
+   *
+   * @param consumer receives the pairs as they are found, ordered like the vertices
+   */
+  void calculatePairCBO(PairCBOConsumer consumer) throws IOException {
+    for (int i = 0; i < CLASS_GRAPH.getVertexCount(); i++) {
+      // Both rows are sorted, merge them to visit each neighbour j > i once
+      int coupling = CLASS_GRAPH.getFirstCoupling(i);
+      int couplingsEnd = CLASS_GRAPH.getFirstCoupling(i + 1);
+      int inCoupling = CLASS_GRAPH.getFirstInCoupling(i);
+      int inCouplingsEnd = CLASS_GRAPH.getFirstInCoupling(i + 1);
+      while (coupling < couplingsEnd || inCoupling < inCouplingsEnd) {
+        int target = coupling < couplingsEnd ? CLASS_GRAPH.getTarget(coupling) : Integer.MAX_VALUE;
+        int source =
+            inCoupling < inCouplingsEnd ? CLASS_GRAPH.getSource(inCoupling) : Integer.MAX_VALUE;
+        int j = Math.min(target, source);
+        int pairCBO = 0;
+        if (target == j) {
+          pairCBO += CLASS_GRAPH.getCount(coupling++);
+        }
+        if (source == j) {
+          pairCBO += CLASS_GRAPH.getCount(CLASS_GRAPH.getInCoupling(inCoupling++));
+        }
+        if (j > i) {
+          consumer.accept(CLASS_GRAPH.getVertex(i), CLASS_GRAPH.getVertex(j), pairCBO);
+        }
       }
     }
-    return pairCBOListOfLists;
   }
 }
@@ -0,0 +1,134 @@
+package dev.meldau.sca;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Facts about a single class file that are needed by the cohesion and coupling analyses. The facts
+ * are extracted once per class file and are then shared between all analyses.
+ *
+ * <p>All names are internal names as found in the class file (e.g. {@code dev/meldau/sca/App}).
+ * Cleaning of the names is left to the analyses, since they have different requirements.
+ *
+ * @author Ingo Meldau
+ */
+public class ClassFacts {
+
+  private final String name;
+  private final String superName;
+  private final List<String> fieldDescriptors = new ArrayList<>();
+  private final List<MethodFacts> methods = new ArrayList<>();
+  private final List<String> dependencies = new ArrayList<>();
+
+  public ClassFacts(String name, String superName) {
+    this.name = name;
+    this.superName = superName;
+  }
+
+  /** @return internal name of the class */
+  public String getName() {
+    return name;
+  }
+
+  /** @return internal name of the superclass, null for java/lang/Object and module-info */
+  public String getSuperName() {
+    return superName;
+  }
+
+  /** @return descriptors of all fields declared in the class, in declaration order */
+  public List<String> getFieldDescriptors() {
+    return fieldDescriptors;
+  }
+
+  /** @return facts of all methods declared in the class, in declaration order */
+  public List<MethodFacts> getMethods() {
+    return methods;
+  }
+
+  /**
+   * @return internal names of all classes the class depends on, sorted and without the class
+   *     itself. They are the dependencies jdeps reports with -verbose:class -filter:none.
+   */
+  public List<String> getDependencies() {
+    return dependencies;
+  }
+
+  /** Facts about a single method of a class */
+  public static class MethodFacts {
+
+    private final String name;
+    private final String descriptor;
+    private final List<MemberReference> references = new ArrayList<>();
+    private final List<String> localVariableDescriptors = new ArrayList<>();
+
+    public MethodFacts(String name, String descriptor) {
+      this.name = name;
+      this.descriptor = descriptor;
+    }
+
+    /** @return name of the method */
+    public String getName() {
+      return name;
+    }
+
+    /** @return method descriptor, e.g. {@code (Ljava/lang/String;)V} */
+    public String getDescriptor() {
+      return descriptor;
+    }
+
+    /** @return all field accesses and method calls of the method, in instruction order */
+    public List<MemberReference> getReferences() {
+      return references;
+    }
+
+    /** @return descriptors of all local variables of the method (empty without debug info) */
+    public List<String> getLocalVariableDescriptors() {
+      return localVariableDescriptors;
+    }
+  }
+
+  /** A field access or method call found in the instructions of a method */
+  public static class MemberReference {
+
+    private final boolean field;
+    private final String owner;
+    private final String name;
+
+    public MemberReference(boolean field, String owner, String name) {
+      this.field = field;
+      this.owner = owner;
+      this.name = name;
+    }
+
+    /** @return true for field accesses, false for method calls */
+    public boolean isField() {
+      return field;
+    }
+
+    /** @return internal name of the class owning the referenced member */
+    public String getOwner() {
+      return owner;
+    }
+
+    /** @return name of the referenced field or method */
+    public String getName() {
+      return name;
+    }
+  }
+}
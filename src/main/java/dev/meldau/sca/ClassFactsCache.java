@@ -0,0 +1,288 @@
+package dev.meldau.sca;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Keeps the facts of already parsed classes between builds. The facts are keyed by a SHA-1 hash of
+ * the content of their class file, so only new and changed class files are parsed again.
+ *
+ * <p>The cache is loaded from its file once. Facts that were used during the current run are
+ * written back by {@link #save()}, which drops the facts of deleted and changed class files.
+ *
+ * @author Ingo Meldau
+ */
+public class ClassFactsCache {
+  private static final int MAGIC = 0x53434146;
+  private static final int VERSION = 2;
+
+  private final File CACHE_FILE;
+  private final Map<ByteBuffer, ClassFacts> cachedFacts;
+  private final Map<ByteBuffer, ClassFacts> usedFacts = new ConcurrentHashMap<>();
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /** Loads the cache from cacheFile, an unreadable or missing file results in an empty cache */
+  public ClassFactsCache(File cacheFile) {
+    this.CACHE_FILE = cacheFile;
+    this.cachedFacts = load(cacheFile);
+  }
+
+  /**
+   * @param withLocalVariables whether the cached facts contain local variables
+   * @return cache file for facts parsed with or without local variables in scaOutputDir
+   */
+  static File getCacheFile(File scaOutputDir, boolean withLocalVariables) {
+    return new File(
+        scaOutputDir,
+        withLocalVariables ? "class-facts.cache" : "class-facts-without-local-variables.cache");
+  }
+
+  /** @return SHA-1 hash of the content of a class file */
+  static ByteBuffer hash(byte[] classBytes) {
+    try {
+      return ByteBuffer.wrap(MessageDigest.getInstance("SHA-1").digest(classBytes));
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform has to support SHA-1
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** @return cached facts of a class file with this content hash, null if it wasn't parsed yet */
+  public ClassFacts get(ByteBuffer hash) {
+    ClassFacts classFacts = cachedFacts.get(hash);
+    if (classFacts == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+      usedFacts.put(hash, classFacts);
+    }
+    return classFacts;
+  }
+
+  /** Caches the facts of a newly parsed class file */
+  public void put(ByteBuffer hash, ClassFacts classFacts) {
+    usedFacts.put(hash, classFacts);
+  }
+
+  /** @return number of class files whose facts were found in the cache */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /** @return number of class files that had to be parsed */
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Writes the facts used in this run to the cache file. Nothing is written if all facts were
+   * taken from the cache file and none of them became unused.
+   */
+  @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
+  public void save() throws IOException {
+    if (misses.get() == 0 && usedFacts.size() == cachedFacts.size() && CACHE_FILE.isFile()) {
+      return;
+    }
+    //noinspection ResultOfMethodCallIgnored
+    CACHE_FILE.getAbsoluteFile().getParentFile().mkdirs();
+
+    // Owners, descriptors and names repeat a lot, they are written once into a string table
+    StringTable stringTable = new StringTable();
+    for (ClassFacts classFacts : usedFacts.values()) {
+      stringTable.addAll(classFacts);
+    }
+
+    // Write to a temporary file first, an interrupted build must not leave a broken cache behind
+    File tempFile = new File(CACHE_FILE.getAbsolutePath() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      stringTable.write(out);
+      out.writeInt(usedFacts.size());
+      for (Map.Entry<ByteBuffer, ClassFacts> entry : usedFacts.entrySet()) {
+        out.write(entry.getKey().array());
+        writeClassFacts(out, stringTable, entry.getValue());
+      }
+    }
+    Files.move(tempFile.toPath(), CACHE_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /** Reads all cached facts, the cache starts empty if the file is missing or unreadable */
+  private static Map<ByteBuffer, ClassFacts> load(File cacheFile) {
+    Map<ByteBuffer, ClassFacts> facts = new HashMap<>();
+    if (!cacheFile.isFile()) {
+      return facts;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return facts;
+      }
+      String[] strings = StringTable.read(in);
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        byte[] hash = new byte[20];
+        in.readFully(hash);
+        facts.put(ByteBuffer.wrap(hash), readClassFacts(in, strings));
+      }
+    } catch (IOException | RuntimeException e) {
+      // A broken cache only costs a full parse
+      facts.clear();
+    }
+    return facts;
+  }
+
+  static void writeClassFacts(
+      DataOutputStream out, StringTable stringTable, ClassFacts classFacts) throws IOException {
+    out.writeInt(stringTable.indexOf(classFacts.getName()));
+    out.writeInt(stringTable.indexOf(classFacts.getSuperName()));
+    out.writeInt(classFacts.getFieldDescriptors().size());
+    for (String fieldDescriptor : classFacts.getFieldDescriptors()) {
+      out.writeInt(stringTable.indexOf(fieldDescriptor));
+    }
+    out.writeInt(classFacts.getMethods().size());
+    for (ClassFacts.MethodFacts method : classFacts.getMethods()) {
+      out.writeInt(stringTable.indexOf(method.getName()));
+      out.writeInt(stringTable.indexOf(method.getDescriptor()));
+      out.writeInt(method.getReferences().size());
+      for (ClassFacts.MemberReference reference : method.getReferences()) {
+        out.writeBoolean(reference.isField());
+        out.writeInt(stringTable.indexOf(reference.getOwner()));
+        out.writeInt(stringTable.indexOf(reference.getName()));
+      }
+      out.writeInt(method.getLocalVariableDescriptors().size());
+      for (String localVariableDescriptor : method.getLocalVariableDescriptors()) {
+        out.writeInt(stringTable.indexOf(localVariableDescriptor));
+      }
+    }
+    out.writeInt(classFacts.getDependencies().size());
+    for (String dependency : classFacts.getDependencies()) {
+      out.writeInt(stringTable.indexOf(dependency));
+    }
+  }
+
+  static ClassFacts readClassFacts(DataInputStream in, String[] strings)
+      throws IOException {
+    ClassFacts classFacts = new ClassFacts(readString(in, strings), readString(in, strings));
+    int fieldCount = in.readInt();
+    for (int i = 0; i < fieldCount; i++) {
+      classFacts.getFieldDescriptors().add(readString(in, strings));
+    }
+    int methodCount = in.readInt();
+    for (int i = 0; i < methodCount; i++) {
+      ClassFacts.MethodFacts method =
+          new ClassFacts.MethodFacts(readString(in, strings), readString(in, strings));
+      int referenceCount = in.readInt();
+      for (int j = 0; j < referenceCount; j++) {
+        method
+            .getReferences()
+            .add(
+                new ClassFacts.MemberReference(
+                    in.readBoolean(), readString(in, strings), readString(in, strings)));
+      }
+      int localVariableCount = in.readInt();
+      for (int j = 0; j < localVariableCount; j++) {
+        method.getLocalVariableDescriptors().add(readString(in, strings));
+      }
+      classFacts.getMethods().add(method);
+    }
+    int dependencyCount = in.readInt();
+    for (int i = 0; i < dependencyCount; i++) {
+      classFacts.getDependencies().add(readString(in, strings));
+    }
+    return classFacts;
+  }
+
+  /** @return string of the string table, -1 stands for null */
+  private static String readString(DataInputStream in, String[] strings) throws IOException {
+    int index = in.readInt();
+    return index < 0 ? null : strings[index];
+  }
+
+  /** All distinct strings of the cached facts, each one is written only once */
+  static class StringTable {
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    void addAll(ClassFacts classFacts) {
+      add(classFacts.getName());
+      add(classFacts.getSuperName());
+      classFacts.getFieldDescriptors().forEach(this::add);
+      for (ClassFacts.MethodFacts method : classFacts.getMethods()) {
+        add(method.getName());
+        add(method.getDescriptor());
+        for (ClassFacts.MemberReference reference : method.getReferences()) {
+          add(reference.getOwner());
+          add(reference.getName());
+        }
+        method.getLocalVariableDescriptors().forEach(this::add);
+      }
+      classFacts.getDependencies().forEach(this::add);
+    }
+
+    void add(String string) {
+      if (string != null && !indices.containsKey(string)) {
+        indices.put(string, strings.size());
+        strings.add(string);
+      }
+    }
+
+    int indexOf(String string) {
+      return string == null ? -1 : indices.get(string);
+    }
+
+    /** Writes all strings, in the order of their indices */
+    void write(DataOutputStream out) throws IOException {
+      out.writeInt(strings.size());
+      for (String string : strings) {
+        out.writeUTF(string);
+      }
+    }
+
+    /** @return strings written by {@link #write(DataOutputStream)}, indexed like the table */
+    static String[] read(DataInputStream in) throws IOException {
+      String[] strings = new String[in.readInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = in.readUTF();
+      }
+      return strings;
+    }
+  }
+}
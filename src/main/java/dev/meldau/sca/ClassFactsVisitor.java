@@ -0,0 +1,245 @@
+package dev.meldau.sca;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Collects {@link ClassFacts} while a ClassReader streams through a class file. Unlike a ClassNode
+ * no instruction, frame or debug nodes are built, only the references the analyses need are kept.
+ *
+ * <p>The class dependencies are the ones jdeps finds: classes in the constant pool, the types in
+ * the descriptors of referenced and declared members, generic signatures (except the bounds of the
+ * type parameters of the class), runtime visible annotations and the enclosing method.
+ *
+ * @author Ingo Meldau
+ */
+public class ClassFactsVisitor extends ClassVisitor {
+
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+  private ClassFacts classFacts;
+  private final Set<String> dependencies = new TreeSet<>();
+
+  public ClassFactsVisitor() {
+    super(Opcodes.ASM9);
+  }
+
+  /**
+   * Collects the classes referenced from the constant pool, which the visit methods don't reveal.
+   * Has to be called before the ClassReader accepts this visitor.
+   */
+  public void visitConstantPool(ClassReader classReader) {
+    char[] charBuffer = new char[classReader.getMaxStringLength()];
+    for (int item = 1; item < classReader.getItemCount(); item++) {
+      int offset = classReader.getItem(item);
+      // The second slot of long and double constants has no offset
+      if (offset == 0) {
+        continue;
+      }
+      switch (classReader.readByte(offset - 1)) {
+        case CONSTANT_CLASS:
+          String className = classReader.readUTF8(offset, charBuffer);
+          if (className.startsWith("[")) {
+            addType(Type.getType(className));
+          } else {
+            dependencies.add(className);
+          }
+          break;
+        case CONSTANT_FIELDREF:
+        case CONSTANT_METHODREF:
+        case CONSTANT_INTERFACE_METHODREF:
+          int nameAndType = classReader.getItem(classReader.readUnsignedShort(offset + 2));
+          addDescriptor(classReader.readUTF8(nameAndType + 2, charBuffer));
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /** @return the facts collected from the visited class */
+  public ClassFacts getClassFacts() {
+    return classFacts;
+  }
+
+  @Override
+  public void visit(
+      int version,
+      int access,
+      String name,
+      String signature,
+      String superName,
+      String[] interfaces) {
+    classFacts = new ClassFacts(name, superName);
+    addSignature(signature, false);
+  }
+
+  @Override
+  public void visitOuterClass(String owner, String name, String descriptor) {
+    if (descriptor != null) {
+      addDescriptor(descriptor);
+    }
+  }
+
+  @Override
+  public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+    addAnnotation(descriptor, visible);
+    return null;
+  }
+
+  @Override
+  public FieldVisitor visitField(
+      int access, String name, String descriptor, String signature, Object value) {
+    classFacts.getFieldDescriptors().add(descriptor);
+    addDescriptor(descriptor);
+    addSignature(signature, true);
+    return new FieldVisitor(Opcodes.ASM9) {
+      @Override
+      public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+        addAnnotation(descriptor, visible);
+        return null;
+      }
+    };
+  }
+
+  @Override
+  public MethodVisitor visitMethod(
+      int access, String name, String descriptor, String signature, String[] exceptions) {
+    ClassFacts.MethodFacts methodFacts = new ClassFacts.MethodFacts(name, descriptor);
+    classFacts.getMethods().add(methodFacts);
+    addDescriptor(descriptor);
+    addSignature(signature, true);
+    return new MethodFactsVisitor(methodFacts);
+  }
+
+  @Override
+  public void visitEnd() {
+    dependencies.remove(classFacts.getName());
+    classFacts.getDependencies().addAll(dependencies);
+  }
+
+  /** Adds the classes of a field or method descriptor */
+  private void addDescriptor(String descriptor) {
+    addType(descriptor.startsWith("(") ? Type.getMethodType(descriptor) : Type.getType(descriptor));
+  }
+
+  private void addType(Type type) {
+    switch (type.getSort()) {
+      case Type.ARRAY:
+        addType(type.getElementType());
+        break;
+      case Type.OBJECT:
+        dependencies.add(type.getInternalName());
+        break;
+      case Type.METHOD:
+        for (Type argumentType : type.getArgumentTypes()) {
+          addType(argumentType);
+        }
+        addType(type.getReturnType());
+        break;
+      default:
+        break;
+    }
+  }
+
+  /** Only annotations kept at runtime are dependencies, like in jdeps */
+  private void addAnnotation(String descriptor, boolean visible) {
+    if (visible) {
+      addType(Type.getType(descriptor));
+    }
+  }
+
+  /**
+   * Adds all classes of a generic signature
+   *
+   * @param withBounds whether the bounds of type parameters are dependencies, jdeps ignores them in
+   *     class signatures
+   */
+  private void addSignature(String signature, boolean withBounds) {
+    if (signature == null) {
+      return;
+    }
+    new SignatureReader(signature)
+        .accept(
+            new SignatureVisitor(Opcodes.ASM9) {
+              @Override
+              public SignatureVisitor visitClassBound() {
+                return withBounds ? this : new SignatureVisitor(Opcodes.ASM9) {};
+              }
+
+              @Override
+              public SignatureVisitor visitInterfaceBound() {
+                return withBounds ? this : new SignatureVisitor(Opcodes.ASM9) {};
+              }
+
+              @Override
+              public void visitClassType(String name) {
+                dependencies.add(name);
+              }
+            });
+  }
+
+  /** Collects field accesses, method calls and local variables of a single method */
+  private class MethodFactsVisitor extends MethodVisitor {
+
+    private final ClassFacts.MethodFacts methodFacts;
+
+    MethodFactsVisitor(ClassFacts.MethodFacts methodFacts) {
+      super(Opcodes.ASM9);
+      this.methodFacts = methodFacts;
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+      methodFacts.getReferences().add(new ClassFacts.MemberReference(true, owner, name));
+    }
+
+    @Override
+    public void visitMethodInsn(
+        int opcode, String owner, String name, String descriptor, boolean isInterface) {
+      methodFacts.getReferences().add(new ClassFacts.MemberReference(false, owner, name));
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+      addAnnotation(descriptor, visible);
+      return null;
+    }
+
+    @Override
+    public void visitLocalVariable(
+        String name, String descriptor, String signature, Label start, Label end, int index) {
+      methodFacts.getLocalVariableDescriptors().add(descriptor);
+    }
+  }
+}
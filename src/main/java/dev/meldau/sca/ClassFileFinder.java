@@ -1,11 +1,20 @@
 package dev.meldau.sca;
 
-import org.apache.commons.lang3.ArrayUtils;
-
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.ListIterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 /*
  * Copyright 2020-2021 Ingo Meldau
@@ -24,48 +33,141 @@ import java.util.ListIterator;
  */
 
 /**
- * Finds all class files in a given directory
+ * Finds all class files in a given directory, which may also be a directory of another NIO file
+ * system like the modules of a runtime image in jrt:/
+ *
+ * <p>Directories are listed with NIO directory streams. Every subdirectory is a task of its own in
+ * a fork/join pool, so large subtrees are spread over several threads. Found class files are handed
+ * to a consumer right away, together with their size, which lets parsing start before the search
+ * is finished.
  *
  * @author Ingo Meldau
  */
-public class ClassFileFinder {
-  final File SEARCH_DIR;
+public class ClassFileFinder implements ClassSourceFinder {
+  final Path SEARCH_PATH;
+  private final int PARALLELISM;
 
   public ClassFileFinder(File searchDir) {
-    this.SEARCH_DIR = searchDir;
+    this(searchDir, 0);
+  }
+
+  /**
+   * @param parallelism number of threads listing directories, 0 or less uses one thread per
+   *     available processor
+   */
+  public ClassFileFinder(File searchDir, int parallelism) {
+    this(searchDir.toPath(), parallelism);
+  }
+
+  /**
+   * @param searchPath directory of any NIO file system
+   * @param parallelism number of threads listing directories, 0 or less uses one thread per
+   *     available processor
+   */
+  public ClassFileFinder(Path searchPath, int parallelism) {
+    this.SEARCH_PATH = searchPath;
+    this.PARALLELISM = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
   }
 
   /**
-   * Finds all class files (.class) in SEARCH_DIR
+   * Finds all class files (.class) in SEARCH_PATH and hands each of them to classSourceConsumer as
+   * soon as it is found. The order in which files are found is not defined.
+   */
+  @Override
+  public void findClassSources(Consumer<ClassSource> classSourceConsumer) throws IOException {
+    if (!Files.exists(SEARCH_PATH)) {
+      throw new FileNotFoundException("Directory that should contain class Files not existent.");
+    }
+    ForkJoinPool forkJoinPool = new ForkJoinPool(PARALLELISM);
+    try {
+      forkJoinPool.invoke(new DirectoryTask(SEARCH_PATH, classSourceConsumer));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      forkJoinPool.shutdown();
+    }
+  }
+
+  /**
+   * Finds all class files (.class) in SEARCH_PATH
    *
-   * @return classFiles
+   * @return classFiles sorted by path
    */
   public ArrayList<File> getClassFiles() throws FileNotFoundException {
-    if (!SEARCH_DIR.exists()) {
-      throw new FileNotFoundException("Directory that should contain class Files not existent.");
+    ConcurrentLinkedQueue<Path> foundFiles = new ConcurrentLinkedQueue<>();
+    try {
+      findClassSources(classSource -> foundFiles.add(((ClassFile) classSource).path));
+    } catch (FileNotFoundException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    List<Path> sortedFiles = new ArrayList<>(foundFiles);
+    sortedFiles.sort(null);
+    ArrayList<File> classFiles = new ArrayList<>(sortedFiles.size());
+    for (Path classFile : sortedFiles) {
+      classFiles.add(classFile.toFile());
     }
-    ArrayList<File> classFiles = new ArrayList<>();
-    // initialize dirList
-    ArrayList<File> dirList = new ArrayList<>();
-    // Add output directory to List
-    dirList.add(SEARCH_DIR);
-    while (!dirList.isEmpty()) {
-      ListIterator<File> dirIterator = dirList.listIterator();
-      while (dirIterator.hasNext()) {
-        File myDir = dirIterator.next();
-        dirIterator.remove();
-        // FIXME: does not work for empty Dirs
-        for (File myFile : (File[]) ArrayUtils.nullToEmpty(myDir.listFiles())) {
-          if (myFile.isDirectory()) {
-            dirIterator.add(myFile);
-          } else {
-            if (myFile.getName().endsWith(".class")) {
-              classFiles.add(myFile);
-            }
+    return classFiles;
+  }
+
+  /** A class file on disk */
+  static class ClassFile implements ClassSource {
+    private final Path path;
+    private final long size;
+
+    ClassFile(Path path, long size) {
+      this.path = path;
+      this.size = size;
+    }
+
+    @Override
+    public String getName() {
+      return path.toString();
+    }
+
+    @Override
+    public long getSize() {
+      return size;
+    }
+
+    @Override
+    public byte[] readBytes() throws IOException {
+      return Files.readAllBytes(path);
+    }
+  }
+
+  /** Lists one directory and forks a task for every subdirectory */
+  private static class DirectoryTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Path directory;
+    private final Consumer<ClassSource> classSourceConsumer;
+
+    DirectoryTask(Path directory, Consumer<ClassSource> classSourceConsumer) {
+      this.directory = directory;
+      this.classSourceConsumer = classSourceConsumer;
+    }
+
+    @Override
+    protected void compute() {
+      List<DirectoryTask> subdirectoryTasks = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+        for (Path entry : entries) {
+          // One stat call tells the type and the size of the entry
+          BasicFileAttributes attributes =
+              Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          if (attributes.isDirectory()) {
+            subdirectoryTasks.add(new DirectoryTask(entry, classSourceConsumer));
+          } else if (attributes.isRegularFile()
+              && entry.getFileName().toString().endsWith(".class")) {
+            classSourceConsumer.accept(new ClassFile(entry, attributes.size()));
           }
         }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
       }
+      invokeAll(subdirectoryTasks);
     }
-    return classFiles;
   }
 }
@@ -0,0 +1,350 @@
+package dev.meldau.sca;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import guru.nidi.graphviz.attribute.Color;
+import guru.nidi.graphviz.attribute.Style;
+import guru.nidi.graphviz.engine.Format;
+import guru.nidi.graphviz.engine.Graphviz;
+import guru.nidi.graphviz.model.Link;
+import guru.nidi.graphviz.model.MutableGraph;
+import guru.nidi.graphviz.model.MutableNode;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jgrapht.Graphs;
+import org.jgrapht.alg.connectivity.KosarajuStrongConnectivityInspector;
+import org.jgrapht.alg.cycle.CycleDetector;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.jgrapht.nio.dot.DOTExporter;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static guru.nidi.graphviz.model.Factory.mutGraph;
+import static guru.nidi.graphviz.model.Factory.mutNode;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Creates the dependency graph of the classes of a class model. The graph is built in-process from
+ * the dependencies found while parsing the class files, vertices are named like jdeps names classes
+ * (e.g. dev.meldau.sca.ClassFacts$MethodFacts).
+ *
+ * @author Ingo Meldau
+ */
+@SuppressFBWarnings("DM_DEFAULT_ENCODING")
+public class ClassGraphCreator {
+
+  /** Type of the counts of a snapshot of a weighed graph */
+  private static final String WEIGHT_TYPE = "REFERENCES";
+
+  private final ClassModel CLASS_MODEL;
+  private final File OUTPUT_DIR;
+  private final String GRAPH_NAME;
+  private SimpleDirectedGraph<String, InformativeEdge> cycleGraph;
+  /** Number of references each dependency consists of, null if the edges aren't weighed */
+  private Map<InformativeEdge, Integer> edgeWeights;
+
+  /** Create dependency graph of all class files in classDir, report files go to outputDir */
+  public ClassGraphCreator(File classDir, File outputDir) throws IOException {
+    this(new ClassModel(classDir, 0, false), classDir.getName(), outputDir);
+  }
+
+  /** Create dependency graph of all classes of the class model, report files go to outputDir */
+  public ClassGraphCreator(ClassModel classModel, File outputDir) {
+    this(classModel, "classes", outputDir);
+  }
+
+  /**
+   * Create dependency graph of all classes of the class model, report files go to outputDir
+   *
+   * @param graphName prefix of the report files, the reports expect "classes"
+   */
+  public ClassGraphCreator(ClassModel classModel, String graphName, File outputDir) {
+    this.CLASS_MODEL = classModel;
+    this.OUTPUT_DIR = outputDir;
+    this.GRAPH_NAME = graphName;
+    this.createGraph();
+  }
+
+  /**
+   * Loads the dependency graph of a snapshot written by {@link #writeSnapshot}, report files go to
+   * outputDir
+   *
+   * @param graphName prefix of the report files, the reports expect "classes"
+   */
+  public ClassGraphCreator(GraphSnapshot snapshot, String graphName, File outputDir) {
+    this.CLASS_MODEL = null;
+    this.OUTPUT_DIR = outputDir;
+    this.GRAPH_NAME = graphName;
+    cycleGraph = new SimpleDirectedGraph<>(InformativeEdge.class);
+    String[] vertices = new String[snapshot.getVertexCount()];
+    for (int vertex = 0; vertex < vertices.length; vertex++) {
+      vertices[vertex] = snapshot.getVertex(vertex);
+      cycleGraph.addVertex(vertices[vertex]);
+    }
+    int[] offsets = snapshot.getOffsets();
+    int[] targets = snapshot.getTargets();
+    // Weighed graphs have a single count per edge, its weight
+    int[] counts = snapshot.getTypeNames().isEmpty() ? null : snapshot.getCounts();
+    if (counts != null) {
+      edgeWeights = new HashMap<>();
+    }
+    for (int source = 0; source < vertices.length; source++) {
+      for (int edge = offsets[source]; edge < offsets[source + 1]; edge++) {
+        InformativeEdge informativeEdge =
+            cycleGraph.addEdge(vertices[source], vertices[targets[edge]]);
+        if (counts != null) {
+          edgeWeights.put(informativeEdge, counts[edge]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Weighs every dependency with the number of references it consists of in the coupling graph,
+   * e.g. method calls, field accesses and parameter types. Dependencies the coupling analysis
+   * doesn't count, e.g. through annotations or signatures only, weigh 1.
+   */
+  public void weighDependencies(CouplingGraph couplingGraph) {
+    edgeWeights = new HashMap<>();
+    for (InformativeEdge edge : cycleGraph.edgeSet()) {
+      int source = couplingGraph.getVertexId(toCouplingName(cycleGraph.getEdgeSource(edge)));
+      int target = couplingGraph.getVertexId(toCouplingName(cycleGraph.getEdgeTarget(edge)));
+      int coupling = source < 0 || target < 0 ? -1 : couplingGraph.getCoupling(source, target);
+      edgeWeights.put(edge, coupling < 0 ? 1 : Math.max(1, couplingGraph.getCount(coupling)));
+    }
+  }
+
+  /**
+   * @return name of a class in the coupling graph, e.g. dev/meldau/sca/ClassFacts_MethodFacts,
+   *     normalized the way the coupling analysis does
+   */
+  private static String toCouplingName(String vertex) {
+    return SymbolTable.normalize(vertex.replace('.', '/'), SymbolTable.NestedClasses.KEEP);
+  }
+
+  /** @return true if the dependencies are weighed, see {@link #weighDependencies} */
+  public boolean isWeighed() {
+    return edgeWeights != null;
+  }
+
+  /** @return number of references a dependency consists of, 1 if the edges aren't weighed */
+  public int getWeight(InformativeEdge edge) {
+    return edgeWeights == null ? 1 : edgeWeights.getOrDefault(edge, 1);
+  }
+
+  /**
+   * Writes the dependency graph to a snapshot. The vertices keep their order, the edges are grouped
+   * by source and keep their order per source. The weights of a weighed graph are stored as the
+   * counts of a single type.
+   *
+   * @param key identifies the inputs of the graph, e.g. their fingerprint
+   */
+  public void writeSnapshot(File file, String key) throws IOException {
+    List<String> vertices = new ArrayList<>(cycleGraph.vertexSet());
+    Map<String, Integer> vertexIds = new HashMap<>();
+    for (String vertex : vertices) {
+      vertexIds.put(vertex, vertexIds.size());
+    }
+    int[] offsets = new int[vertices.size() + 1];
+    int[] targets = new int[cycleGraph.edgeSet().size()];
+    int[] weights = new int[isWeighed() ? targets.length : 0];
+    for (int source = 0; source < vertices.size(); source++) {
+      int edge = offsets[source];
+      for (InformativeEdge outgoingEdge : cycleGraph.outgoingEdgesOf(vertices.get(source))) {
+        if (isWeighed()) {
+          weights[edge] = getWeight(outgoingEdge);
+        }
+        targets[edge++] = vertexIds.get(cycleGraph.getEdgeTarget(outgoingEdge));
+      }
+      offsets[source + 1] = edge;
+    }
+    GraphSnapshot.write(
+        file,
+        key,
+        vertices,
+        new int[vertices.size()],
+        offsets,
+        targets,
+        isWeighed() ? Collections.singletonList(WEIGHT_TYPE) : Collections.emptyList(),
+        weights);
+  }
+
+  public SimpleDirectedGraph<String, InformativeEdge> getCycleGraph() {
+    return cycleGraph;
+  }
+
+  public boolean hasCycles() {
+    CycleDetector<String, InformativeEdge> cycleDetector = new CycleDetector<>(cycleGraph);
+    return cycleDetector.detectCycles();
+  }
+
+  /**
+   * Create dependency graph from the class model. Classes of dependencies only contribute edges
+   * that are part of a cycle through the classes of the project.
+   */
+  void createGraph() {
+    cycleGraph = new SimpleDirectedGraph<>(InformativeEdge.class);
+    for (ClassFacts classFacts : CLASS_MODEL.getClassFacts()) {
+      addDependencies(cycleGraph, classFacts, false);
+    }
+    if (!CLASS_MODEL.getDependencyClassFacts().isEmpty()) {
+      addCyclesThroughDependencies();
+    }
+  }
+
+  /**
+   * Adds the edges from a class to all classes it depends on
+   *
+   * @param knownTargetsOnly if true, only edges to classes already in the graph are added
+   */
+  private static void addDependencies(
+      SimpleDirectedGraph<String, InformativeEdge> graph,
+      ClassFacts classFacts,
+      boolean knownTargetsOnly) {
+    // jdeps doesn't analyse module descriptors
+    if (classFacts.getName().equals("module-info")) {
+      return;
+    }
+    String source = ModuleGraphCreator.toJdepsName(classFacts.getName());
+    for (String dependency : classFacts.getDependencies()) {
+      String target = ModuleGraphCreator.toJdepsName(dependency);
+      if (!graph.containsVertex(target)) {
+        if (knownTargetsOnly) {
+          continue;
+        }
+        graph.addVertex(target);
+      }
+      graph.addVertex(source);
+      graph.addEdge(source, target);
+    }
+  }
+
+  /**
+   * Adds the edges of dependency classes that lead back into the project. Cycles only between
+   * classes of dependencies can't be resolved by the project and are left out.
+   */
+  private void addCyclesThroughDependencies() {
+    Set<String> projectClasses = new HashSet<>();
+    for (ClassFacts classFacts : CLASS_MODEL.getClassFacts()) {
+      projectClasses.add(ModuleGraphCreator.toJdepsName(classFacts.getName()));
+    }
+    SimpleDirectedGraph<String, InformativeEdge> withDependencies =
+        new SimpleDirectedGraph<>(InformativeEdge.class);
+    Graphs.addGraph(withDependencies, cycleGraph);
+    for (ClassFacts classFacts : CLASS_MODEL.getDependencyClassFacts()) {
+      String className = ModuleGraphCreator.toJdepsName(classFacts.getName());
+      if (withDependencies.containsVertex(className) && !projectClasses.contains(className)) {
+        addDependencies(withDependencies, classFacts, true);
+      }
+    }
+
+    for (Set<String> component :
+        new KosarajuStrongConnectivityInspector<>(withDependencies).stronglyConnectedSets()) {
+      if (component.size() < 2 || Collections.disjoint(component, projectClasses)) {
+        continue;
+      }
+      for (String source : component) {
+        if (projectClasses.contains(source)) {
+          continue;
+        }
+        for (InformativeEdge edge : withDependencies.outgoingEdgesOf(source)) {
+          String target = withDependencies.getEdgeTarget(edge);
+          if (component.contains(target)) {
+            cycleGraph.addEdge(source, target);
+          }
+        }
+      }
+    }
+  }
+
+  /** @return vertex name as used in DOT files, which don't allow dots and dollar signs */
+  private static String toDotId(String vertex) {
+    return vertex.replace('.', '_').replace('$', '_');
+  }
+
+  /** Streams the graph into a DOT file, which only happens when DOT files are requested */
+  void exportDot(File dotFile) throws IOException {
+    DOTExporter<String, InformativeEdge> dotExporter =
+        new DOTExporter<>(ClassGraphCreator::toDotId);
+    try (Writer writer = new BufferedWriter(new FileWriter(dotFile))) {
+      dotExporter.exportGraph(cycleGraph, writer);
+    }
+  }
+
+  /**
+   * Save graph as PNG for maven report, and as DOT if requested
+   *
+   * @param exportDot if true, the graph is written to DOT files as well
+   */
+  void saveGraphForReport(boolean exportDot) throws MojoExecutionException {
+    saveGraphForReport(Collections.emptySet(), exportDot);
+  }
+
+  /**
+   * Save graph as PNG for maven report, and as DOT if requested. Edges that are part of the
+   * Feedback Arc Set are colored in red. The graph is handed to graphviz in memory.
+   *
+   * @param exportDot if true, the graph is written to DOT files as well
+   */
+  void saveGraphForReport(Set<InformativeEdge> feedbackArcSet, boolean exportDot)
+      throws MojoExecutionException {
+    Set<List<String>> feedbackArcs = new HashSet<>();
+    for (InformativeEdge arc : feedbackArcSet) {
+      feedbackArcs.add(Arrays.asList(arc.getSource().toString(), arc.getTarget().toString()));
+    }
+
+    MutableGraph g = mutGraph("G").setDirected(true).setStrict(true);
+    Map<String, MutableNode> nodes = new HashMap<>();
+    for (String vertex : cycleGraph.vertexSet()) {
+      MutableNode node = mutNode(toDotId(vertex));
+      nodes.put(vertex, node);
+      g.add(node);
+    }
+    for (InformativeEdge edge : cycleGraph.edgeSet()) {
+      String source = cycleGraph.getEdgeSource(edge);
+      String target = cycleGraph.getEdgeTarget(edge);
+      Link link = Link.to(nodes.get(target));
+      // Display edges which are part of the FAS in bold Red
+      if (feedbackArcs.contains(Arrays.asList(source, target))) {
+        link = link.with(Color.RED).with(Style.BOLD);
+      }
+      nodes.get(source).addLink(link);
+    }
+
+    try {
+      if (exportDot) {
+        exportDot(new File(OUTPUT_DIR, GRAPH_NAME + "_clean.dot"));
+        Graphviz.fromGraph(g)
+            .render(Format.DOT)
+            .toFile(new File(OUTPUT_DIR, GRAPH_NAME + "_clean_colored.dot"));
+      }
+      Graphviz.fromGraph(g)
+          .render(Format.PNG)
+          .toFile(new File(OUTPUT_DIR, GRAPH_NAME + "_clean_colored.png"));
+    } catch (IOException e) {
+      e.printStackTrace();
+      throw new MojoExecutionException("Could not write dependency graph.");
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package dev.meldau.sca;
+
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Shared model of all analyzed classes. Every class file is read exactly once and the extracted
+ * {@link ClassFacts} are consumed by all analyses.
+ *
+ * @author Ingo Meldau
+ */
+public class ClassModel {
+
+  private final List<ClassFacts> classFacts = new ArrayList<>();
+  private final List<ClassFacts> dependencyClassFacts = new ArrayList<>();
+  private final boolean withLocalVariables;
+
+  /** Extracts the facts of all class files found in classDir */
+  public ClassModel(File classDir) throws IOException {
+    this(classDir, 0, true);
+  }
+
+  /**
+   * Extracts the facts of all class files found in classDir
+   *
+   * @param parallelism number of parser threads, 0 uses one thread per available processor
+   * @param withLocalVariables if false, debug information is skipped and no local variables are
+   *     collected
+   */
+  public ClassModel(File classDir, int parallelism, boolean withLocalVariables)
+      throws IOException {
+    this(
+        Collections.singletonList(new ClassFileFinder(classDir, parallelism)),
+        parallelism,
+        withLocalVariables);
+  }
+
+  /**
+   * Extracts the facts of all class files found by the classSourceFinders
+   *
+   * @param parallelism number of parser threads, 0 uses one thread per available processor
+   * @param withLocalVariables if false, debug information is skipped and no local variables are
+   *     collected
+   */
+  public ClassModel(
+      List<? extends ClassSourceFinder> classSourceFinders,
+      int parallelism,
+      boolean withLocalVariables)
+      throws IOException {
+    this.withLocalVariables = withLocalVariables;
+    classFacts.addAll(
+        new ParallelClassParser(parallelism, getParsingOptions(withLocalVariables))
+            .parseSources(classSourceFinders));
+  }
+
+  /** Extracts the facts of all given class files */
+  public ClassModel(List<File> classFiles) throws IOException {
+    this.withLocalVariables = true;
+    classFacts.addAll(new ParallelClassParser(0, getParsingOptions(true)).parse(classFiles));
+  }
+
+  private ClassModel(List<ClassFacts> classFacts, boolean withLocalVariables) {
+    this.withLocalVariables = withLocalVariables;
+    this.classFacts.addAll(classFacts);
+  }
+
+  /**
+   * Extracts one model per finder, e.g. per module of a reactor. All class files are parsed in one
+   * pass, so the finders are parsed concurrently.
+   *
+   * @param parallelism number of parser threads, 0 uses one thread per available processor
+   * @param withLocalVariables if false, debug information is skipped and no local variables are
+   *     collected
+   * @return one model per finder, in the order of classSourceFinders
+   */
+  public static List<ClassModel> readEach(
+      List<? extends ClassSourceFinder> classSourceFinders,
+      int parallelism,
+      boolean withLocalVariables)
+      throws IOException {
+    return readEach(classSourceFinders, parallelism, withLocalVariables, null);
+  }
+
+  /**
+   * Extracts one model per finder like {@link #readEach(List, int, boolean)}, class files found in
+   * factsCache are not parsed again
+   *
+   * @param factsCache cache of facts extracted with the same withLocalVariables setting, may be
+   *     null
+   */
+  public static List<ClassModel> readEach(
+      List<? extends ClassSourceFinder> classSourceFinders,
+      int parallelism,
+      boolean withLocalVariables,
+      ClassFactsCache factsCache)
+      throws IOException {
+    List<ClassModel> classModels = new ArrayList<>(classSourceFinders.size());
+    for (List<ClassFacts> finderFacts :
+        new ParallelClassParser(parallelism, getParsingOptions(withLocalVariables), factsCache)
+            .parseSourcesPerFinder(classSourceFinders)) {
+      classModels.add(new ClassModel(finderFacts, withLocalVariables));
+    }
+    return classModels;
+  }
+
+  /** @return one model containing the facts of all classModels, in their order */
+  public static ClassModel combine(List<ClassModel> classModels) {
+    List<ClassFacts> combinedFacts = new ArrayList<>();
+    boolean withLocalVariables = true;
+    for (ClassModel classModel : classModels) {
+      combinedFacts.addAll(classModel.classFacts);
+      withLocalVariables &= classModel.withLocalVariables;
+    }
+    ClassModel combined = new ClassModel(combinedFacts, withLocalVariables);
+    for (ClassModel classModel : classModels) {
+      combined.dependencyClassFacts.addAll(classModel.dependencyClassFacts);
+    }
+    return combined;
+  }
+
+  /**
+   * @param dependencyClassFacts facts of the classes of the dependencies of the project
+   * @return model of the same classes that also knows the classes of their dependencies
+   */
+  public ClassModel withDependencies(List<ClassFacts> dependencyClassFacts) {
+    ClassModel classModel = new ClassModel(classFacts, withLocalVariables);
+    classModel.dependencyClassFacts.addAll(this.dependencyClassFacts);
+    classModel.dependencyClassFacts.addAll(dependencyClassFacts);
+    return classModel;
+  }
+
+  /**
+   * Frames are never needed. Debug information only contains the local variables, so it is skipped
+   * when they are not needed.
+   *
+   * @return options for ClassReader.accept
+   */
+  static int getParsingOptions(boolean withLocalVariables) {
+    return ClassReader.SKIP_FRAMES | (withLocalVariables ? 0 : ClassReader.SKIP_DEBUG);
+  }
+
+  /** Reads all facts needed by the analyses from the class */
+  static ClassFacts extractFacts(ClassReader classReader, int parsingOptions) {
+    ClassFactsVisitor classFactsVisitor = new ClassFactsVisitor();
+    classFactsVisitor.visitConstantPool(classReader);
+    classReader.accept(classFactsVisitor, parsingOptions);
+    return classFactsVisitor.getClassFacts();
+  }
+
+  /** @return true if the local variables of all methods were collected */
+  public boolean isWithLocalVariables() {
+    return withLocalVariables;
+  }
+
+  /**
+   * @return facts of all classes, in the order of the given class files or ordered by finder and
+   *     path when finders were used
+   */
+  public List<ClassFacts> getClassFacts() {
+    return Collections.unmodifiableList(classFacts);
+  }
+
+  /**
+   * @return facts of the classes of the dependencies, they are not analysed themselves but show
+   *     how the classes of the project are coupled through them
+   */
+  public List<ClassFacts> getDependencyClassFacts() {
+    return Collections.unmodifiableList(dependencyClassFacts);
+  }
+}
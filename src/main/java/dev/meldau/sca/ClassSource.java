@@ -0,0 +1,36 @@
+package dev.meldau.sca;
+
+import java.io.IOException;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A single class file to analyze. It may be a file on disk or an entry of an archive.
+ *
+ * @author Ingo Meldau
+ */
+public interface ClassSource {
+
+  /** @return name of the class file, unique within its {@link ClassSourceFinder} */
+  String getName();
+
+  /** @return size of the class file in bytes */
+  long getSize();
+
+  /** @return content of the class file */
+  byte[] readBytes() throws IOException;
+}
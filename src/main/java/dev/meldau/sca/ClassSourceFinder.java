@@ -0,0 +1,34 @@
+package dev.meldau.sca;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Finds the class files of one analysis input, e.g. a directory or an archive.
+ *
+ * @author Ingo Meldau
+ */
+public interface ClassSourceFinder {
+
+  /**
+   * Hands every class file of the input to classSourceConsumer as soon as it is found. The consumer
+   * may be called from several threads at the same time and in any order.
+   */
+  void findClassSources(Consumer<ClassSource> classSourceConsumer) throws IOException;
+}
@@ -0,0 +1,267 @@
+package dev.meldau.sca;
+
+import org.jgrapht.graph.DirectedMultigraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Compact, immutable coupling graph. Vertices are numbered in the order they were added, the
+ * couplings between two classes are stored once per ordered pair with one count per {@link
+ * ConnectionType}.
+ *
+ * <p>The pairs are kept in compressed sparse row arrays: the couplings of vertex v are the entries
+ * getFirstCoupling(v) (inclusive) to getFirstCoupling(v + 1) (exclusive), sorted by target. The
+ * incoming couplings are indexed the same way, sorted by source.
+ *
+ * @author Ingo Meldau
+ */
+public class CouplingGraph {
+
+  private static final ConnectionType[] CONNECTION_TYPES = ConnectionType.values();
+
+  private final String[] VERTICES;
+  /** Start of the couplings of each vertex in TARGETS, one more entry than vertices */
+  private final int[] OFFSETS;
+  private final int[] TARGETS;
+  /** Number of references per coupling and connection type, TARGETS.length * types entries */
+  private final int[] COUNTS;
+  /** Start of the incoming couplings of each vertex in SOURCES */
+  private final int[] IN_OFFSETS;
+  private final int[] SOURCES;
+  /** Index of each incoming coupling in TARGETS */
+  private final int[] IN_COUPLINGS;
+
+  private Map<String, Integer> vertexIds;
+
+  private CouplingGraph(String[] vertices, int[] offsets, int[] targets, int[] counts) {
+    this.VERTICES = vertices;
+    this.OFFSETS = offsets;
+    this.TARGETS = targets;
+    this.COUNTS = counts;
+
+    // Transpose, walking the couplings in source order keeps every incoming row sorted by source
+    IN_OFFSETS = new int[vertices.length + 1];
+    for (int target : targets) {
+      IN_OFFSETS[target + 1]++;
+    }
+    for (int vertex = 0; vertex < vertices.length; vertex++) {
+      IN_OFFSETS[vertex + 1] += IN_OFFSETS[vertex];
+    }
+    SOURCES = new int[targets.length];
+    IN_COUPLINGS = new int[targets.length];
+    int[] next = Arrays.copyOf(IN_OFFSETS, vertices.length);
+    for (int source = 0; source < vertices.length; source++) {
+      for (int coupling = offsets[source]; coupling < offsets[source + 1]; coupling++) {
+        int position = next[targets[coupling]]++;
+        SOURCES[position] = source;
+        IN_COUPLINGS[position] = coupling;
+      }
+    }
+  }
+
+  /**
+   * Creates a graph from packed arrays, e.g. of a {@link GraphSnapshot}. The arrays are taken over,
+   * not copied.
+   *
+   * @param counts number of references per coupling and connection type, in ordinal order
+   */
+  static CouplingGraph fromArrays(String[] vertices, int[] offsets, int[] targets, int[] counts) {
+    return new CouplingGraph(vertices, offsets, targets, counts);
+  }
+
+  /** @return number of classes */
+  public int getVertexCount() {
+    return VERTICES.length;
+  }
+
+  /** @return name of a class */
+  public String getVertex(int vertex) {
+    return VERTICES[vertex];
+  }
+
+  /** @return id of a class, -1 if it isn't part of the graph */
+  public int getVertexId(String name) {
+    if (vertexIds == null) {
+      Map<String, Integer> ids = new HashMap<>();
+      for (int vertex = 0; vertex < VERTICES.length; vertex++) {
+        ids.put(VERTICES[vertex], vertex);
+      }
+      vertexIds = ids;
+    }
+    return vertexIds.getOrDefault(name, -1);
+  }
+
+  /** @return number of ordered pairs of coupled classes */
+  public int getCouplingCount() {
+    return TARGETS.length;
+  }
+
+  /** @return index of the first coupling of a vertex, getFirstCoupling(v + 1) ends them */
+  public int getFirstCoupling(int vertex) {
+    return OFFSETS[vertex];
+  }
+
+  /** @return number of distinct classes a vertex is coupled to */
+  public int getOutDegree(int vertex) {
+    return OFFSETS[vertex + 1] - OFFSETS[vertex];
+  }
+
+  /** @return class a coupling points to */
+  public int getTarget(int coupling) {
+    return TARGETS[coupling];
+  }
+
+  /** @return number of references of a coupling, of all connection types */
+  public int getCount(int coupling) {
+    int count = 0;
+    for (int type = 0; type < CONNECTION_TYPES.length; type++) {
+      count += COUNTS[coupling * CONNECTION_TYPES.length + type];
+    }
+    return count;
+  }
+
+  /** @return number of references of a coupling of one connection type */
+  public int getCount(int coupling, ConnectionType connectionType) {
+    return COUNTS[coupling * CONNECTION_TYPES.length + connectionType.ordinal()];
+  }
+
+  /** @return index of the coupling from source to target, -1 if they aren't coupled */
+  public int getCoupling(int source, int target) {
+    int coupling = Arrays.binarySearch(TARGETS, OFFSETS[source], OFFSETS[source + 1], target);
+    return coupling < 0 ? -1 : coupling;
+  }
+
+  /** @return index of the first incoming coupling of a vertex, getFirstInCoupling(v + 1) ends it */
+  public int getFirstInCoupling(int vertex) {
+    return IN_OFFSETS[vertex];
+  }
+
+  /** @return number of distinct classes coupled to a vertex */
+  public int getInDegree(int vertex) {
+    return IN_OFFSETS[vertex + 1] - IN_OFFSETS[vertex];
+  }
+
+  /** @return class an incoming coupling comes from */
+  public int getSource(int inCoupling) {
+    return SOURCES[inCoupling];
+  }
+
+  /** @return index of an incoming coupling among the couplings, to look up its counts */
+  public int getInCoupling(int inCoupling) {
+    return IN_COUPLINGS[inCoupling];
+  }
+
+  /**
+   * Converts the graph into a jgrapht multigraph for consumers that need the object graph. There is
+   * one edge per connection type between two classes, counting its references.
+   */
+  public DirectedMultigraph<String, LabeledEdge> toMultigraph() {
+    DirectedMultigraph<String, LabeledEdge> multigraph =
+        new DirectedMultigraph<>(LabeledEdge.class);
+    for (String vertex : VERTICES) {
+      multigraph.addVertex(vertex);
+    }
+    for (int source = 0; source < VERTICES.length; source++) {
+      for (int coupling = OFFSETS[source]; coupling < OFFSETS[source + 1]; coupling++) {
+        for (ConnectionType connectionType : CONNECTION_TYPES) {
+          int count = getCount(coupling, connectionType);
+          if (count > 0) {
+            multigraph.addEdge(
+                VERTICES[source],
+                VERTICES[TARGETS[coupling]],
+                new LabeledEdge(connectionType, count));
+          }
+        }
+      }
+    }
+    return multigraph;
+  }
+
+  /**
+   * Collects vertices and references, then packs them into a {@link CouplingGraph}. References are
+   * counted as they are added, memory grows with the number of coupled pairs, not references.
+   */
+  public static class Builder {
+    private final Map<String, Integer> vertexIds = new HashMap<>();
+    private final List<String> vertices = new ArrayList<>();
+    /** Counts per connection type of the couplings of each vertex, by target */
+    private final List<Map<Integer, int[]>> couplings = new ArrayList<>();
+    private int couplingCount;
+
+    /** @return id of the vertex, it is added if it isn't part of the graph yet */
+    public int addVertex(String name) {
+      Integer id = vertexIds.get(name);
+      if (id == null) {
+        id = vertices.size();
+        vertexIds.put(name, id);
+        vertices.add(name);
+        couplings.add(new HashMap<>());
+      }
+      return id;
+    }
+
+    /** @return true if the vertex was added before */
+    public boolean containsVertex(String name) {
+      return vertexIds.containsKey(name);
+    }
+
+    /** Adds one reference from source to target, both have to be vertices already */
+    public void addReference(String source, String target, ConnectionType connectionType) {
+      Map<Integer, int[]> sourceCouplings = couplings.get(vertexIds.get(source));
+      int targetId = vertexIds.get(target);
+      int[] counts = sourceCouplings.get(targetId);
+      if (counts == null) {
+        counts = new int[CONNECTION_TYPES.length];
+        sourceCouplings.put(targetId, counts);
+        couplingCount++;
+      }
+      counts[connectionType.ordinal()]++;
+    }
+
+    /** @return packed graph, the couplings of each vertex sorted by target */
+    public CouplingGraph build() {
+      int[] offsets = new int[vertices.size() + 1];
+      int[] targets = new int[couplingCount];
+      int[] counts = new int[couplingCount * CONNECTION_TYPES.length];
+      int coupling = 0;
+      for (int source = 0; source < vertices.size(); source++) {
+        Map<Integer, int[]> sourceCouplings = couplings.get(source);
+        int first = coupling;
+        for (int target : sourceCouplings.keySet()) {
+          targets[coupling++] = target;
+        }
+        Arrays.sort(targets, first, coupling);
+        for (int packed = first; packed < coupling; packed++) {
+          System.arraycopy(
+              sourceCouplings.get(targets[packed]),
+              0,
+              counts,
+              packed * CONNECTION_TYPES.length,
+              CONNECTION_TYPES.length);
+        }
+        offsets[source + 1] = coupling;
+      }
+      return new CouplingGraph(vertices.toArray(new String[0]), offsets, targets, counts);
+    }
+  }
+}
@@ -2,25 +2,29 @@ package dev.meldau.sca;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import guru.nidi.graphviz.attribute.Color;
-import guru.nidi.graphviz.attribute.Label;
+import guru.nidi.graphviz.attribute.Style;
 import guru.nidi.graphviz.engine.Format;
 import guru.nidi.graphviz.engine.Graphviz;
+import guru.nidi.graphviz.model.Link;
 import guru.nidi.graphviz.model.MutableGraph;
-import guru.nidi.graphviz.parse.Parser;
-import org.apache.commons.collections4.CollectionUtils;
+import guru.nidi.graphviz.model.MutableNode;
 import org.jgrapht.graph.DirectedMultigraph;
 import org.jgrapht.nio.Attribute;
 import org.jgrapht.nio.DefaultAttribute;
 import org.jgrapht.nio.dot.DOTExporter;
-import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.*;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+
+import static guru.nidi.graphviz.model.Factory.mutGraph;
+import static guru.nidi.graphviz.model.Factory.mutNode;
 
 /*
  * Copyright 2020-2021 Ingo Meldau
@@ -39,202 +43,303 @@ import java.util.Objects;
  */
 
 /**
- * Generates directed multigraph
+ * Generates the coupling graph of the classes of a class model as a compact {@link CouplingGraph},
+ * the directed multigraph is only built on demand
  *
  * @author Ingo Meldau
  */
 public class CouplingMultiGraphGenerator {
 
-  ArrayList<File> classFiles;
+  final ClassModel CLASS_MODEL;
+
+  CouplingGraph couplingGraph;
+
+  private DirectedMultigraph<String, LabeledEdge> multigraph;
+
+  private final Set<String> dependencyClasses = new HashSet<>();
 
-  DirectedMultigraph<String, LabeledEdge> couplingGraph;
+  /** Class names are normalized only once per distinct string */
+  private final SymbolTable symbols = new SymbolTable(SymbolTable.NestedClasses.KEEP);
 
-  /** Generates directed multigraph from all files in classDir */
+  /** Generates coupling graph from all files in classDir */
   public CouplingMultiGraphGenerator(File classDir) throws IOException {
-    ClassFileFinder classFileFinder = new ClassFileFinder(classDir);
-    classFiles = classFileFinder.getClassFiles();
-    generateGraph();
+    this(new ClassModel(classDir));
   }
 
-  /** Generates directed multigraph */
-  private void generateGraph() throws IOException {
-
-    DirectedMultigraph<String, LabeledEdge> couplingGraph =
-        new DirectedMultigraph<>(LabeledEdge.class);
+  /** Generates coupling graph from the facts of an already extracted class model */
+  public CouplingMultiGraphGenerator(ClassModel classModel) {
+    this.CLASS_MODEL = classModel;
+    generateGraph();
+  }
 
-    /* This needs improvement, the for loop could be its own method */
-    for (File classFile : classFiles) {
-      InputStream classFileIS = new FileInputStream(classFile);
-      ClassNode myClassNode = new ClassNode();
-      ClassReader myClassReader = new ClassReader(classFileIS);
-      myClassReader.accept(myClassNode, 0);
+  private CouplingMultiGraphGenerator(
+      CouplingGraph couplingGraph, Set<String> dependencyClasses) {
+    this.CLASS_MODEL = null;
+    this.couplingGraph = couplingGraph;
+    this.dependencyClasses.addAll(dependencyClasses);
+  }
 
-      // Check if classfile is a module-info file in this case => skip
-      if (myClassReader.getClassName().equals("module-info")
-          || myClassReader.getClassName().equals("")) {
-        continue;
+  /** Loads the coupling graph of a snapshot written by {@link #writeSnapshot} */
+  public static CouplingMultiGraphGenerator fromSnapshot(GraphSnapshot snapshot)
+      throws IOException {
+    ConnectionType[] connectionTypes = ConnectionType.values();
+    List<String> typeNames = snapshot.getTypeNames();
+    int[] ordinals = new int[typeNames.size()];
+    for (int type = 0; type < ordinals.length; type++) {
+      try {
+        ordinals[type] = ConnectionType.valueOf(typeNames.get(type)).ordinal();
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Unknown connection type " + typeNames.get(type) + " in snapshot");
       }
+    }
 
-      // Add classname as vertex to graph
-      if (!couplingGraph.vertexSet().contains(myClassReader.getClassName())) {
-        couplingGraph.addVertex(cleanInternalName(myClassNode.name));
+    String[] vertices = new String[snapshot.getVertexCount()];
+    Set<String> dependencyClasses = new HashSet<>();
+    for (int vertex = 0; vertex < vertices.length; vertex++) {
+      vertices[vertex] = snapshot.getVertex(vertex);
+      if ((snapshot.getFlags(vertex) & GraphSnapshot.DEPENDENCY_CLASS) != 0) {
+        dependencyClasses.add(vertices[vertex]);
       }
-      if (myClassNode.superName != null
-          && !myClassNode.superName.equals("java/lang/Object")
-          && !myClassNode.superName.equals("")) {
-        if (!couplingGraph.vertexSet().contains(cleanInternalName(myClassNode.superName))) {
-          couplingGraph.addVertex(cleanInternalName(myClassNode.superName));
-        }
-        couplingGraph.addEdge(
-            cleanInternalName(myClassNode.name),
-            cleanInternalName(myClassNode.superName),
-            new LabeledEdge(ConnectionType.SUPERCLASS));
+    }
+    int[] snapshotCounts = snapshot.getCounts();
+    int[] counts = new int[snapshot.getEdgeCount() * connectionTypes.length];
+    for (int coupling = 0; coupling < snapshot.getEdgeCount(); coupling++) {
+      for (int type = 0; type < ordinals.length; type++) {
+        counts[coupling * connectionTypes.length + ordinals[type]] =
+            snapshotCounts[coupling * ordinals.length + type];
       }
+    }
+    return new CouplingMultiGraphGenerator(
+        CouplingGraph.fromArrays(vertices, snapshot.getOffsets(), snapshot.getTargets(), counts),
+        dependencyClasses);
+  }
 
-      // check for instance variables
-      for (FieldNode field : CollectionUtils.emptyIfNull(myClassNode.fields)) {
-        if (!cleanInternalName(field.desc).startsWith("java/")
-            && !cleanInternalName(field.desc).equals("")
-            && !cleanInternalName(myClassNode.name).equals(cleanInternalName(field.desc))) {
-          if (!couplingGraph.vertexSet().contains(cleanInternalName(field.desc))) {
-            couplingGraph.addVertex(cleanInternalName(field.desc));
-          }
-          couplingGraph.addEdge(
-              cleanInternalName(myClassNode.name),
-              cleanInternalName(field.desc),
-              new LabeledEdge(ConnectionType.INSTANCE_VARIABLE));
-        }
+  /**
+   * Writes the coupling graph to a snapshot, the references are counted per connection type
+   *
+   * @param key identifies the inputs of the graph, e.g. their fingerprint
+   */
+  public void writeSnapshot(File file, String key) throws IOException {
+    ConnectionType[] connectionTypes = ConnectionType.values();
+    List<String> vertices = new ArrayList<>(couplingGraph.getVertexCount());
+    int[] flags = new int[couplingGraph.getVertexCount()];
+    int[] offsets = new int[couplingGraph.getVertexCount() + 1];
+    for (int vertex = 0; vertex < flags.length; vertex++) {
+      vertices.add(couplingGraph.getVertex(vertex));
+      flags[vertex] =
+          dependencyClasses.contains(vertices.get(vertex)) ? GraphSnapshot.DEPENDENCY_CLASS : 0;
+      offsets[vertex + 1] = couplingGraph.getFirstCoupling(vertex + 1);
+    }
+    int[] targets = new int[couplingGraph.getCouplingCount()];
+    int[] counts = new int[targets.length * connectionTypes.length];
+    for (int coupling = 0; coupling < targets.length; coupling++) {
+      targets[coupling] = couplingGraph.getTarget(coupling);
+      for (ConnectionType connectionType : connectionTypes) {
+        counts[coupling * connectionTypes.length + connectionType.ordinal()] =
+            couplingGraph.getCount(coupling, connectionType);
       }
+    }
+    List<String> typeNames = new ArrayList<>();
+    for (ConnectionType connectionType : connectionTypes) {
+      typeNames.add(connectionType.name());
+    }
+    GraphSnapshot.write(file, key, vertices, flags, offsets, targets, typeNames, counts);
+  }
 
-      // check for method calls
-      for (MethodNode method : CollectionUtils.emptyIfNull(myClassNode.methods)) {
-        for (AbstractInsnNode ain : method.instructions.toArray()) {
-          if (ain.getType() == AbstractInsnNode.METHOD_INSN) {
-            MethodInsnNode methCall = (MethodInsnNode) ain;
-            if (!cleanInternalName(methCall.owner).equals(cleanInternalName(myClassNode.name))
-                && !cleanInternalName(methCall.owner).equals("")
-                && !methCall.owner.startsWith("java/")) {
-              if (!couplingGraph.vertexSet().contains(cleanInternalName(methCall.owner))) {
-                couplingGraph.addVertex(cleanInternalName(methCall.owner));
-              }
-              couplingGraph.addEdge(
-                  cleanInternalName(myClassNode.name),
-                  cleanInternalName(methCall.owner),
-                  new LabeledEdge(ConnectionType.CALLS_METHOD));
-            }
-          }
+  /**
+   * Generates the coupling graph. Classes of dependencies only add edges between classes the
+   * project refers to, the graph never grows beyond the classes of the project and their direct
+   * dependencies.
+   */
+  private void generateGraph() {
 
-          // Check for use of public variables
-          if (ain.getType() == AbstractInsnNode.FIELD_INSN) {
-            FieldInsnNode fieldInsnNode = (FieldInsnNode) ain;
-            if (!cleanInternalName(fieldInsnNode.owner).equals(cleanInternalName(myClassNode.name))
-                && !cleanInternalName(fieldInsnNode.owner).equals("")
-                && !fieldInsnNode.owner.startsWith("java/")) {
-              if (!couplingGraph.vertexSet().contains(cleanInternalName(fieldInsnNode.owner))) {
-                couplingGraph.addVertex(cleanInternalName(fieldInsnNode.owner));
-              }
-              couplingGraph.addEdge(
-                  cleanInternalName(myClassNode.name),
-                  cleanInternalName(fieldInsnNode.owner),
-                  new LabeledEdge(ConnectionType.ACCESS_PUBLIC_VARIABLE));
-            }
-          }
+    CouplingGraph.Builder couplingGraph = new CouplingGraph.Builder();
+
+    Set<String> projectClasses = new HashSet<>();
+    for (ClassFacts classFacts : CLASS_MODEL.getClassFacts()) {
+      projectClasses.add(symbols.getName(symbols.intern(classFacts.getName())));
+      addCouplings(couplingGraph, classFacts, false);
+    }
+    for (ClassFacts classFacts : CLASS_MODEL.getDependencyClassFacts()) {
+      String className = symbols.getName(symbols.intern(classFacts.getName()));
+      if (couplingGraph.containsVertex(className) && !projectClasses.contains(className)) {
+        dependencyClasses.add(className);
+        addCouplings(couplingGraph, classFacts, true);
+      }
+    }
+
+    this.couplingGraph = couplingGraph.build();
+  }
+
+  /**
+   * Adds the edges from a class to all classes it is coupled to
+   *
+   * @param knownTargetsOnly if true, only edges to classes already in the graph are added
+   */
+  private void addCouplings(
+      CouplingGraph.Builder couplingGraph,
+      ClassFacts classFacts,
+      boolean knownTargetsOnly) {
+    // Check if classfile is a module-info file in this case => skip
+    if (classFacts.getName().equals("module-info") || classFacts.getName().equals("")) {
+      return;
+    }
+
+    // Add classname as vertex to graph
+    int classId = symbols.intern(classFacts.getName());
+    String className = symbols.getName(classId);
+    couplingGraph.addVertex(className);
+    String superName = classFacts.getSuperName();
+    if (superName != null && !superName.equals("java/lang/Object") && !superName.equals("")) {
+      addEdge(
+          couplingGraph,
+          className,
+          symbols.getName(symbols.intern(superName)),
+          ConnectionType.SUPERCLASS,
+          knownTargetsOnly);
+    }
+
+    // check for instance variables
+    for (String fieldDesc : classFacts.getFieldDescriptors()) {
+      int fieldTypeId = symbols.intern(fieldDesc);
+      if (isCoupling(classId, fieldTypeId)) {
+        addEdge(
+            couplingGraph,
+            className,
+            symbols.getName(fieldTypeId),
+            ConnectionType.INSTANCE_VARIABLE,
+            knownTargetsOnly);
+      }
+    }
+
+    for (ClassFacts.MethodFacts method : classFacts.getMethods()) {
+      // check for method calls and use of public variables
+      for (ClassFacts.MemberReference reference : method.getReferences()) {
+        String owner = reference.getOwner();
+        int ownerId = symbols.intern(owner);
+        if (ownerId != classId && !symbols.isEmpty(ownerId) && !owner.startsWith("java/")) {
+          addEdge(
+              couplingGraph,
+              className,
+              symbols.getName(ownerId),
+              reference.isField()
+                  ? ConnectionType.ACCESS_PUBLIC_VARIABLE
+                  : ConnectionType.CALLS_METHOD,
+              knownTargetsOnly);
         }
-        // check for local Variables
-        for (LocalVariableNode myLocalVariableNode :
-            CollectionUtils.emptyIfNull(method.localVariables)) {
-          if (!cleanInternalName(myLocalVariableNode.desc).startsWith("java/")
-              && !cleanInternalName(myLocalVariableNode.desc).equals("")
-              && !cleanInternalName(myLocalVariableNode.desc)
-                  .equals(cleanInternalName(myClassNode.name))) {
-            if (!couplingGraph.vertexSet().contains(cleanInternalName(myLocalVariableNode.desc))) {
-              couplingGraph.addVertex(cleanInternalName(myLocalVariableNode.desc));
-            }
-            couplingGraph.addEdge(
-                cleanInternalName(myClassNode.name),
-                cleanInternalName(myLocalVariableNode.desc),
-                new LabeledEdge(ConnectionType.LOCAL_VARIABLE));
-          }
+      }
+      // check for local Variables
+      for (String localVariableDesc : method.getLocalVariableDescriptors()) {
+        int localVariableTypeId = symbols.intern(localVariableDesc);
+        if (isCoupling(classId, localVariableTypeId)) {
+          addEdge(
+              couplingGraph,
+              className,
+              symbols.getName(localVariableTypeId),
+              ConnectionType.LOCAL_VARIABLE,
+              knownTargetsOnly);
         }
+      }
 
-        // check for method Parameter Types
-        Type[] parameterTypes = Type.getArgumentTypes(method.desc);
-        for (Type parameterType : parameterTypes) {
-          if (!cleanInternalName(parameterType.getInternalName())
-                  .equals(cleanInternalName(myClassNode.name))
-              && !cleanInternalName(parameterType.getInternalName()).equals("")
-              && !cleanInternalName(parameterType.getInternalName()).startsWith("java/")) {
-            if (!couplingGraph
-                .vertexSet()
-                .contains(cleanInternalName(parameterType.getInternalName()))) {
-              couplingGraph.addVertex(cleanInternalName(parameterType.getInternalName()));
-            }
-            couplingGraph.addEdge(
-                cleanInternalName(myClassNode.name),
-                cleanInternalName(parameterType.getInternalName()),
-                new LabeledEdge(ConnectionType.PARAMETER_TYPE));
-          }
+      // check for method Parameter Types
+      for (Type parameterType : Type.getArgumentTypes(method.getDescriptor())) {
+        int parameterTypeId = symbols.intern(parameterType.getInternalName());
+        if (isCoupling(classId, parameterTypeId)) {
+          addEdge(
+              couplingGraph,
+              className,
+              symbols.getName(parameterTypeId),
+              ConnectionType.PARAMETER_TYPE,
+              knownTargetsOnly);
         }
       }
     }
+  }
 
-    this.couplingGraph = couplingGraph;
+  /** @return true if a class is coupled to a type, i.e. another class not of the java packages */
+  private boolean isCoupling(int classId, int typeId) {
+    return typeId != classId && !symbols.isEmpty(typeId) && !symbols.isJavaClass(typeId);
+  }
+
+  /** Adds an edge, the target is added as vertex unless only known targets are accepted */
+  private void addEdge(
+      CouplingGraph.Builder couplingGraph,
+      String source,
+      String target,
+      ConnectionType connectionType,
+      boolean knownTargetsOnly) {
+    if (!couplingGraph.containsVertex(target)) {
+      if (knownTargetsOnly) {
+        return;
+      }
+      couplingGraph.addVertex(target);
+    }
+    couplingGraph.addReference(source, target, connectionType);
   }
 
-  private String cleanInternalName(String toClean) {
-    String cleanString = toClean.replaceAll("^\\[*[A-Z]", "");
-    cleanString = cleanString.replaceAll("\\$", "_");
-    cleanString = cleanString.replaceAll(";$", "");
-    return cleanString;
+  /** @return vertex name as used in DOT files */
+  private static String toDotId(String vertex) {
+    return vertex.replace("/", "_");
   }
 
-  /** Save directed multigraph as PNG and DOT */
-  @SuppressFBWarnings("DM_DEFAULT_ENCODING")
-  public void saveGraph(File targetDir) throws IOException {
-    DOTExporter<String, LabeledEdge> dotExporter = new DOTExporter<>(v -> v.replace("/", "_"));
+  /**
+   * Streams the multigraph into a DOT file, edges are labeled with their connection type and
+   * weighted with their number of references
+   */
+  void exportDot(File dotFile) throws IOException {
+    DOTExporter<String, LabeledEdge> dotExporter =
+        new DOTExporter<>(CouplingMultiGraphGenerator::toDotId);
     dotExporter.setEdgeAttributeProvider(
         labeledEdge -> {
           Map<String, Attribute> map = new LinkedHashMap<>();
           map.put("label", DefaultAttribute.createAttribute("" + labeledEdge.getConnectionType()));
+          map.put("weight", DefaultAttribute.createAttribute(labeledEdge.getCount()));
           return map;
         });
-    dotExporter.exportGraph(
-        couplingGraph, new FileWriter(targetDir.getAbsolutePath() + "/coupling_graph.dot"));
-
-    try (InputStream dot =
-        new FileInputStream(targetDir.getAbsolutePath() + "/coupling_graph.dot")) {
-      MutableGraph g = new Parser().read(dot);
-
-      // "Why don't you use g.edges() from the library?" you might ask. Because it is not working
-      // for multigraphs is why...
-
-      // Color Edges by their Link Type
-      g.nodes()
-          .forEach(
-              node ->
-                  node.links()
-                      .forEach(
-                          link ->
-                              link.add(
-                                  getLinkColor(
-                                      Objects.requireNonNull(link.attrs().get("label"))
-                                          .toString()))));
-
-      // Attempt to replace label with xlabel to avoid overlapping in labels - makes the output
-      // worse
-      // g.nodes().forEach(node -> node.links().forEach(link ->
-      // link.add(Label.of(link.get("label").toString().toLowerCase()).external())));
-
-      // Remove Label-Text for better viewability
-      g.nodes().forEach(node -> node.links().forEach(link -> link.add(Label.of(""))));
+    try (Writer writer = new BufferedWriter(new FileWriter(dotFile))) {
+      dotExporter.exportGraph(getGraph(), writer);
+    }
+  }
 
-      Graphviz.fromGraph(g)
-          .render(Format.PNG)
-          .toFile(new File(targetDir.getAbsolutePath() + "/coupling_graph.png"));
+  /**
+   * Save coupling graph as PNG, and as DOT if requested. The graph is handed to graphviz in memory,
+   * with one edge per connection type between two classes. Edges are colored by their connection
+   * type, their width grows with the number of references.
+   *
+   * @param exportDot if true, the graph is written to DOT files as well
+   */
+  public void saveGraph(File targetDir, boolean exportDot) throws IOException {
+    MutableGraph g = mutGraph("G").setDirected(true);
+    MutableNode[] nodes = new MutableNode[couplingGraph.getVertexCount()];
+    for (int vertex = 0; vertex < nodes.length; vertex++) {
+      nodes[vertex] = mutNode(toDotId(couplingGraph.getVertex(vertex)));
+      g.add(nodes[vertex]);
+    }
+    // Links carry no label text for better viewability, the color tells the connection type
+    for (int source = 0; source < nodes.length; source++) {
+      for (int coupling = couplingGraph.getFirstCoupling(source);
+          coupling < couplingGraph.getFirstCoupling(source + 1);
+          coupling++) {
+        for (ConnectionType connectionType : ConnectionType.values()) {
+          int count = couplingGraph.getCount(coupling, connectionType);
+          if (count > 0) {
+            nodes[source].addLink(
+                Link.to(nodes[couplingGraph.getTarget(coupling)])
+                    .with(
+                        getLinkColor(connectionType.name()),
+                        Style.lineWidth(1 + Math.log(count) / Math.log(2))));
+          }
+        }
+      }
+    }
+
+    if (exportDot) {
+      exportDot(new File(targetDir, "coupling_graph.dot"));
       Graphviz.fromGraph(g)
           .render(Format.DOT)
-          .toFile(new File(targetDir.getAbsolutePath() + "/colored_coupling_graph.dot"));
+          .toFile(new File(targetDir, "colored_coupling_graph.dot"));
     }
+    Graphviz.fromGraph(g).render(Format.PNG).toFile(new File(targetDir, "coupling_graph.png"));
   }
 
   private Color getLinkColor(String connectionType) {
@@ -256,8 +361,27 @@ public class CouplingMultiGraphGenerator {
     }
   }
 
-  /** @return couplingGraph */
-  public DirectedMultigraph<String, LabeledEdge> getGraph() {
+  /**
+   * @return vertices of the graph that are classes of dependencies whose couplings were added,
+   *     they are part of the results but not of the project
+   */
+  public Set<String> getDependencyClasses() {
+    return Collections.unmodifiableSet(dependencyClasses);
+  }
+
+  /** @return compact coupling graph, the analyses work on it */
+  public CouplingGraph getCouplingGraph() {
     return couplingGraph;
   }
+
+  /**
+   * @return coupling graph as multigraph with one counted edge per connection type between two
+   *     classes, it is only converted on the first call
+   */
+  public DirectedMultigraph<String, LabeledEdge> getGraph() {
+    if (multigraph == null) {
+      multigraph = couplingGraph.toMultigraph();
+    }
+    return multigraph;
+  }
 }
@@ -0,0 +1,224 @@
+package dev.meldau.sca;
+
+import org.jgrapht.Graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Enumerates the elementary cycles within a strongly connected component, i.e. the cycles that
+ * visit no class twice, within hard limits on their length, their number and the time spent.
+ * Unlike Johnson's algorithm it can't blow up on dense components, the cycles are handed out one
+ * by one as they are found and never collected.
+ *
+ * <p>Cycles are found shortest first. Every cycle is reported once, starting at its vertex that
+ * comes first in the component. A depth first search from that vertex only visits vertices that
+ * come later and only follows edges from which the start can still be reached within the length
+ * limit, the distances back to the start are found by a breadth first search beforehand.
+ *
+ * @author Ingo Meldau
+ */
+public class CycleEnumerator {
+
+  /** Receives the cycles as they are found */
+  public interface CycleConsumer {
+    /** @param cycle classes of the cycle, the last one depends on the first one */
+    void accept(List<String> cycle) throws IOException;
+  }
+
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+  /** Search steps between two looks at the clock */
+  private static final int STEPS_PER_CLOCK_CHECK = 1024;
+
+  private final Graph<String, InformativeEdge> GRAPH;
+  private final int MAX_LENGTH;
+  private final int MAX_CYCLES;
+
+  /**
+   * @param maxLength maximum number of classes of a cycle
+   * @param maxCycles maximum number of cycles enumerated per component, at least 1
+   */
+  public CycleEnumerator(Graph<String, InformativeEdge> graph, int maxLength, int maxCycles) {
+    this.GRAPH = graph;
+    this.MAX_LENGTH = maxLength;
+    this.MAX_CYCLES = maxCycles;
+  }
+
+  /**
+   * Enumerates the elementary cycles of a strongly connected component
+   *
+   * @param deadline System.nanoTime() at which the enumeration stops
+   * @return true if all cycles within the length limit were enumerated, false if the number of
+   *     cycles or the time ran out
+   */
+  public boolean enumerate(Collection<String> component, long deadline, CycleConsumer consumer)
+      throws IOException {
+    return new Search(component, deadline, consumer).run();
+  }
+
+  /** State of the enumeration of one component */
+  private final class Search {
+    private final List<String> VERTICES;
+    private final int[] SUCCESSOR_OFFSETS;
+    private final int[] SUCCESSORS;
+    private final int[] PREDECESSOR_OFFSETS;
+    private final int[] PREDECESSORS;
+    private final long DEADLINE;
+    private final CycleConsumer CONSUMER;
+
+    /** Number of edges from a vertex back to the start, through later vertices only */
+    private final int[] distances;
+    private final int[] queue;
+    private final int[] path;
+    private final int[] nextEdges;
+    private final boolean[] onPath;
+    private int cycles;
+    private int steps;
+
+    Search(Collection<String> component, long deadline, CycleConsumer consumer) {
+      this.VERTICES = new ArrayList<>(component);
+      this.DEADLINE = deadline;
+      this.CONSUMER = consumer;
+      int vertexCount = VERTICES.size();
+      Map<String, Integer> vertexIds = new HashMap<>();
+      for (String vertex : VERTICES) {
+        vertexIds.put(vertex, vertexIds.size());
+      }
+      // Edges within the component only, in both directions
+      List<int[]> edges = new ArrayList<>();
+      int[] outDegrees = new int[vertexCount];
+      int[] inDegrees = new int[vertexCount];
+      for (int source = 0; source < vertexCount; source++) {
+        for (InformativeEdge edge : GRAPH.outgoingEdgesOf(VERTICES.get(source))) {
+          Integer target = vertexIds.get(GRAPH.getEdgeTarget(edge));
+          if (target != null) {
+            edges.add(new int[] {source, target});
+            outDegrees[source]++;
+            inDegrees[target]++;
+          }
+        }
+      }
+      int[] edgeSources = new int[edges.size()];
+      int[] edgeTargets = new int[edges.size()];
+      for (int edge = 0; edge < edges.size(); edge++) {
+        edgeSources[edge] = edges.get(edge)[0];
+        edgeTargets[edge] = edges.get(edge)[1];
+      }
+      this.SUCCESSOR_OFFSETS = FeedbackArcSetFinder.toOffsets(outDegrees);
+      this.SUCCESSORS = FeedbackArcSetFinder.group(edgeSources, edgeTargets, SUCCESSOR_OFFSETS);
+      this.PREDECESSOR_OFFSETS = FeedbackArcSetFinder.toOffsets(inDegrees);
+      this.PREDECESSORS =
+          FeedbackArcSetFinder.group(edgeTargets, edgeSources, PREDECESSOR_OFFSETS);
+
+      this.distances = new int[vertexCount];
+      this.queue = new int[vertexCount];
+      this.path = new int[Math.max(MAX_LENGTH, 0)];
+      this.nextEdges = new int[Math.max(MAX_LENGTH, 0)];
+      this.onPath = new boolean[vertexCount];
+    }
+
+    boolean run() throws IOException {
+      for (int length = 2; length <= MAX_LENGTH; length++) {
+        for (int start = 0; start < VERTICES.size(); start++) {
+          if (!findCycles(start, length)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    /** @return false if the number of cycles or the time ran out */
+    private boolean findCycles(int start, int length) throws IOException {
+      findDistances(start, length - 1);
+      path[0] = start;
+      nextEdges[0] = SUCCESSOR_OFFSETS[start];
+      onPath[start] = true;
+      int depth = 0;
+      try {
+        while (depth >= 0) {
+          if (++steps % STEPS_PER_CLOCK_CHECK == 0 && System.nanoTime() >= DEADLINE) {
+            return false;
+          }
+          int vertex = path[depth];
+          if (nextEdges[depth] == SUCCESSOR_OFFSETS[vertex + 1]) {
+            onPath[vertex] = false;
+            depth--;
+            continue;
+          }
+          int successor = SUCCESSORS[nextEdges[depth]++];
+          if (successor == start) {
+            if (depth + 1 == length && !report(depth + 1)) {
+              return false;
+            }
+          } else if (successor > start
+              && !onPath[successor]
+              && distances[successor] != UNREACHABLE
+              && depth + 1 + distances[successor] <= length) {
+            path[++depth] = successor;
+            nextEdges[depth] = SUCCESSOR_OFFSETS[successor];
+            onPath[successor] = true;
+          }
+        }
+        return true;
+      } finally {
+        for (int i = 0; i <= depth; i++) {
+          onPath[path[i]] = false;
+        }
+      }
+    }
+
+    /** Breadth first search from the start against the edges, over later vertices only */
+    private void findDistances(int start, int maxDistance) {
+      Arrays.fill(distances, UNREACHABLE);
+      distances[start] = 0;
+      queue[0] = start;
+      int head = 0;
+      int tail = 1;
+      while (head < tail) {
+        int vertex = queue[head++];
+        if (distances[vertex] == maxDistance) {
+          continue;
+        }
+        for (int i = PREDECESSOR_OFFSETS[vertex]; i < PREDECESSOR_OFFSETS[vertex + 1]; i++) {
+          int predecessor = PREDECESSORS[i];
+          if (predecessor > start && distances[predecessor] == UNREACHABLE) {
+            distances[predecessor] = distances[vertex] + 1;
+            queue[tail++] = predecessor;
+          }
+        }
+      }
+    }
+
+    /** @return false if the maximum number of cycles is reached */
+    private boolean report(int length) throws IOException {
+      List<String> cycle = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        cycle.add(VERTICES.get(path[i]));
+      }
+      CONSUMER.accept(cycle);
+      return ++cycles < MAX_CYCLES;
+    }
+  }
+}
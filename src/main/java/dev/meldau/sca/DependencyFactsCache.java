@@ -0,0 +1,202 @@
+package dev.meldau.sca;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Content-addressed store of the facts of dependency archives. The facts of an archive are stored
+ * in a file named after the SHA-1 checksum of the archive, so they are extracted once and then
+ * shared by all modules and builds using the same dependency, e.g. from a directory below ~/.m2.
+ *
+ * <p>Several builds may use the same directory concurrently. Files are written to a temporary file
+ * first and then moved into place, a reader either sees complete facts or none.
+ *
+ * @author Ingo Meldau
+ */
+public class DependencyFactsCache {
+  private static final int MAGIC = 0x53434446;
+  private static final int VERSION = 2;
+
+  private final File CACHE_DIR;
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /** @param cacheDir directory the facts are stored in, it is created when needed */
+  public DependencyFactsCache(File cacheDir) {
+    this.CACHE_DIR = cacheDir;
+  }
+
+  /**
+   * Returns the facts of all classes of a dependency. Archives are looked up by checksum and only
+   * parsed if no build extracted their facts before. Class directories, e.g. of other modules of
+   * the reactor, change during development and are always parsed.
+   *
+   * @param dependency jar file or class directory
+   * @param parallelism number of parser threads, 0 uses one thread per available processor
+   * @param withLocalVariables if false, debug information is skipped and no local variables are
+   *     collected
+   * @return facts of all classes of the dependency, ordered by the name of their class file
+   */
+  public List<ClassFacts> getFacts(File dependency, int parallelism, boolean withLocalVariables)
+      throws IOException {
+    if (dependency.isDirectory()) {
+      return parse(new ClassFileFinder(dependency, parallelism), parallelism, withLocalVariables);
+    }
+
+    File factsFile = getFactsFile(checksum(dependency), withLocalVariables);
+    List<ClassFacts> facts = load(factsFile);
+    if (facts != null) {
+      hits.incrementAndGet();
+      return facts;
+    }
+    misses.incrementAndGet();
+    facts = parse(new ZipClassFinder(dependency), parallelism, withLocalVariables);
+    save(factsFile, facts);
+    return facts;
+  }
+
+  /** @return number of archives whose facts were found in the cache */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /** @return number of archives that had to be parsed */
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @param checksum SHA-1 checksum of the archive as hex string
+   * @return file holding the facts of the archive, the first two hex digits name a subdirectory to
+   *     keep directories small
+   */
+  File getFactsFile(String checksum, boolean withLocalVariables) {
+    return new File(
+        new File(CACHE_DIR, checksum.substring(0, 2)),
+        checksum + (withLocalVariables ? ".facts" : "-without-local-variables.facts"));
+  }
+
+  /** @return SHA-1 checksum of the content of file as hex string */
+  static String checksum(File file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform has to support SHA-1
+      throw new IllegalStateException(e);
+    }
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = new FileInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    StringBuilder hex = new StringBuilder(40);
+    for (byte b : digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  private static List<ClassFacts> parse(
+      ClassSourceFinder classSourceFinder, int parallelism, boolean withLocalVariables)
+      throws IOException {
+    return new ParallelClassParser(parallelism, ClassModel.getParsingOptions(withLocalVariables))
+        .parseSources(Collections.singletonList(classSourceFinder));
+  }
+
+  /** @return stored facts, null if the file is missing or unreadable */
+  private static List<ClassFacts> load(File factsFile) {
+    if (!factsFile.isFile()) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(factsFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return null;
+      }
+      String[] strings = ClassFactsCache.StringTable.read(in);
+      int size = in.readInt();
+      List<ClassFacts> facts = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        facts.add(ClassFactsCache.readClassFacts(in, strings));
+      }
+      return facts;
+    } catch (IOException | RuntimeException e) {
+      // A broken file only costs parsing the archive again
+      return null;
+    }
+  }
+
+  @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
+  private static void save(File factsFile, List<ClassFacts> facts) throws IOException {
+    //noinspection ResultOfMethodCallIgnored
+    factsFile.getAbsoluteFile().getParentFile().mkdirs();
+
+    ClassFactsCache.StringTable stringTable = new ClassFactsCache.StringTable();
+    for (ClassFacts classFacts : facts) {
+      stringTable.addAll(classFacts);
+    }
+
+    // Every writer uses a temporary file of its own, concurrent builds may extract the same archive
+    File tempFile = File.createTempFile(factsFile.getName(), ".tmp", factsFile.getParentFile());
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        stringTable.write(out);
+        out.writeInt(facts.size());
+        for (ClassFacts classFacts : facts) {
+          ClassFactsCache.writeClassFacts(out, stringTable, classFacts);
+        }
+      }
+      try {
+        Files.move(
+            tempFile.toPath(),
+            factsFile.toPath(),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile.toPath(), factsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tempFile.toPath());
+    }
+  }
+}
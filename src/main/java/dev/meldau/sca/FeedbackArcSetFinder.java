@@ -1,9 +1,22 @@
 package dev.meldau.sca;
 
-import org.jgrapht.Graphs;
 import org.jgrapht.graph.SimpleDirectedGraph;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
 /*
  * Copyright 2020-2021 Ingo Meldau
@@ -26,14 +39,42 @@ import java.util.*;
  * https://citeseerx.ist.psu.edu/viewdoc/download?doi=10.1.1.47.7745&rep=rep1&type=pdf as Proposed
  * by Eades, Lin and Smyth
  *
+ * <p>The linear time variant of the paper is used: the graph is copied into int arrays once, the
+ * in- and out-degrees of the remaining vertices are updated when a vertex is removed and the
+ * vertices are kept in buckets by their class (sink, source) or by outDegree - inDegree. Every
+ * step takes the next vertex from a bucket instead of scanning the graph, so the whole run takes
+ * O(V + E).
+ *
+ * <p>Since cycles only exist within strongly connected components, the set can be found for each
+ * component on its own, see {@link StrongComponentFinder}. The components are independent of each
+ * other and are solved in parallel. Optionally the sets are improved within a time budget, see
+ * {@link FeedbackArcSetImprover}.
+ *
  * @author Ingo Meldau
  */
 public class FeedbackArcSetFinder {
 
   private final SimpleDirectedGraph<String, InformativeEdge> candidateGraph;
+  /** Cost of removing an edge, null if all edges cost the same */
+  private final ToIntFunction<InformativeEdge> edgeWeights;
 
   public FeedbackArcSetFinder(SimpleDirectedGraph<String, InformativeEdge> candidateGraph) {
+    this(candidateGraph, null);
+  }
+
+  /**
+   * Finds a Feedback Arc Set of low total weight instead of few edges, e.g. weighted by the number
+   * of references a dependency consists of. The greedy order takes the vertex with the highest
+   * weighted outDegree - inDegree next, kept in an indexed heap instead of buckets, so the run
+   * takes O((V + E) log V).
+   *
+   * @param edgeWeights cost of removing an edge, at least 1
+   */
+  public FeedbackArcSetFinder(
+      SimpleDirectedGraph<String, InformativeEdge> candidateGraph,
+      ToIntFunction<InformativeEdge> edgeWeights) {
     this.candidateGraph = candidateGraph;
+    this.edgeWeights = edgeWeights;
   }
 
   /**
@@ -44,7 +85,7 @@ public class FeedbackArcSetFinder {
   List<String> getSinks(SimpleDirectedGraph<String, InformativeEdge> workingGraph) {
     List<String> listOfSinks = new ArrayList<>();
     for (String vertex : workingGraph.vertexSet()) {
-      if (Graphs.successorListOf(workingGraph, vertex).isEmpty()) {
+      if (workingGraph.outDegreeOf(vertex) == 0) {
         listOfSinks.add(vertex);
       }
     }
@@ -59,7 +100,7 @@ public class FeedbackArcSetFinder {
   List<String> getSources(SimpleDirectedGraph<String, InformativeEdge> workingGraph) {
     List<String> listOfSources = new ArrayList<>();
     for (String vertex : workingGraph.vertexSet()) {
-      if (Graphs.predecessorListOf(workingGraph, vertex).isEmpty()) {
+      if (workingGraph.inDegreeOf(vertex) == 0) {
         listOfSources.add(vertex);
       }
     }
@@ -76,9 +117,7 @@ public class FeedbackArcSetFinder {
     String bestVertex = null;
     Integer bestScore = null;
     for (String vertex : workingGraph.vertexSet()) {
-      int inDegree = Graphs.predecessorListOf(workingGraph, vertex).size();
-      int outDegree = Graphs.successorListOf(workingGraph, vertex).size();
-      int vertexScore = outDegree - inDegree;
+      int vertexScore = workingGraph.outDegreeOf(vertex) - workingGraph.inDegreeOf(vertex);
       if (bestScore == null || vertexScore > bestScore) {
         bestScore = vertexScore;
         bestVertex = vertex;
@@ -92,64 +131,521 @@ public class FeedbackArcSetFinder {
    *
    * <p>calculates set of edges that are most likely to be removed to break any cyclic dependencies
    *
-   * @return {@code Set<InformativeEdge>}
+   * @return {@code Set<InformativeEdge>} grouped by source, in the iteration order of the graph
    */
   public Set<InformativeEdge> getFeedbackArcSet() {
-    // This will always be OK. The compiler just doesn't feel that way.
-    @SuppressWarnings("unchecked")
-    SimpleDirectedGraph<String, InformativeEdge> workingGraph =
-        (SimpleDirectedGraph<String, InformativeEdge>) this.candidateGraph.clone();
-    LinkedList<String> stringsOne = new LinkedList<>();
-    LinkedList<String> stringsTwo = new LinkedList<>();
-
-    // this while loop repeats until there are no vertices left in the graph
-    while (!workingGraph.vertexSet().isEmpty()) {
-      // all Sinks get removed from the graph and added to stringsTwo until there are no sinks left
-      List<String> listOfSinks;
-      while (!(listOfSinks = this.getSinks(workingGraph)).isEmpty()) {
-        for (String sink : listOfSinks) {
-          stringsTwo.addFirst(sink);
-          workingGraph.removeVertex(sink);
+    return findFeedbackArcSet(new ArrayList<>(candidateGraph.vertexSet()));
+  }
+
+  /**
+   * Get Feedback Arc Set of each strongly connected component, merged
+   *
+   * @param components strongly connected components of the graph with cycles, as found by {@link
+   *     StrongComponentFinder}
+   * @param parallelism number of threads, 0 or less uses one thread per available processor
+   * @return {@code Set<InformativeEdge>} in the order of the components
+   */
+  public Set<InformativeEdge> getFeedbackArcSet(
+      List<? extends Collection<String>> components, int parallelism)
+      throws InterruptedException {
+    return getFeedbackArcSet(components, parallelism, 0);
+  }
+
+  /**
+   * Get Feedback Arc Set of each strongly connected component, merged. With a budget the greedy
+   * result of each component is improved by a {@link FeedbackArcSetImprover} afterwards, the
+   * largest components first, until the budget is used up.
+   *
+   * @param components strongly connected components of the graph with cycles, as found by {@link
+   *     StrongComponentFinder}
+   * @param parallelism number of threads, 0 or less uses one thread per available processor
+   * @param budgetMillis wall clock time to spend on improving the sets, 0 doesn't improve them
+   * @return {@code Set<InformativeEdge>} in the order of the components
+   */
+  public Set<InformativeEdge> getFeedbackArcSet(
+      List<? extends Collection<String>> components, int parallelism, long budgetMillis)
+      throws InterruptedException {
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    List<Subgraph> subgraphs = new ArrayList<>(components.size());
+    for (Collection<String> component : components) {
+      subgraphs.add(new Subgraph(new ArrayList<>(component)));
+    }
+
+    if (threads == 1 || subgraphs.size() < 2) {
+      for (Subgraph subgraph : subgraphs) {
+        subgraph.order();
+      }
+    } else {
+      List<Callable<Void>> tasks = new ArrayList<>(subgraphs.size());
+      for (Subgraph subgraph : subgraphs) {
+        tasks.add(
+            () -> {
+              subgraph.order();
+              return null;
+            });
+      }
+      runAll(tasks, threads);
+    }
+
+    // The portfolio of each component runs on all threads, so the components are improved in turn
+    if (budgetMillis > 0) {
+      // The budget is for the improvement only, the greedy orders above don't count
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+      for (Subgraph subgraph : subgraphs) {
+        if (System.nanoTime() >= deadline) {
+          break;
         }
+        subgraph.improve(threads, deadline);
       }
+    }
+
+    Set<InformativeEdge> feedbackArcSet = new LinkedHashSet<>();
+    for (Subgraph subgraph : subgraphs) {
+      feedbackArcSet.addAll(subgraph.getFeedbackArcSet());
+    }
+    return feedbackArcSet;
+  }
 
-      // All sources get removed from the graph and added to stringsOne until there are no sources
-      // left
-      List<String> listOfSources;
-      while (!(listOfSources = this.getSources(workingGraph)).isEmpty()) {
-        for (String source : listOfSources) {
-          stringsOne.addLast(source);
-          workingGraph.removeVertex(source);
+  /** @return Feedback Arc Set of the subgraph induced by the vertices */
+  private Set<InformativeEdge> findFeedbackArcSet(List<String> vertices) {
+    Subgraph subgraph = new Subgraph(vertices);
+    subgraph.order();
+    return subgraph.getFeedbackArcSet();
+  }
+
+  /** Runs all tasks on a pool of at most threads threads and waits for them */
+  static <T> List<T> runAll(List<Callable<T>> tasks, int threads) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+    try {
+      // The results are in the order of the tasks, not in the order they finished
+      List<T> results = new ArrayList<>(tasks.size());
+      for (Future<T> result : executor.invokeAll(tasks)) {
+        results.add(result.get());
+      }
+      return results;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Orders the vertices the way Eades, Lin and Smyth do, edges pointing to the left in this order
+   * form the Feedback Arc Set
+   *
+   * @param edgeSources source of every edge, vertices are numbered from 0 to vertexCount - 1
+   * @param edgeTargets target of every edge
+   * @param edgeWeights weight of every edge, null if all edges weigh the same
+   * @return position of every vertex in the order
+   */
+  static int[] getPositions(
+      int vertexCount, int[] edgeSources, int[] edgeTargets, int[] edgeWeights) {
+    if (edgeWeights != null) {
+      return getWeightedPositions(vertexCount, edgeSources, edgeTargets, edgeWeights);
+    }
+    int[] outDegrees = new int[vertexCount];
+    int[] inDegrees = new int[vertexCount];
+    for (int edge = 0; edge < edgeSources.length; edge++) {
+      outDegrees[edgeSources[edge]]++;
+      inDegrees[edgeTargets[edge]]++;
+    }
+    int[] successorOffsets = toOffsets(outDegrees);
+    int[] successors = group(edgeSources, edgeTargets, successorOffsets);
+    int[] predecessorOffsets = toOffsets(inDegrees);
+    int[] predecessors = group(edgeTargets, edgeSources, predecessorOffsets);
+
+    DegreeBuckets buckets = new DegreeBuckets(vertexCount);
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      buckets.add(vertex, outDegrees[vertex], inDegrees[vertex]);
+    }
+
+    // Sinks are placed from the right end, sources and the vertices with the highest outDegree -
+    // inDegree from the left end
+    int[] positions = new int[vertexCount];
+    int left = 0;
+    int right = vertexCount - 1;
+    boolean[] removed = new boolean[vertexCount];
+    for (int remaining = vertexCount; remaining > 0; remaining--) {
+      int vertex = buckets.pollSink();
+      if (vertex >= 0) {
+        positions[vertex] = right--;
+      } else {
+        vertex = buckets.pollSource();
+        if (vertex < 0) {
+          vertex = buckets.pollHighestDelta();
+        }
+        positions[vertex] = left++;
+      }
+      removed[vertex] = true;
+      for (int i = successorOffsets[vertex]; i < successorOffsets[vertex + 1]; i++) {
+        int successor = successors[i];
+        if (!removed[successor]) {
+          buckets.remove(successor);
+          buckets.add(successor, outDegrees[successor], --inDegrees[successor]);
         }
       }
+      for (int i = predecessorOffsets[vertex]; i < predecessorOffsets[vertex + 1]; i++) {
+        int predecessor = predecessors[i];
+        if (!removed[predecessor]) {
+          buckets.remove(predecessor);
+          buckets.add(predecessor, --outDegrees[predecessor], inDegrees[predecessor]);
+        }
+      }
+    }
+    return positions;
+  }
+
+  /**
+   * Orders the vertices like {@link #getPositions}, but takes the vertex with the highest weighted
+   * outDegree - inDegree next, so edges of high weight tend to point to the right
+   */
+  private static int[] getWeightedPositions(
+      int vertexCount, int[] edgeSources, int[] edgeTargets, int[] edgeWeights) {
+    int[] outDegrees = new int[vertexCount];
+    int[] inDegrees = new int[vertexCount];
+    long[] deltas = new long[vertexCount];
+    for (int edge = 0; edge < edgeSources.length; edge++) {
+      outDegrees[edgeSources[edge]]++;
+      inDegrees[edgeTargets[edge]]++;
+      deltas[edgeSources[edge]] += edgeWeights[edge];
+      deltas[edgeTargets[edge]] -= edgeWeights[edge];
+    }
+    int[] successorOffsets = toOffsets(outDegrees);
+    int[] successors = group(edgeSources, edgeTargets, successorOffsets);
+    int[] successorWeights = group(edgeSources, edgeWeights, successorOffsets);
+    int[] predecessorOffsets = toOffsets(inDegrees);
+    int[] predecessors = group(edgeTargets, edgeSources, predecessorOffsets);
+    int[] predecessorWeights = group(edgeTargets, edgeWeights, predecessorOffsets);
+
+    // A sink stays a sink and a source only turns into a sink, so every vertex is pushed at most
+    // once per stack. Sources that turned into sinks are skipped when popped.
+    DeltaHeap heap = new DeltaHeap(vertexCount);
+    int[] sinks = new int[vertexCount];
+    int sinkCount = 0;
+    int[] sources = new int[vertexCount];
+    int sourceCount = 0;
+    boolean[] isSink = new boolean[vertexCount];
+    boolean[] removed = new boolean[vertexCount];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      if (outDegrees[vertex] == 0) {
+        isSink[vertex] = true;
+        sinks[sinkCount++] = vertex;
+      } else if (inDegrees[vertex] == 0) {
+        sources[sourceCount++] = vertex;
+      } else {
+        heap.set(vertex, deltas[vertex]);
+      }
+    }
 
-      // Calculates the next vertice to be removed from the graph basd on in-/outdegree ratio
-      if (!workingGraph.vertexSet().isEmpty()) {
-        String vertexToRemove = this.getHighestOutDegreeInDegreeRatio(workingGraph);
-        workingGraph.removeVertex(vertexToRemove);
-        stringsOne.addLast(vertexToRemove);
-      }
-    }
-    // combine the two lists
-    LinkedList<String> stringsFinal = new LinkedList<>();
-    stringsFinal.addAll(stringsOne);
-    stringsFinal.addAll(stringsTwo);
-
-    // Check for "arrows to the left" in the ordered by our stringsFinal List graph and add
-    // those to the list of edges to remove
-    List<String> visitedList = new ArrayList<>();
-    Set<InformativeEdge> listOfEdgesToRemove = new HashSet<>();
-    for (String vertex : stringsFinal) {
-      List<String> targetList = Graphs.successorListOf(this.candidateGraph, vertex);
-      if (!Collections.disjoint(visitedList, targetList)) {
-        for (String target : targetList) {
-          if (visitedList.contains(target)) {
-            listOfEdgesToRemove.add(this.candidateGraph.getEdge(vertex, target));
+    int[] positions = new int[vertexCount];
+    int left = 0;
+    int right = vertexCount - 1;
+    for (int remaining = vertexCount; remaining > 0; remaining--) {
+      int vertex;
+      if (sinkCount > 0) {
+        vertex = sinks[--sinkCount];
+        positions[vertex] = right--;
+      } else {
+        while (sourceCount > 0 && isSink[sources[sourceCount - 1]]) {
+          sourceCount--;
+        }
+        vertex = sourceCount > 0 ? sources[--sourceCount] : heap.poll();
+        positions[vertex] = left++;
+      }
+      removed[vertex] = true;
+      for (int i = successorOffsets[vertex]; i < successorOffsets[vertex + 1]; i++) {
+        int successor = successors[i];
+        if (!removed[successor]) {
+          inDegrees[successor]--;
+          deltas[successor] += successorWeights[i];
+          if (heap.contains(successor)) {
+            if (inDegrees[successor] == 0) {
+              heap.remove(successor);
+              sources[sourceCount++] = successor;
+            } else {
+              heap.set(successor, deltas[successor]);
+            }
           }
         }
       }
-      visitedList.add(vertex);
+      for (int i = predecessorOffsets[vertex]; i < predecessorOffsets[vertex + 1]; i++) {
+        int predecessor = predecessors[i];
+        if (!removed[predecessor]) {
+          outDegrees[predecessor]--;
+          deltas[predecessor] -= predecessorWeights[i];
+          if (outDegrees[predecessor] == 0) {
+            // It is either in the heap or a source
+            if (heap.contains(predecessor)) {
+              heap.remove(predecessor);
+            }
+            isSink[predecessor] = true;
+            sinks[sinkCount++] = predecessor;
+          } else if (heap.contains(predecessor)) {
+            heap.set(predecessor, deltas[predecessor]);
+          }
+        }
+      }
+    }
+    return positions;
+  }
+
+  /** @return start of the entries of each vertex, one more entry than vertices */
+  static int[] toOffsets(int[] degrees) {
+    int[] offsets = new int[degrees.length + 1];
+    for (int vertex = 0; vertex < degrees.length; vertex++) {
+      offsets[vertex + 1] = offsets[vertex] + degrees[vertex];
+    }
+    return offsets;
+  }
+
+  /** @return the values grouped by their key, in the ranges given by offsets */
+  static int[] group(int[] keys, int[] values, int[] offsets) {
+    int[] grouped = new int[values.length];
+    int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+    for (int i = 0; i < keys.length; i++) {
+      grouped[next[keys[i]]++] = values[i];
+    }
+    return grouped;
+  }
+
+  /** Subgraph induced by some vertices of the candidate graph, numbered in their order */
+  private final class Subgraph {
+    private final int VERTEX_COUNT;
+    private final List<InformativeEdge> EDGES = new ArrayList<>();
+    private final int[] EDGE_SOURCES;
+    private final int[] EDGE_TARGETS;
+    private final int[] EDGE_WEIGHTS;
+    private int[] positions;
+
+    Subgraph(List<String> vertices) {
+      VERTEX_COUNT = vertices.size();
+      Map<String, Integer> vertexIds = new HashMap<>();
+      for (String vertex : vertices) {
+        vertexIds.put(vertex, vertexIds.size());
+      }
+      // Only the edges between the given vertices count
+      for (String vertex : vertices) {
+        for (InformativeEdge edge : candidateGraph.outgoingEdgesOf(vertex)) {
+          if (vertexIds.containsKey(candidateGraph.getEdgeTarget(edge))) {
+            EDGES.add(edge);
+          }
+        }
+      }
+      EDGE_SOURCES = new int[EDGES.size()];
+      EDGE_TARGETS = new int[EDGES.size()];
+      for (int edge = 0; edge < EDGES.size(); edge++) {
+        EDGE_SOURCES[edge] = vertexIds.get(candidateGraph.getEdgeSource(EDGES.get(edge)));
+        EDGE_TARGETS[edge] = vertexIds.get(candidateGraph.getEdgeTarget(EDGES.get(edge)));
+      }
+      if (edgeWeights == null) {
+        EDGE_WEIGHTS = null;
+      } else {
+        EDGE_WEIGHTS = new int[EDGES.size()];
+        for (int edge = 0; edge < EDGES.size(); edge++) {
+          EDGE_WEIGHTS[edge] = edgeWeights.applyAsInt(EDGES.get(edge));
+        }
+      }
+    }
+
+    void order() {
+      positions = getPositions(VERTEX_COUNT, EDGE_SOURCES, EDGE_TARGETS, EDGE_WEIGHTS);
+    }
+
+    void improve(int threads, long deadline) throws InterruptedException {
+      positions =
+          new FeedbackArcSetImprover(VERTEX_COUNT, EDGE_SOURCES, EDGE_TARGETS, EDGE_WEIGHTS)
+              .improve(positions, threads, deadline);
+    }
+
+    /** @return edges pointing to the left in the order */
+    Set<InformativeEdge> getFeedbackArcSet() {
+      Set<InformativeEdge> listOfEdgesToRemove = new LinkedHashSet<>();
+      for (int edge = 0; edge < EDGES.size(); edge++) {
+        if (positions[EDGE_SOURCES[edge]] > positions[EDGE_TARGETS[edge]]) {
+          listOfEdgesToRemove.add(EDGES.get(edge));
+        }
+      }
+      return listOfEdgesToRemove;
+    }
+  }
+
+  /**
+   * Vertices in doubly linked buckets: one for sinks, one for sources and one for every value of
+   * outDegree - inDegree of the other vertices. Adding, removing and polling take constant time,
+   * finding the highest delta is amortized over the degree updates, which raise it by at most one.
+   */
+  private static final class DegreeBuckets {
+    private static final int SINKS = 0;
+    private static final int SOURCES = 1;
+    private static final int NONE = -1;
+
+    private final int VERTEX_COUNT;
+    private final int[] HEADS;
+    private final int[] NEXT;
+    private final int[] PREVIOUS;
+    private final int[] BUCKETS;
+    private int highestBucket = NONE;
+
+    DegreeBuckets(int vertexCount) {
+      this.VERTEX_COUNT = vertexCount;
+      // The delta of a vertex with incoming and outgoing edges is in -(n - 2)..(n - 2)
+      this.HEADS = new int[2 * vertexCount + 2];
+      Arrays.fill(HEADS, NONE);
+      this.NEXT = new int[vertexCount];
+      this.PREVIOUS = new int[vertexCount];
+      this.BUCKETS = new int[vertexCount];
+    }
+
+    void add(int vertex, int outDegree, int inDegree) {
+      int bucket;
+      if (outDegree == 0) {
+        bucket = SINKS;
+      } else if (inDegree == 0) {
+        bucket = SOURCES;
+      } else {
+        bucket = outDegree - inDegree + VERTEX_COUNT + 1;
+        highestBucket = Math.max(highestBucket, bucket);
+      }
+      BUCKETS[vertex] = bucket;
+      PREVIOUS[vertex] = NONE;
+      NEXT[vertex] = HEADS[bucket];
+      if (HEADS[bucket] != NONE) {
+        PREVIOUS[HEADS[bucket]] = vertex;
+      }
+      HEADS[bucket] = vertex;
+    }
+
+    void remove(int vertex) {
+      if (PREVIOUS[vertex] == NONE) {
+        HEADS[BUCKETS[vertex]] = NEXT[vertex];
+      } else {
+        NEXT[PREVIOUS[vertex]] = NEXT[vertex];
+      }
+      if (NEXT[vertex] != NONE) {
+        PREVIOUS[NEXT[vertex]] = PREVIOUS[vertex];
+      }
+    }
+
+    /** @return a sink, -1 if there is none */
+    int pollSink() {
+      return poll(SINKS);
+    }
+
+    /** @return a source, -1 if there is none */
+    int pollSource() {
+      return poll(SOURCES);
+    }
+
+    /** @return a vertex with the highest outDegree - inDegree, -1 if there is none */
+    int pollHighestDelta() {
+      while (highestBucket > SOURCES && HEADS[highestBucket] == NONE) {
+        highestBucket--;
+      }
+      return highestBucket > SOURCES ? poll(highestBucket) : NONE;
+    }
+
+    private int poll(int bucket) {
+      int vertex = HEADS[bucket];
+      if (vertex != NONE) {
+        remove(vertex);
+      }
+      return vertex;
+    }
+  }
+
+  /**
+   * Indexed binary max heap of vertices by their weighted outDegree - inDegree. The position of
+   * every vertex in the heap is tracked, so its key can be changed in O(log V). Equal keys are
+   * ordered by vertex to keep the order independent of the history of the heap.
+   */
+  private static final class DeltaHeap {
+    private static final int ABSENT = -1;
+
+    private final long[] KEYS;
+    private final int[] HEAP;
+    private final int[] INDICES;
+    private int size;
+
+    DeltaHeap(int vertexCount) {
+      this.KEYS = new long[vertexCount];
+      this.HEAP = new int[vertexCount];
+      this.INDICES = new int[vertexCount];
+      Arrays.fill(INDICES, ABSENT);
+    }
+
+    boolean contains(int vertex) {
+      return INDICES[vertex] != ABSENT;
+    }
+
+    /** Adds the vertex or changes its key */
+    void set(int vertex, long key) {
+      if (!contains(vertex)) {
+        KEYS[vertex] = key;
+        HEAP[size] = vertex;
+        INDICES[vertex] = size;
+        siftUp(size++);
+      } else {
+        long previous = KEYS[vertex];
+        KEYS[vertex] = key;
+        if (key > previous) {
+          siftUp(INDICES[vertex]);
+        } else {
+          siftDown(INDICES[vertex]);
+        }
+      }
+    }
+
+    /** @return a vertex with the highest key, which is removed */
+    int poll() {
+      int vertex = HEAP[0];
+      remove(vertex);
+      return vertex;
+    }
+
+    void remove(int vertex) {
+      int index = INDICES[vertex];
+      INDICES[vertex] = ABSENT;
+      int last = HEAP[--size];
+      if (last != vertex) {
+        HEAP[index] = last;
+        INDICES[last] = index;
+        siftUp(index);
+        siftDown(INDICES[last]);
+      }
+    }
+
+    private boolean isAbove(int vertex, int other) {
+      return KEYS[vertex] > KEYS[other] || (KEYS[vertex] == KEYS[other] && vertex < other);
+    }
+
+    private void siftUp(int index) {
+      int vertex = HEAP[index];
+      while (index > 0 && isAbove(vertex, HEAP[(index - 1) / 2])) {
+        HEAP[index] = HEAP[(index - 1) / 2];
+        INDICES[HEAP[index]] = index;
+        index = (index - 1) / 2;
+      }
+      HEAP[index] = vertex;
+      INDICES[vertex] = index;
+    }
+
+    private void siftDown(int index) {
+      int vertex = HEAP[index];
+      while (2 * index + 1 < size) {
+        int child = 2 * index + 1;
+        if (child + 1 < size && isAbove(HEAP[child + 1], HEAP[child])) {
+          child++;
+        }
+        if (!isAbove(HEAP[child], vertex)) {
+          break;
+        }
+        HEAP[index] = HEAP[child];
+        INDICES[HEAP[index]] = index;
+        index = child;
+      }
+      HEAP[index] = vertex;
+      INDICES[vertex] = index;
     }
-    return listOfEdgesToRemove;
   }
 }
@@ -0,0 +1,289 @@
+package dev.meldau.sca;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Improves a vertex order, and with it the Feedback Arc Set it implies, within a wall clock budget.
+ *
+ * <p>A portfolio of start orders is refined concurrently: the given order, the greedy order of the
+ * reversed graph and greedy orders of the vertices numbered at random. Each is refined by sifting:
+ * every vertex is moved to the position where it has the fewest edges pointing the wrong way,
+ * pass after pass until a pass finds nothing better or the budget is used up. The order with the
+ * fewest edges pointing to the left wins, on a tie the earlier one of the portfolio. With edge
+ * weights, the edges are weighed instead of counted.
+ *
+ * <p>If the budget isn't used up, the result doesn't depend on timing. Sifting never makes an order
+ * worse, so the result is never worse than the given order.
+ *
+ * @author Ingo Meldau
+ */
+public class FeedbackArcSetImprover {
+
+  /** Number of start orders that are refined, or the number of threads if there are more */
+  private static final int MIN_PORTFOLIO_SIZE = 4;
+
+  private final int VERTEX_COUNT;
+  private final int[] EDGE_SOURCES;
+  private final int[] EDGE_TARGETS;
+  private final int[] EDGE_WEIGHTS;
+  private final int[] SUCCESSOR_OFFSETS;
+  private final int[] SUCCESSORS;
+  private final int[] SUCCESSOR_WEIGHTS;
+  private final int[] PREDECESSOR_OFFSETS;
+  private final int[] PREDECESSORS;
+  private final int[] PREDECESSOR_WEIGHTS;
+
+  /**
+   * @param edgeSources source of every edge, vertices are numbered from 0 to vertexCount - 1
+   * @param edgeTargets target of every edge
+   */
+  public FeedbackArcSetImprover(int vertexCount, int[] edgeSources, int[] edgeTargets) {
+    this(vertexCount, edgeSources, edgeTargets, null);
+  }
+
+  /**
+   * Improves the total weight of the edges pointing to the left instead of their number
+   *
+   * @param edgeSources source of every edge, vertices are numbered from 0 to vertexCount - 1
+   * @param edgeTargets target of every edge
+   * @param edgeWeights weight of every edge, null if all edges weigh the same
+   */
+  public FeedbackArcSetImprover(
+      int vertexCount, int[] edgeSources, int[] edgeTargets, int[] edgeWeights) {
+    this.VERTEX_COUNT = vertexCount;
+    this.EDGE_SOURCES = edgeSources;
+    this.EDGE_TARGETS = edgeTargets;
+    this.EDGE_WEIGHTS = edgeWeights;
+    int[] weights = edgeWeights;
+    if (weights == null) {
+      weights = new int[edgeSources.length];
+      Arrays.fill(weights, 1);
+    }
+    int[] outDegrees = new int[vertexCount];
+    int[] inDegrees = new int[vertexCount];
+    for (int edge = 0; edge < edgeSources.length; edge++) {
+      outDegrees[edgeSources[edge]]++;
+      inDegrees[edgeTargets[edge]]++;
+    }
+    this.SUCCESSOR_OFFSETS = FeedbackArcSetFinder.toOffsets(outDegrees);
+    this.SUCCESSORS = FeedbackArcSetFinder.group(edgeSources, edgeTargets, SUCCESSOR_OFFSETS);
+    this.SUCCESSOR_WEIGHTS = FeedbackArcSetFinder.group(edgeSources, weights, SUCCESSOR_OFFSETS);
+    this.PREDECESSOR_OFFSETS = FeedbackArcSetFinder.toOffsets(inDegrees);
+    this.PREDECESSORS = FeedbackArcSetFinder.group(edgeTargets, edgeSources, PREDECESSOR_OFFSETS);
+    this.PREDECESSOR_WEIGHTS =
+        FeedbackArcSetFinder.group(edgeTargets, weights, PREDECESSOR_OFFSETS);
+  }
+
+  /**
+   * @param positions position of every vertex in the order to improve
+   * @param threads number of start orders refined at the same time
+   * @param deadline System.nanoTime() at which the refinement stops
+   * @return position of every vertex in the best order found
+   */
+  public int[] improve(int[] positions, int threads, long deadline) throws InterruptedException {
+    // A cycle needs at least one edge pointing to the left, without weights that can't be improved
+    if (VERTEX_COUNT < 3 || (EDGE_WEIGHTS == null && countBackArcs(positions) <= 1)) {
+      return positions;
+    }
+    int portfolioSize = Math.max(threads, MIN_PORTFOLIO_SIZE);
+    List<Callable<int[]>> tasks = new ArrayList<>(portfolioSize);
+    for (int start = 0; start < portfolioSize; start++) {
+      int variant = start;
+      tasks.add(() -> sift(invert(getStartPositions(positions, variant)), deadline));
+    }
+    List<int[]> orders =
+        threads == 1 ? runSequentially(tasks) : FeedbackArcSetFinder.runAll(tasks, threads);
+
+    int[] bestPositions = positions;
+    long bestWeight = getBackArcWeight(positions);
+    for (int[] order : orders) {
+      int[] orderPositions = invert(order);
+      long weight = getBackArcWeight(orderPositions);
+      if (weight < bestWeight) {
+        bestPositions = orderPositions;
+        bestWeight = weight;
+      }
+    }
+    return bestPositions;
+  }
+
+  private static List<int[]> runSequentially(List<Callable<int[]>> tasks) {
+    List<int[]> results = new ArrayList<>(tasks.size());
+    for (Callable<int[]> task : tasks) {
+      try {
+        results.add(task.call());
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return results;
+  }
+
+  /** @return positions of the start order of a variant of the portfolio */
+  private int[] getStartPositions(int[] positions, int variant) {
+    if (variant == 0) {
+      return positions;
+    }
+    if (variant == 1) {
+      // Greedy order of the reversed graph, read backwards
+      int[] reversed = FeedbackArcSetFinder.getPositions(
+              VERTEX_COUNT, EDGE_TARGETS, EDGE_SOURCES, EDGE_WEIGHTS);
+      for (int vertex = 0; vertex < VERTEX_COUNT; vertex++) {
+        reversed[vertex] = VERTEX_COUNT - 1 - reversed[vertex];
+      }
+      return reversed;
+    }
+    // Greedy order with the ties broken differently, the vertices are numbered at random
+    int[] permutation = new int[VERTEX_COUNT];
+    for (int vertex = 0; vertex < VERTEX_COUNT; vertex++) {
+      permutation[vertex] = vertex;
+    }
+    Random random = new Random(variant);
+    for (int vertex = VERTEX_COUNT - 1; vertex > 0; vertex--) {
+      int other = random.nextInt(vertex + 1);
+      int swap = permutation[vertex];
+      permutation[vertex] = permutation[other];
+      permutation[other] = swap;
+    }
+    int[] sources = new int[EDGE_SOURCES.length];
+    int[] targets = new int[EDGE_TARGETS.length];
+    for (int edge = 0; edge < EDGE_SOURCES.length; edge++) {
+      sources[edge] = permutation[EDGE_SOURCES[edge]];
+      targets[edge] = permutation[EDGE_TARGETS[edge]];
+    }
+    int[] permuted =
+        FeedbackArcSetFinder.getPositions(VERTEX_COUNT, sources, targets, EDGE_WEIGHTS);
+    int[] startPositions = new int[VERTEX_COUNT];
+    for (int vertex = 0; vertex < VERTEX_COUNT; vertex++) {
+      startPositions[vertex] = permuted[permutation[vertex]];
+    }
+    return startPositions;
+  }
+
+  /**
+   * Moves every vertex to the position with the fewest edges of it pointing the wrong way, until a
+   * pass moves no vertex or the deadline is reached
+   *
+   * @param order vertices in their order, changed in place
+   * @return the order
+   */
+  int[] sift(int[] order, long deadline) {
+    // Weight of the edge to successors, minus the weight of the edge from predecessors of the
+    // vertex being moved, the difference for both
+    int[] weights = new int[VERTEX_COUNT];
+    boolean moved = true;
+    while (moved) {
+      moved = false;
+      for (int vertex = 0; vertex < VERTEX_COUNT; vertex++) {
+        if (System.nanoTime() >= deadline) {
+          return order;
+        }
+        moved |= siftVertex(order, vertex, weights);
+      }
+    }
+    return order;
+  }
+
+  /** @return true if the vertex was moved to a better position */
+  private boolean siftVertex(int[] order, int vertex, int[] weights) {
+    long cost = 0;
+    for (int i = SUCCESSOR_OFFSETS[vertex]; i < SUCCESSOR_OFFSETS[vertex + 1]; i++) {
+      weights[SUCCESSORS[i]] += SUCCESSOR_WEIGHTS[i];
+    }
+    for (int i = PREDECESSOR_OFFSETS[vertex]; i < PREDECESSOR_OFFSETS[vertex + 1]; i++) {
+      weights[PREDECESSORS[i]] -= PREDECESSOR_WEIGHTS[i];
+      cost += PREDECESSOR_WEIGHTS[i];
+    }
+
+    // Sweep the vertex from the front to the back: passing a successor turns its edge into a back
+    // arc, passing a predecessor turns its edge into a forward arc
+    int current = -1;
+    long currentCost = 0;
+    int best = 0;
+    long bestCost = cost;
+    int slot = 0;
+    for (int other : order) {
+      if (other == vertex) {
+        current = slot;
+        currentCost = cost;
+        continue;
+      }
+      cost += weights[other];
+      slot++;
+      if (cost < bestCost) {
+        best = slot;
+        bestCost = cost;
+      }
+    }
+
+    for (int i = SUCCESSOR_OFFSETS[vertex]; i < SUCCESSOR_OFFSETS[vertex + 1]; i++) {
+      weights[SUCCESSORS[i]] = 0;
+    }
+    for (int i = PREDECESSOR_OFFSETS[vertex]; i < PREDECESSOR_OFFSETS[vertex + 1]; i++) {
+      weights[PREDECESSORS[i]] = 0;
+    }
+    if (bestCost >= currentCost) {
+      return false;
+    }
+
+    // Slots count the other vertices, slot s is in front of the s-th other vertex
+    if (best < current) {
+      System.arraycopy(order, best, order, best + 1, current - best);
+    } else {
+      System.arraycopy(order, current + 1, order, current, best - current);
+    }
+    order[best] = vertex;
+    return true;
+  }
+
+  /** @return total weight of the edges pointing to the left in the order */
+  long getBackArcWeight(int[] positions) {
+    long weight = 0;
+    for (int edge = 0; edge < EDGE_SOURCES.length; edge++) {
+      if (positions[EDGE_SOURCES[edge]] > positions[EDGE_TARGETS[edge]]) {
+        weight += EDGE_WEIGHTS == null ? 1 : EDGE_WEIGHTS[edge];
+      }
+    }
+    return weight;
+  }
+
+  /** @return number of edges pointing to the left in the order */
+  int countBackArcs(int[] positions) {
+    int backArcs = 0;
+    for (int edge = 0; edge < EDGE_SOURCES.length; edge++) {
+      if (positions[EDGE_SOURCES[edge]] > positions[EDGE_TARGETS[edge]]) {
+        backArcs++;
+      }
+    }
+    return backArcs;
+  }
+
+  /** @return the vertices in order of their positions, or the positions of the vertices in order */
+  private static int[] invert(int[] permutation) {
+    int[] inverse = new int[permutation.length];
+    for (int i = 0; i < permutation.length; i++) {
+      inverse[permutation[i]] = i;
+    }
+    return inverse;
+  }
+}
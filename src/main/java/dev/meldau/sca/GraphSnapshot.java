@@ -0,0 +1,231 @@
+package dev.meldau.sca;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Compact binary snapshot of a directed graph of classes: a symbol table of the class names, the
+ * adjacency in compressed sparse row form and a count per edge and edge type. Graphs without edge
+ * types, like the dependency graph, have no counts.
+ *
+ * <p>A snapshot carries a key, e.g. the fingerprint of the inputs the graph was built from, so a
+ * stale snapshot is recognized without reading the graph. It is memory-mapped for reading, the
+ * arrays are copied out in bulk. All numbers are big-endian ints:
+ *
+ * <pre>
+ * magic "SCAG", version, key length, UTF-8 key,
+ * vertex count v, edge count e, type count t, per type: name length, UTF-8 name,
+ * v + 1 offsets of the vertex names, the UTF-8 bytes of all vertex names, v vertex flags,
+ * v + 1 offsets of the edges of each vertex, e targets, e * t counts (t per edge)
+ * </pre>
+ *
+ * @author Ingo Meldau
+ */
+public class GraphSnapshot {
+
+  /** Flag of vertices that are classes of dependencies */
+  public static final int DEPENDENCY_CLASS = 1;
+
+  static final int MAGIC = 0x53434147;
+  static final int VERSION = 1;
+
+  private final ByteBuffer BUFFER;
+  private final String KEY;
+  private final int VERTEX_COUNT;
+  private final int EDGE_COUNT;
+  private final List<String> TYPE_NAMES = new ArrayList<>();
+  private final int NAME_OFFSETS;
+  private final int NAMES;
+  private final int FLAGS;
+  private final int OFFSETS;
+  private final int TARGETS;
+  private final int COUNTS;
+
+  private GraphSnapshot(ByteBuffer buffer) throws IOException {
+    this.BUFFER = buffer;
+    if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a graph snapshot");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported graph snapshot version " + buffer.getInt(4));
+    }
+    int keyLength = buffer.getInt(8);
+    KEY = decode(12, keyLength);
+    int position = 12 + keyLength;
+    VERTEX_COUNT = buffer.getInt(position);
+    EDGE_COUNT = buffer.getInt(position + 4);
+    int typeCount = buffer.getInt(position + 8);
+    position += 12;
+    for (int type = 0; type < typeCount; type++) {
+      int nameLength = buffer.getInt(position);
+      TYPE_NAMES.add(decode(position + 4, nameLength));
+      position += 4 + nameLength;
+    }
+    NAME_OFFSETS = position;
+    NAMES = NAME_OFFSETS + (VERTEX_COUNT + 1) * 4;
+    FLAGS = NAMES + buffer.getInt(NAME_OFFSETS + VERTEX_COUNT * 4);
+    OFFSETS = FLAGS + VERTEX_COUNT * 4;
+    TARGETS = OFFSETS + (VERTEX_COUNT + 1) * 4;
+    COUNTS = TARGETS + EDGE_COUNT * 4;
+    if (COUNTS + EDGE_COUNT * typeCount * 4 != buffer.limit()) {
+      throw new IOException("Truncated graph snapshot");
+    }
+  }
+
+  /** Memory-maps a graph snapshot, the mapping stays valid after the file is closed */
+  public static GraphSnapshot open(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return new GraphSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Writes a graph snapshot
+   *
+   * @param vertices names of the vertices
+   * @param flags flags of each vertex, e.g. {@link #DEPENDENCY_CLASS}
+   * @param offsets start of the edges of each vertex in targets, one more entry than vertices
+   * @param targets target vertex of each edge
+   * @param typeNames names of the edge types, empty if the edges have no types
+   * @param counts count per edge and type, typeNames.size() entries per edge
+   */
+  public static void write(
+      File file,
+      String key,
+      List<String> vertices,
+      int[] flags,
+      int[] offsets,
+      int[] targets,
+      List<String> typeNames,
+      int[] counts)
+      throws IOException {
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      writeString(output, key);
+      output.writeInt(vertices.size());
+      output.writeInt(targets.length);
+      output.writeInt(typeNames.size());
+      for (String typeName : typeNames) {
+        writeString(output, typeName);
+      }
+      List<byte[]> names = new ArrayList<>(vertices.size());
+      int nameOffset = 0;
+      output.writeInt(nameOffset);
+      for (String vertex : vertices) {
+        byte[] name = vertex.getBytes(StandardCharsets.UTF_8);
+        names.add(name);
+        nameOffset += name.length;
+        output.writeInt(nameOffset);
+      }
+      for (byte[] name : names) {
+        output.write(name);
+      }
+      writeInts(output, flags);
+      writeInts(output, offsets);
+      writeInts(output, targets);
+      writeInts(output, counts);
+    }
+  }
+
+  private static void writeString(DataOutputStream output, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+    for (int value : values) {
+      output.writeInt(value);
+    }
+  }
+
+  /** @return key the snapshot was written with */
+  public String getKey() {
+    return KEY;
+  }
+
+  /** @return number of vertices */
+  public int getVertexCount() {
+    return VERTEX_COUNT;
+  }
+
+  /** @return name of a vertex */
+  public String getVertex(int vertex) {
+    int start = BUFFER.getInt(NAME_OFFSETS + vertex * 4);
+    return decode(NAMES + start, BUFFER.getInt(NAME_OFFSETS + (vertex + 1) * 4) - start);
+  }
+
+  /** @return flags of a vertex */
+  public int getFlags(int vertex) {
+    return BUFFER.getInt(FLAGS + vertex * 4);
+  }
+
+  /** @return number of edges */
+  public int getEdgeCount() {
+    return EDGE_COUNT;
+  }
+
+  /** @return names of the edge types, empty if the edges have no types */
+  public List<String> getTypeNames() {
+    return Collections.unmodifiableList(TYPE_NAMES);
+  }
+
+  /** @return start of the edges of each vertex, one more entry than vertices */
+  public int[] getOffsets() {
+    return getInts(OFFSETS, VERTEX_COUNT + 1);
+  }
+
+  /** @return target vertex of each edge */
+  public int[] getTargets() {
+    return getInts(TARGETS, EDGE_COUNT);
+  }
+
+  /** @return count per edge and type, getTypeNames().size() entries per edge */
+  public int[] getCounts() {
+    return getInts(COUNTS, EDGE_COUNT * TYPE_NAMES.size());
+  }
+
+  private int[] getInts(int position, int length) {
+    ByteBuffer slice = BUFFER.duplicate();
+    slice.position(position).limit(position + length * 4);
+    IntBuffer ints = slice.slice().asIntBuffer();
+    int[] values = new int[length];
+    ints.get(values);
+    return values;
+  }
+
+  private String decode(int position, int length) {
+    byte[] bytes = new byte[length];
+    BUFFER.duplicate().position(position).get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,103 @@
+package dev.meldau.sca;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Finds the class files of modules in a Java runtime image through the jrt:/ file system
+ *
+ * <p>Without a java home the image of the running JVM is read, otherwise the image found in the
+ * given java home, e.g. a runtime created by jlink. The file system of another image stays open
+ * until the finder is closed, since the found class files are read after the search.
+ *
+ * @author Ingo Meldau
+ */
+public class JrtClassFinder implements ClassSourceFinder, Closeable {
+  private final File JAVA_HOME;
+  private final List<String> MODULES;
+  private final int PARALLELISM;
+  private FileSystem jrtFileSystem;
+
+  /** Finds the class files of modules in the runtime image of the running JVM */
+  public JrtClassFinder(List<String> modules, int parallelism) {
+    this(null, modules, parallelism);
+  }
+
+  /**
+   * @param javaHome java home of the runtime image, null for the image of the running JVM
+   * @param modules names of the modules to analyze, e.g. java.base
+   * @param parallelism number of threads listing directories, 0 or less uses one thread per
+   *     available processor
+   */
+  public JrtClassFinder(File javaHome, List<String> modules, int parallelism) {
+    this.JAVA_HOME = javaHome;
+    this.MODULES = modules;
+    this.PARALLELISM = parallelism;
+  }
+
+  /** Hands every class file of MODULES to classSourceConsumer, module by module */
+  @Override
+  public void findClassSources(Consumer<ClassSource> classSourceConsumer) throws IOException {
+    FileSystem fileSystem = getJrtFileSystem();
+    for (String module : MODULES) {
+      Path modulePath = fileSystem.getPath("/modules", module);
+      if (!Files.isDirectory(modulePath)) {
+        throw new FileNotFoundException("Module " + module + " not found in runtime image.");
+      }
+      new ClassFileFinder(modulePath, PARALLELISM).findClassSources(classSourceConsumer);
+    }
+  }
+
+  /** @return jrt:/ file system of the runtime image, opened on first use */
+  private FileSystem getJrtFileSystem() throws IOException {
+    if (jrtFileSystem == null) {
+      if (JAVA_HOME == null) {
+        jrtFileSystem = FileSystems.getFileSystem(URI.create("jrt:/"));
+      } else {
+        if (!JAVA_HOME.isDirectory()) {
+          throw new FileNotFoundException("Runtime image not existent: " + JAVA_HOME);
+        }
+        jrtFileSystem =
+            FileSystems.newFileSystem(
+                URI.create("jrt:/"),
+                Collections.singletonMap("java.home", JAVA_HOME.getAbsolutePath()));
+      }
+    }
+    return jrtFileSystem;
+  }
+
+  /** Closes the file system of another runtime image, the one of the running JVM stays open */
+  @Override
+  public void close() throws IOException {
+    if (jrtFileSystem != null && JAVA_HOME != null) {
+      jrtFileSystem.close();
+    }
+    jrtFileSystem = null;
+  }
+}
@@ -4,18 +4,19 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import guru.nidi.graphviz.engine.Format;
 import guru.nidi.graphviz.engine.Graphviz;
 import guru.nidi.graphviz.model.MutableGraph;
-import guru.nidi.graphviz.parse.Parser;
+import guru.nidi.graphviz.model.MutableNode;
 import org.jgrapht.Graph;
 import org.jgrapht.alg.connectivity.ConnectivityInspector;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.SimpleGraph;
 import org.jgrapht.nio.dot.DOTExporter;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.tree.*;
 
 import java.io.*;
 import java.util.*;
 
+import static guru.nidi.graphviz.model.Factory.mutGraph;
+import static guru.nidi.graphviz.model.Factory.mutNode;
+
 /*
  * Copyright 2020-2021 Ingo Meldau
  *
@@ -42,12 +43,16 @@ import java.util.*;
 @SuppressFBWarnings("DM_DEFAULT_ENCODING")
 public class LCOMScoreCalculator {
 
-  final ArrayList<File> CLASS_FILES;
+  final ClassModel CLASS_MODEL;
   Map<String, Integer> LCOMScores;
   HashMap<String, Graph<String, DefaultEdge>> LCOMGraph;
 
   public LCOMScoreCalculator(ArrayList<File> classFiles) throws IOException {
-    this.CLASS_FILES = classFiles;
+    this(new ClassModel(classFiles));
+  }
+
+  public LCOMScoreCalculator(ClassModel classModel) {
+    this.CLASS_MODEL = classModel;
     calculateScores();
   }
 
@@ -55,76 +60,61 @@ public class LCOMScoreCalculator {
     return LCOMScores;
   }
 
-  /** Calculate LCOM Scores in all CLASS_FILES and write them to LCOMScores */
-  private void calculateScores() throws IOException {
+  /** Calculate LCOM Scores for all classes in CLASS_MODEL and write them to LCOMScores */
+  private void calculateScores() {
 
     // Create Hashmap to return
     LCOMScores = new HashMap<>();
     LCOMGraph = new HashMap<>();
+    // Class and method names are normalized only once per distinct name
+    SymbolTable symbols = new SymbolTable(SymbolTable.NestedClasses.STRIP);
 
-    for (File classFile : CLASS_FILES) {
+    for (ClassFacts myClassFacts : CLASS_MODEL.getClassFacts()) {
 
       // Maps for which method uses which fields and which method calls which other methods
       Map<String, List<String>> methodUsesMap = new HashMap<>();
       Map<String, List<String>> methodCallsMap = new HashMap<>();
 
-      /*
-       Get Class Object of Main Class in ASM
-       TODO: What about more than one Class in a classfile?!
-      */
-      ClassNode myClassNode;
-      ClassReader myClassReader;
-      try (InputStream classFileIS = new FileInputStream(classFile)) {
-        myClassNode = new ClassNode();
-
-        myClassReader = new ClassReader(classFileIS);
-      }
-      myClassReader.accept(myClassNode, 0);
+      String className = symbols.getName(symbols.intern(myClassFacts.getName()));
 
       //            System.out.println("LCOM Calculation for Class " + myClassNode.name );
       // Initialize jGraphT Graph to Calculate LCOM on
-      LCOMGraph.put(cleanInternalName(myClassNode.name), new SimpleGraph<>(DefaultEdge.class));
+      Graph<String, DefaultEdge> classGraph = new SimpleGraph<>(DefaultEdge.class);
+      LCOMGraph.put(className, classGraph);
 
       // Iterate over Methods in Class
-      for (MethodNode method : myClassNode.methods) {
+      for (ClassFacts.MethodFacts method : myClassFacts.getMethods()) {
         //               System.out.println("Looking at " + cleanInternalName(method.name) + " in "
         // +
         // myClassNode.name);
         // Add vertex for method
-        LCOMGraph.get(cleanInternalName(myClassNode.name))
-            .addVertex(cleanInternalName(method.name));
+        String methodName = symbols.getName(symbols.intern(method.getName()));
+        classGraph.addVertex(methodName);
         // List of fields used in method
         List<String> myMethodFields = new ArrayList<>();
         // List of methods  called in Method
         List<String> myMethodCalls = new ArrayList<>();
-        // Iterate over instructions
-        for (AbstractInsnNode ain : method.instructions.toArray()) {
+        // Iterate over referenced members
+        for (ClassFacts.MemberReference reference : method.getReferences()) {
           /*
-           If ain is instance variable, write to list of fields used Else If it is a method call,
-           write to list of methods called
+           If reference is instance variable, write to list of fields used Else If it is a method
+           call, write to list of methods called
           */
-          if (ain.getType() == AbstractInsnNode.FIELD_INSN) {
-            FieldInsnNode fin = (FieldInsnNode) ain;
-            //                        System.out.println("Registering field " + fin.name + " for
-            // method " + cleanInternalName(method.name));
-            myMethodFields.add(fin.name);
-
-          } else if (ain.getType() == AbstractInsnNode.METHOD_INSN) {
-            MethodInsnNode methCall = (MethodInsnNode) ain;
-            if (methCall.owner.equals(cleanInternalName(myClassNode.name))) { // CHECK!
-              myMethodCalls.add(methCall.name);
-            }
+          if (reference.isField()) {
+            myMethodFields.add(reference.getName());
+
+          } else if (reference.getOwner().equals(className)) { // CHECK!
+            myMethodCalls.add(reference.getName());
           }
         }
         // Add Lists to HashMap for all methods
-        methodUsesMap.put(cleanInternalName(method.name), myMethodFields);
-        methodCallsMap.put(cleanInternalName(method.name), myMethodCalls);
+        methodUsesMap.put(methodName, myMethodFields);
+        methodCallsMap.put(methodName, myMethodCalls);
       }
       // Iterate over found methods and add edges to LCOM graph using mutual used fields
-      for (String method : LCOMGraph.get(cleanInternalName(myClassNode.name)).vertexSet()) {
+      for (String method : classGraph.vertexSet()) {
         for (String usedField : methodUsesMap.get(method)) {
-          for (String secondMethod :
-              LCOMGraph.get(cleanInternalName(myClassNode.name)).vertexSet()) {
+          for (String secondMethod : classGraph.vertexSet()) {
             if (!method.equals(secondMethod)) {
               // System.out.println("Looking for Edges from " + method + " to " + secondMethod + "
               // for field " + usedField);
@@ -132,69 +122,66 @@ public class LCOMScoreCalculator {
                   && methodUsesMap.get(secondMethod).contains(usedField)) {
                 // System.out.println("Adding edge from " + method + "
                 // to " + secondMethod);
-                LCOMGraph.get(cleanInternalName(myClassNode.name)).addEdge(method, secondMethod);
+                classGraph.addEdge(method, secondMethod);
               }
             }
           }
         }
       }
       // Iterate over found methods and add edges to LCOM graph using calls
-      for (String method : LCOMGraph.get(cleanInternalName(myClassNode.name)).vertexSet()) {
+      for (String method : classGraph.vertexSet()) {
         for (String secondMethod : methodCallsMap.get(method)) {
-          if (!secondMethod.equals(method)
-              && LCOMGraph.get(cleanInternalName(myClassNode.name))
-                  .vertexSet()
-                  .contains(secondMethod)) {
-            LCOMGraph.get(cleanInternalName(myClassNode.name)).addEdge(method, secondMethod);
+          if (!secondMethod.equals(method) && classGraph.containsVertex(secondMethod)) {
+            classGraph.addEdge(method, secondMethod);
           }
         }
       }
 
       // Create ConnectivityInspector to find connected components of graph
       ConnectivityInspector<String, DefaultEdge> connectedComponentIns =
-          new ConnectivityInspector<>(LCOMGraph.get(cleanInternalName(myClassNode.name)));
+          new ConnectivityInspector<>(classGraph);
       List<Set<String>> connectedComponents = connectedComponentIns.connectedSets();
 
-      LCOMScores.put(cleanInternalName(myClassNode.name), connectedComponents.size());
+      LCOMScores.put(className, connectedComponents.size());
     }
 
     // TODO:    saveResultJSON(myLCOMScores);
   }
 
-  /** Save LCOM graph as DOT and PNG */
-  public void saveGraph(File targetDir) throws IOException {
+  /** @return name of the LCOM graph files of a class, without extension */
+  static String getGraphFileName(String className) {
+    return className.replace("/", "_") + "_lcom_graph";
+  }
+
+  /**
+   * Save LCOM graphs as PNG, and as DOT if requested
+   *
+   * @param exportDot if true, the graphs are written to DOT files as well
+   */
+  public void saveGraph(File targetDir, boolean exportDot) throws IOException {
     DOTExporter<String, DefaultEdge> dotExporter = new DOTExporter<>(v -> v.replace("/", "_"));
     for (HashMap.Entry<String, Graph<String, DefaultEdge>> graphEntry : LCOMGraph.entrySet()) {
-      dotExporter.exportGraph(
-          graphEntry.getValue(),
-          new FileWriter(
-              targetDir.getAbsolutePath()
-                  + "/"
-                  + graphEntry.getKey().replace("/", "_")
-                  + "_lcom_graph.dot"));
-      try (InputStream dot =
-          new FileInputStream(
-              targetDir.getAbsolutePath()
-                  + "/"
-                  + graphEntry.getKey().replace("/", "_")
-                  + "_lcom_graph.dot")) {
-        MutableGraph g = new Parser().read(dot);
-        Graphviz.fromGraph(g)
-            .render(Format.PNG)
-            .toFile(
-                new File(
-                    targetDir.getAbsolutePath()
-                        + "/"
-                        + graphEntry.getKey().replace("/", "_")
-                        + "_lcom_graph.png"));
+      String fileName = getGraphFileName(graphEntry.getKey());
+      if (exportDot) {
+        try (Writer writer =
+            new BufferedWriter(new FileWriter(new File(targetDir, fileName + ".dot")))) {
+          dotExporter.exportGraph(graphEntry.getValue(), writer);
+        }
       }
-    }
-  }
 
-  private String cleanInternalName(String toClean) {
-    String cleanString = toClean.replaceAll("^\\[*[A-Z]", "");
-    cleanString = cleanString.replaceAll("\\$.*", "");
-    cleanString = cleanString.replaceAll(";$", "");
-    return cleanString;
+      MutableGraph g = mutGraph("G").setStrict(true);
+      Map<String, MutableNode> nodes = new HashMap<>();
+      for (String method : graphEntry.getValue().vertexSet()) {
+        MutableNode node = mutNode(method.replace("/", "_"));
+        nodes.put(method, node);
+        g.add(node);
+      }
+      for (DefaultEdge edge : graphEntry.getValue().edgeSet()) {
+        nodes
+            .get(graphEntry.getValue().getEdgeSource(edge))
+            .addLink(nodes.get(graphEntry.getValue().getEdgeTarget(edge)));
+      }
+      Graphviz.fromGraph(g).render(Format.PNG).toFile(new File(targetDir, fileName + ".png"));
+    }
   }
 }
@@ -23,6 +23,9 @@ import org.jgrapht.graph.DefaultEdge;
  * types of Coupling between classes. In future releases this could be used to calculate better
  * metrics by giving each type a weight.
  *
+ * <p>An edge stands for all references of one type between two classes, their number is the count
+ * of the edge.
+ *
  * @author Ingo Meldau
  */
 public class LabeledEdge extends DefaultEdge {
@@ -30,14 +33,33 @@ public class LabeledEdge extends DefaultEdge {
   /** Stores the type of connection of the Object. */
   private ConnectionType connectionType;
 
+  /** Number of references the edge stands for */
+  private final int count;
+
   /**
    * Constructor for labeled Edges takes the connectionType (enum) as a parameter.
    *
    * @param connectionType Type of connection. Defined in enum.
    */
   public LabeledEdge(ConnectionType connectionType) {
+    this(connectionType, 1);
+  }
+
+  /**
+   * Constructor for labeled Edges standing for several references
+   *
+   * @param connectionType Type of connection. Defined in enum.
+   * @param count number of references of this type between the two classes
+   */
+  public LabeledEdge(ConnectionType connectionType, int count) {
     super();
     this.connectionType = connectionType;
+    this.count = count;
+  }
+
+  /** @return number of references of this type between the two classes */
+  public int getCount() {
+    return count;
   }
 
   /**
@@ -0,0 +1,182 @@
+package dev.meldau.sca;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Compact binary, columnar results file. It consists of a dictionary of class names and named int
+ * columns, e.g. the LCOM score of every class or the classes and values of the coupled pairs.
+ * Columns indexed by class have one value per class in dictionary order, the pair columns refer to
+ * classes by their index in the dictionary.
+ *
+ * <p>The file is memory-mapped for reading, nothing is parsed but the column directory, so other
+ * tools can read the metrics without a JSON parser. All numbers are big-endian ints:
+ *
+ * <pre>
+ * magic "SCAM", version, class count n,
+ * n + 1 offsets of the class names, the UTF-8 bytes of all class names,
+ * column count, per column: name length, UTF-8 name, value count, values
+ * </pre>
+ *
+ * @author Ingo Meldau
+ */
+public class MetricsFile {
+
+  /** LCOM score per class */
+  public static final String LCOM = "lcom";
+  /** CBO score per class */
+  public static final String CBO = "cbo";
+  /** First class of each coupled pair */
+  public static final String PAIR_FIRST = "pairFirst";
+  /** Second class of each coupled pair */
+  public static final String PAIR_SECOND = "pairSecond";
+  /** Pair CBO of each coupled pair */
+  public static final String PAIR_CBO = "pairCBO";
+
+  static final int MAGIC = 0x5343414d;
+  static final int VERSION = 1;
+
+  private final ByteBuffer BUFFER;
+  private final int CLASS_COUNT;
+  private final int NAMES;
+  private final Map<String, IntBuffer> COLUMNS = new HashMap<>();
+
+  private MetricsFile(ByteBuffer buffer) throws IOException {
+    this.BUFFER = buffer;
+    if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a metrics file");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported metrics file version " + buffer.getInt(4));
+    }
+    CLASS_COUNT = buffer.getInt(8);
+    NAMES = 12 + (CLASS_COUNT + 1) * 4;
+    int position = NAMES + getNameOffset(CLASS_COUNT);
+    int columnCount = buffer.getInt(position);
+    position += 4;
+    for (int column = 0; column < columnCount; column++) {
+      int nameLength = buffer.getInt(position);
+      String name = decode(position + 4, nameLength);
+      position += 4 + nameLength;
+      int length = buffer.getInt(position);
+      position += 4;
+      COLUMNS.put(name, slice(position, length * 4).asIntBuffer());
+      position += length * 4;
+    }
+  }
+
+  /** Memory-maps a metrics file, the mapping stays valid after the file is closed */
+  public static MetricsFile open(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return new MetricsFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Writes a metrics file
+   *
+   * @param classNames dictionary of the classes
+   * @param columns columns by name, written in map order
+   */
+  public static void write(File file, List<String> classNames, Map<String, int[]> columns)
+      throws IOException {
+    List<byte[]> names = new ArrayList<>(classNames.size());
+    for (String className : classNames) {
+      names.add(className.getBytes(StandardCharsets.UTF_8));
+    }
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(names.size());
+      int offset = 0;
+      output.writeInt(offset);
+      for (byte[] name : names) {
+        offset += name.length;
+        output.writeInt(offset);
+      }
+      for (byte[] name : names) {
+        output.write(name);
+      }
+      output.writeInt(columns.size());
+      for (Map.Entry<String, int[]> column : columns.entrySet()) {
+        byte[] name = column.getKey().getBytes(StandardCharsets.UTF_8);
+        output.writeInt(name.length);
+        output.write(name);
+        output.writeInt(column.getValue().length);
+        for (int value : column.getValue()) {
+          output.writeInt(value);
+        }
+      }
+    }
+  }
+
+  /** @return number of classes in the dictionary */
+  public int getClassCount() {
+    return CLASS_COUNT;
+  }
+
+  /** @return name of a class of the dictionary */
+  public String getClassName(int index) {
+    int start = getNameOffset(index);
+    return decode(NAMES + start, getNameOffset(index + 1) - start);
+  }
+
+  /** @return true if the file has a column of that name */
+  public boolean hasColumn(String name) {
+    return COLUMNS.containsKey(name);
+  }
+
+  /** @return values of a column, a read-only view of the mapped file */
+  public IntBuffer getColumn(String name) throws IOException {
+    IntBuffer column = COLUMNS.get(name);
+    if (column == null) {
+      throw new IOException("Metrics file has no column " + name);
+    }
+    return column.duplicate();
+  }
+
+  private int getNameOffset(int index) {
+    return BUFFER.getInt(12 + index * 4);
+  }
+
+  private ByteBuffer slice(int position, int length) {
+    ByteBuffer slice = BUFFER.duplicate();
+    slice.position(position).limit(position + length);
+    return slice.slice();
+  }
+
+  private String decode(int position, int length) {
+    byte[] bytes = new byte[length];
+    BUFFER.duplicate().position(position).get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
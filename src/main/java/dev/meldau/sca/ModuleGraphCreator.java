@@ -0,0 +1,98 @@
+package dev.meldau.sca;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.jgrapht.Graph;
+import org.jgrapht.alg.cycle.CycleDetector;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.jgrapht.nio.DefaultAttribute;
+import org.jgrapht.nio.dot.DOTExporter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Create the dependency graph between the modules of a reactor from the dependency graph of their
+ * classes. A module depends on another module if one of its classes depends on a class of the
+ * other module.
+ *
+ * @author Ingo Meldau
+ */
+@SuppressFBWarnings("DM_DEFAULT_ENCODING")
+public class ModuleGraphCreator {
+
+  private final SimpleDirectedGraph<String, InformativeEdge> moduleGraph =
+      new SimpleDirectedGraph<>(InformativeEdge.class);
+
+  /**
+   * @param classGraph dependency graph of the classes of all modules, in jdeps naming
+   * @param moduleClassModels class model of every module by module name
+   */
+  public ModuleGraphCreator(
+      Graph<String, InformativeEdge> classGraph, Map<String, ClassModel> moduleClassModels) {
+    Map<String, String> moduleOfClass = new HashMap<>();
+    for (Map.Entry<String, ClassModel> module : moduleClassModels.entrySet()) {
+      moduleGraph.addVertex(module.getKey());
+      for (ClassFacts classFacts : module.getValue().getClassFacts()) {
+        moduleOfClass.put(toJdepsName(classFacts.getName()), module.getKey());
+      }
+    }
+
+    for (InformativeEdge edge : classGraph.edgeSet()) {
+      String sourceModule = moduleOfClass.get(classGraph.getEdgeSource(edge));
+      String targetModule = moduleOfClass.get(classGraph.getEdgeTarget(edge));
+      // Classes outside the reactor don't belong to any module
+      if (sourceModule != null && targetModule != null && !sourceModule.equals(targetModule)) {
+        moduleGraph.addEdge(sourceModule, targetModule);
+      }
+    }
+  }
+
+  /** @return class name as used by jdeps, e.g. dev.meldau.sca.ClassFacts$MethodFacts */
+  static String toJdepsName(String internalName) {
+    return internalName.replace('/', '.');
+  }
+
+  public SimpleDirectedGraph<String, InformativeEdge> getModuleGraph() {
+    return moduleGraph;
+  }
+
+  public boolean hasCycles() {
+    return new CycleDetector<>(moduleGraph).detectCycles();
+  }
+
+  /**
+   * Save the module graph as DOT file. Unlike the other DOT files it doesn't depend on exportDot,
+   * it is the only form the module graph is written in.
+   */
+  void saveGraph(File dotFile) throws IOException {
+    DOTExporter<String, InformativeEdge> dotExporter =
+        new DOTExporter<>(v -> v.replaceAll("[^A-Za-z0-9_]", "_"));
+    dotExporter.setVertexAttributeProvider(
+        v -> Collections.singletonMap("label", DefaultAttribute.createAttribute(v)));
+    try (Writer dotFileWriter = new BufferedWriter(new FileWriter(dotFile))) {
+      dotExporter.exportGraph(moduleGraph, dotFileWriter);
+    }
+  }
+}
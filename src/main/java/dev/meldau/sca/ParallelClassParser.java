@@ -0,0 +1,262 @@
+package dev.meldau.sca;
+
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Parses class files on several threads.
+ *
+ * <p>Pending files are kept in a priority queue so that the largest files are parsed first, which
+ * keeps a single big class from delaying the end of the parse stage. Class files are parsed while
+ * the {@link ClassSourceFinder}s are still searching for more of them.
+ *
+ * <p>The order of the results never depends on the order in which the threads finished, so the
+ * results are the same as the ones of a sequential parse.
+ *
+ * @author Ingo Meldau
+ */
+public class ParallelClassParser {
+
+  private final int PARALLELISM;
+  private final int PARSING_OPTIONS;
+  private final ClassFactsCache FACTS_CACHE;
+
+  /**
+   * @param parallelism number of parser threads, 0 or less uses one thread per available processor
+   * @param parsingOptions options passed to ClassReader.accept
+   */
+  public ParallelClassParser(int parallelism, int parsingOptions) {
+    this(parallelism, parsingOptions, null);
+  }
+
+  /**
+   * @param parallelism number of parser threads, 0 or less uses one thread per available processor
+   * @param parsingOptions options passed to ClassReader.accept
+   * @param factsCache facts of class files parsed with the same options in earlier runs, only
+   *     class files missing in the cache are parsed. null parses all class files.
+   */
+  public ParallelClassParser(int parallelism, int parsingOptions, ClassFactsCache factsCache) {
+    this.PARALLELISM =
+        parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    this.PARSING_OPTIONS = parsingOptions;
+    this.FACTS_CACHE = factsCache;
+  }
+
+  /**
+   * Parses all class files
+   *
+   * @return facts of all classes, in the order of classFiles
+   */
+  public List<ClassFacts> parse(List<File> classFiles) throws IOException {
+    List<ParseTask> parseTasks = new ArrayList<>(classFiles.size());
+    for (File classFile : classFiles) {
+      parseTasks.add(
+          new ParseTask(new ClassFileFinder.ClassFile(classFile.toPath(), classFile.length()), 0));
+    }
+
+    if (PARALLELISM == 1 || parseTasks.size() < 2) {
+      parseTasks.forEach(ParseTask::run);
+    } else {
+      ThreadPoolExecutor executor = createExecutor();
+      try {
+        // Submit in the order the queue would hand them out anyway to keep early ordering stable
+        List<ParseTask> largestFirst = new ArrayList<>(parseTasks);
+        largestFirst.sort(null);
+        largestFirst.forEach(executor::execute);
+      } finally {
+        awaitTermination(executor);
+      }
+    }
+    return collectResults(parseTasks);
+  }
+
+  /**
+   * Parses all class files found by the classSourceFinders. Parsing starts as soon as the first
+   * class file is found.
+   *
+   * @return facts of all classes, ordered by finder and then by the name of their class file
+   */
+  public List<ClassFacts> parseSources(List<? extends ClassSourceFinder> classSourceFinders)
+      throws IOException {
+    List<ClassFacts> results = new ArrayList<>();
+    for (List<ClassFacts> finderResults : parseSourcesPerFinder(classSourceFinders)) {
+      results.addAll(finderResults);
+    }
+    return results;
+  }
+
+  /**
+   * Parses all class files found by the classSourceFinders. The class files of all finders share
+   * one thread pool, so e.g. the modules of a reactor are parsed concurrently.
+   *
+   * @return facts of the classes of each finder, ordered by the name of their class file
+   */
+  public List<List<ClassFacts>> parseSourcesPerFinder(
+      List<? extends ClassSourceFinder> classSourceFinders) throws IOException {
+    ConcurrentLinkedQueue<ParseTask> foundTasks = new ConcurrentLinkedQueue<>();
+
+    ThreadPoolExecutor executor = PARALLELISM == 1 ? null : createExecutor();
+    try {
+      for (int finderIndex = 0; finderIndex < classSourceFinders.size(); finderIndex++) {
+        int sourceOrder = finderIndex;
+        classSourceFinders
+            .get(finderIndex)
+            .findClassSources(
+                classSource -> {
+                  ParseTask parseTask = new ParseTask(classSource, sourceOrder);
+                  foundTasks.add(parseTask);
+                  if (executor != null) {
+                    executor.execute(parseTask);
+                  }
+                });
+      }
+    } finally {
+      if (executor != null) {
+        awaitTermination(executor);
+      }
+    }
+    if (executor == null) {
+      foundTasks.forEach(ParseTask::run);
+    }
+
+    List<ParseTask> parseTasks = new ArrayList<>(foundTasks);
+    parseTasks.sort(
+        Comparator.comparingInt((ParseTask parseTask) -> parseTask.sourceOrder)
+            .thenComparing(parseTask -> parseTask.classSource.getName()));
+    List<ClassFacts> results = collectResults(parseTasks);
+
+    List<List<ClassFacts>> resultsPerFinder = new ArrayList<>(classSourceFinders.size());
+    int start = 0;
+    for (int finderIndex = 0; finderIndex < classSourceFinders.size(); finderIndex++) {
+      int end = start;
+      while (end < parseTasks.size() && parseTasks.get(end).sourceOrder == finderIndex) {
+        end++;
+      }
+      resultsPerFinder.add(new ArrayList<>(results.subList(start, end)));
+      start = end;
+    }
+    return resultsPerFinder;
+  }
+
+  /** @return thread pool handing out the largest pending class file first */
+  private ThreadPoolExecutor createExecutor() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            PARALLELISM, PARALLELISM, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+    executor.prestartAllCoreThreads();
+    return executor;
+  }
+
+  /** Waits until all submitted class files are parsed */
+  private void awaitTermination(ThreadPoolExecutor executor) throws InterruptedIOException {
+    executor.shutdown();
+    try {
+      //noinspection ResultOfMethodCallIgnored
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while parsing class files.");
+    }
+  }
+
+  /**
+   * Collects the results in the order of parseTasks. The failure of the first file in that order is
+   * rethrown, like a sequential parse would.
+   */
+  private static List<ClassFacts> collectResults(List<ParseTask> parseTasks) throws IOException {
+    List<ClassFacts> results = new ArrayList<>(parseTasks.size());
+    for (ParseTask parseTask : parseTasks) {
+      if (parseTask.failure != null) {
+        throw parseTask.failure;
+      }
+      results.add(parseTask.classFacts);
+    }
+    return results;
+  }
+
+  /** Parses one class file, larger files are ordered first */
+  private class ParseTask implements Runnable, Comparable<ParseTask> {
+    private final ClassSource classSource;
+    private final int sourceOrder;
+    private volatile ClassFacts classFacts;
+    private volatile IOException failure;
+
+    ParseTask(ClassSource classSource, int sourceOrder) {
+      this.classSource = classSource;
+      this.sourceOrder = sourceOrder;
+    }
+
+    @Override
+    public void run() {
+      try {
+        byte[] classBytes = classSource.readBytes();
+        if (FACTS_CACHE == null) {
+          classFacts = ClassModel.extractFacts(new ClassReader(classBytes), PARSING_OPTIONS);
+        } else {
+          ByteBuffer hash = ClassFactsCache.hash(classBytes);
+          ClassFacts cachedFacts = FACTS_CACHE.get(hash);
+          if (cachedFacts == null) {
+            cachedFacts = ClassModel.extractFacts(new ClassReader(classBytes), PARSING_OPTIONS);
+            FACTS_CACHE.put(hash, cachedFacts);
+          }
+          classFacts = cachedFacts;
+        }
+      } catch (IOException e) {
+        failure = e;
+      } catch (RuntimeException e) {
+        // ASM signals broken class files with runtime exceptions
+        failure = new IOException("Couldn't parse class file " + classSource.getName(), e);
+      }
+    }
+
+    @Override
+    public int compareTo(ParseTask other) {
+      int bySize = Long.compare(other.classSource.getSize(), classSource.getSize());
+      if (bySize != 0) {
+        return bySize;
+      }
+      int bySourceOrder = Integer.compare(sourceOrder, other.sourceOrder);
+      return bySourceOrder != 0
+          ? bySourceOrder
+          : classSource.getName().compareTo(other.classSource.getName());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof ParseTask && compareTo((ParseTask) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return classSource.getName().hashCode();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package dev.meldau.sca;
+
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Reads the results files of {@link ResultJSONWriter} record by record. The JSON parser reports
+ * every value as it is read, so no object tree of the file is built. NDJSON files are parsed line
+ * by line.
+ *
+ * @author Ingo Meldau
+ */
+public class ResultJSONReader {
+
+  /** Receives the entries of a results file in file order */
+  public interface EntryConsumer {
+    void accept(String key, Object value) throws IOException;
+  }
+
+  /** Receives the rows of a results file in file order */
+  public interface RowConsumer {
+    void accept(List<Object> row) throws IOException;
+  }
+
+  private ResultJSONReader() {}
+
+  /**
+   * @return results file name in a directory in the form it was written, the JSON file if there is
+   *     none
+   */
+  public static File findFile(File directory, String name) {
+    File ndjsonFile = ResultJSONWriter.getFile(directory, name, true);
+    return ndjsonFile.isFile() ? ndjsonFile : ResultJSONWriter.getFile(directory, name, false);
+  }
+
+  /** @return true if the file is written as NDJSON */
+  public static boolean isNDJSON(File file) {
+    return file.getName().endsWith(ResultJSONWriter.NDJSON_EXTENSION);
+  }
+
+  /** Reads the entries of a results file */
+  public static void readEntries(File file, EntryConsumer entryConsumer)
+      throws IOException, ParseException {
+    try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      readEntries(reader, isNDJSON(file), entryConsumer);
+    }
+  }
+
+  /** Reads the rows of a results file */
+  public static void readRows(File file, RowConsumer rowConsumer)
+      throws IOException, ParseException {
+    try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      readRows(reader, isNDJSON(file), rowConsumer);
+    }
+  }
+
+  /** Reads entries, an object per file or an object per line of NDJSON */
+  public static void readEntries(Reader reader, boolean ndjson, EntryConsumer entryConsumer)
+      throws IOException, ParseException {
+    parse(reader, ndjson, new RecordHandler(entryConsumer, null, 0));
+  }
+
+  /** Reads rows, an array of arrays per file or an array per line of NDJSON */
+  public static void readRows(Reader reader, boolean ndjson, RowConsumer rowConsumer)
+      throws IOException, ParseException {
+    parse(reader, ndjson, new RecordHandler(null, rowConsumer, ndjson ? 1 : 2));
+  }
+
+  private static void parse(Reader reader, boolean ndjson, RecordHandler recordHandler)
+      throws IOException, ParseException {
+    JSONParser jsonParser = new JSONParser();
+    if (!ndjson) {
+      jsonParser.parse(reader, recordHandler);
+      return;
+    }
+    BufferedReader lineReader =
+        reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    String line;
+    while ((line = lineReader.readLine()) != null) {
+      if (!line.isBlank()) {
+        jsonParser.parse(line, recordHandler);
+      }
+    }
+  }
+
+  /** Hands entries at the first level and rows at ROW_DEPTH to the consumers */
+  private static class RecordHandler implements ContentHandler {
+    private final EntryConsumer ENTRY_CONSUMER;
+    private final RowConsumer ROW_CONSUMER;
+    private final int ROW_DEPTH;
+    private int depth;
+    private String key;
+    private List<Object> row;
+
+    RecordHandler(EntryConsumer entryConsumer, RowConsumer rowConsumer, int rowDepth) {
+      this.ENTRY_CONSUMER = entryConsumer;
+      this.ROW_CONSUMER = rowConsumer;
+      this.ROW_DEPTH = rowDepth;
+    }
+
+    @Override
+    public void startJSON() {
+      depth = 0;
+      key = null;
+    }
+
+    @Override
+    public void endJSON() {}
+
+    @Override
+    public boolean startObject() {
+      depth++;
+      return true;
+    }
+
+    @Override
+    public boolean endObject() {
+      depth--;
+      return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+      if (depth == 1) {
+        this.key = key;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+      if (depth == 1) {
+        key = null;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean startArray() {
+      depth++;
+      if (depth == ROW_DEPTH) {
+        row = new ArrayList<>();
+      }
+      return true;
+    }
+
+    @Override
+    public boolean endArray() throws IOException {
+      if (depth == ROW_DEPTH && ROW_CONSUMER != null) {
+        ROW_CONSUMER.accept(row);
+      }
+      depth--;
+      return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) throws IOException {
+      if (depth == 1 && key != null && ENTRY_CONSUMER != null) {
+        ENTRY_CONSUMER.accept(key, value);
+      } else if (depth == ROW_DEPTH && row != null) {
+        row.add(value);
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package dev.meldau.sca;
+
+import org.json.simple.JSONValue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Writes a results file record by record, nothing but a small buffer is held in memory. A results
+ * file either consists of entries, e.g. the score of every class, or of rows, e.g. the pairs of
+ * classes and their pair CBO.
+ *
+ * <p>As JSON the entries form one object and the rows one array of arrays. As NDJSON (newline
+ * delimited JSON, file extension ".ndjson") every line is a record of its own: an object with a
+ * single entry or the array of a row. {@link ResultJSONReader} reads both forms.
+ *
+ * @author Ingo Meldau
+ */
+public class ResultJSONWriter implements Closeable {
+
+  static final String JSON_EXTENSION = ".json";
+  static final String NDJSON_EXTENSION = ".ndjson";
+
+  private final Writer writer;
+  private final boolean NDJSON;
+  private final boolean ENTRIES;
+  private boolean first = true;
+
+  private ResultJSONWriter(File file, boolean ndjson, boolean entries) throws IOException {
+    this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    this.NDJSON = ndjson;
+    this.ENTRIES = entries;
+    if (!ndjson) {
+      writer.write(entries ? '{' : '[');
+    }
+  }
+
+  /**
+   * Opens the results file name in a directory for entries. The file in the other form is deleted,
+   * so a reader never picks up stale results.
+   */
+  public static ResultJSONWriter forEntries(File directory, String name, boolean ndjson)
+      throws IOException {
+    return new ResultJSONWriter(prepareFile(directory, name, ndjson), ndjson, true);
+  }
+
+  /** Opens the results file name in a directory for rows, see {@link #forEntries} */
+  public static ResultJSONWriter forRows(File directory, String name, boolean ndjson)
+      throws IOException {
+    return new ResultJSONWriter(prepareFile(directory, name, ndjson), ndjson, false);
+  }
+
+  /** @return results file name in a directory, name is given without extension */
+  public static File getFile(File directory, String name, boolean ndjson) {
+    return new File(directory, name + (ndjson ? NDJSON_EXTENSION : JSON_EXTENSION));
+  }
+
+  private static File prepareFile(File directory, String name, boolean ndjson) throws IOException {
+    Files.deleteIfExists(getFile(directory, name, !ndjson).toPath());
+    return getFile(directory, name, ndjson);
+  }
+
+  /** Writes one entry, the value is a string or a number */
+  public void writeEntry(String key, Object value) throws IOException {
+    if (!ENTRIES) {
+      throw new IllegalStateException("Results file consists of rows");
+    }
+    startRecord();
+    if (NDJSON) {
+      writer.write('{');
+    }
+    writer.write('"');
+    writer.write(JSONValue.escape(key));
+    writer.write("\":");
+    JSONValue.writeJSONString(value, writer);
+    if (NDJSON) {
+      writer.write("}\n");
+    }
+  }
+
+  /** Writes one row of strings and numbers */
+  public void writeRow(List<?> row) throws IOException {
+    if (ENTRIES) {
+      throw new IllegalStateException("Results file consists of entries");
+    }
+    startRecord();
+    JSONValue.writeJSONString(row, writer);
+    if (NDJSON) {
+      writer.write('\n');
+    }
+  }
+
+  private void startRecord() throws IOException {
+    if (!first && !NDJSON) {
+      writer.write(',');
+    }
+    first = false;
+  }
+
+  /** Finishes the results file */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (!NDJSON) {
+        writer.write(ENTRIES ? '}' : ']');
+      }
+    } finally {
+      writer.close();
+    }
+  }
+}
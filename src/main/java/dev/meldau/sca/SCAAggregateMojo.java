@@ -0,0 +1,251 @@
+package dev.meldau.sca;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.jgrapht.graph.SimpleDirectedGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * This Mojo analyses all modules of a multi-module build together. The classes of all modules are
+ * parsed concurrently in one pass and combined into one class model, so coupling and cyclic
+ * dependencies between modules become visible. Cycles are reported between classes and between
+ * modules.
+ *
+ * @author Ingo Meldau
+ */
+@Mojo(
+    name = "sca-aggregate",
+    aggregator = true,
+    defaultPhase = LifecyclePhase.VERIFY,
+    requiresDependencyResolution = ResolutionScope.COMPILE,
+    threadSafe = true)
+public class SCAAggregateMojo extends AbstractSCAMojo {
+  /** All projects of the reactor */
+  @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+  List<MavenProject> reactorProjects;
+  /** If this parameter is true, the build will break on cyclic dependencies */
+  @Parameter(name = "breakOnCycle", required = true, defaultValue = "false")
+  boolean breakOnCycle;
+  /** break threshold for LCOM */
+  @Parameter(name = "breakOnLCOM", required = true, defaultValue = "0")
+  int breakOnLCOM;
+  /** break threshold for CBO */
+  @Parameter(name = "breakOnCBO", required = true, defaultValue = "0")
+  int breakOnCBO;
+  /** break threshold for Pair-CBO */
+  @Parameter(name = "breakOnPairCBO", required = true, defaultValue = "0")
+  int breakOnPairCBO;
+  /** If this parameter is false, local variables do not count as coupling */
+  @Parameter(name = "localVariableCoupling", defaultValue = "true")
+  boolean localVariableCoupling;
+
+  /**
+   * Runs all analyses on the combined class model of all modules. The results are written to the
+   * sca output directory of the project the build was started in. A failing threshold does not stop
+   * the remaining analyses, all failures are reported together at the end.
+   */
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    createDirectories(outputDirectory, scaOutputDir);
+
+    // Modules without classes, e.g. the parent pom, are not analysed
+    Map<String, File> moduleClassDirs = new LinkedHashMap<>();
+    for (MavenProject reactorProject : reactorProjects) {
+      File classDir = new File(reactorProject.getBuild().getOutputDirectory());
+      if (classDir.isDirectory()) {
+        String moduleName = reactorProject.getArtifactId();
+        if (moduleClassDirs.containsKey(moduleName)) {
+          moduleName = reactorProject.getGroupId() + ":" + moduleName;
+        }
+        moduleClassDirs.put(moduleName, classDir);
+      }
+    }
+    if (moduleClassDirs.isEmpty()) {
+      getLog().info("No module with class files found.");
+      return;
+    }
+    getLog().info("Analysing " + moduleClassDirs.size() + " modules.");
+
+    UpToDateCheck upToDateCheck;
+    try {
+      upToDateCheck =
+          createUpToDateCheck("sca-aggregate")
+              .addFiles(moduleClassDirs.values())
+              .addValue("modules", moduleClassDirs.keySet())
+              .addValue("breakOnCycle", breakOnCycle)
+              .addValue("breakOnLCOM", breakOnLCOM)
+              .addValue("breakOnCBO", breakOnCBO)
+              .addValue("breakOnPairCBO", breakOnPairCBO)
+              .addValue("localVariableCoupling", localVariableCoupling);
+    } catch (IOException e) {
+      e.printStackTrace();
+      throw new MojoExecutionException("Couldn't fingerprint the classes of the modules.");
+    }
+    if (isUpToDate(upToDateCheck)) {
+      return;
+    }
+
+    List<ClassSourceFinder> classSourceFinders = new ArrayList<>();
+    for (File classDir : moduleClassDirs.values()) {
+      classSourceFinders.add(new ClassFileFinder(classDir, parallelism));
+    }
+    List<ClassModel> classModels = readClassModels(classSourceFinders, localVariableCoupling);
+    Map<String, ClassModel> moduleClassModels = new LinkedHashMap<>();
+    int moduleIndex = 0;
+    for (String moduleName : moduleClassDirs.keySet()) {
+      moduleClassModels.put(moduleName, classModels.get(moduleIndex++));
+    }
+    ClassModel classModel =
+        readDependencies(ClassModel.combine(classModels), localVariableCoupling);
+    List<String> failures = new ArrayList<>();
+
+    SCACohesionMojo cohesionMojo = new SCACohesionMojo();
+    cohesionMojo.inheritConfiguration(this);
+    cohesionMojo.breakOnLCOM = breakOnLCOM;
+    try {
+      cohesionMojo.analyze(classModel);
+    } catch (MojoFailureException e) {
+      failures.add(e.getMessage());
+    }
+
+    SCACouplingMojo couplingMojo = new SCACouplingMojo();
+    couplingMojo.inheritConfiguration(this);
+    couplingMojo.breakOnCBO = breakOnCBO;
+    couplingMojo.breakOnPairCBO = breakOnPairCBO;
+    couplingMojo.localVariableCoupling = localVariableCoupling;
+    try {
+      // No snapshot, its key only covers the inputs of this project, not those of the modules
+      couplingMojo.analyze(classModel, null);
+    } catch (MojoFailureException e) {
+      failures.add(e.getMessage());
+    }
+
+    SCACyclesMojo cyclesMojo = new SCACyclesMojo();
+    cyclesMojo.inheritConfiguration(this);
+    cyclesMojo.breakOnCycle = breakOnCycle;
+    cyclesMojo.localVariableCoupling = localVariableCoupling;
+    ClassGraphCreator classGraphCreator = cyclesMojo.createClassGraph(classModel);
+    try {
+      cyclesMojo.analyze(classGraphCreator);
+    } catch (MojoFailureException e) {
+      failures.add(e.getMessage());
+    }
+    try {
+      analyzeModuleCycles(cyclesMojo, classGraphCreator, moduleClassModels);
+    } catch (MojoFailureException e) {
+      failures.add(e.getMessage());
+    }
+
+    if (!failures.isEmpty()) {
+      throw new MojoFailureException(String.join(" ", failures));
+    }
+    upToDateCheck.record(getLog());
+  }
+
+  /**
+   * @return dependencies of all modules, modules of the reactor are analysed themselves and are
+   *     left out
+   */
+  @Override
+  List<File> getDependencyFiles() {
+    Set<String> reactorArtifacts = new HashSet<>();
+    for (MavenProject reactorProject : reactorProjects) {
+      reactorArtifacts.add(reactorProject.getGroupId() + ":" + reactorProject.getArtifactId());
+    }
+    Set<File> dependencyFiles = new LinkedHashSet<>();
+    for (MavenProject reactorProject : reactorProjects) {
+      for (Artifact artifact : reactorProject.getArtifacts()) {
+        if (artifact.getFile() != null
+            && artifact.getArtifactHandler().isAddedToClasspath()
+            && !reactorArtifacts.contains(artifact.getGroupId() + ":" + artifact.getArtifactId())) {
+          dependencyFiles.add(artifact.getFile());
+        }
+      }
+    }
+    return new ArrayList<>(dependencyFiles);
+  }
+
+  /** @return outputs of all combined goals */
+  @Override
+  List<File> getOutputs() {
+    List<File> outputs = new ArrayList<>();
+    for (AbstractSCAMojo mojo :
+        new AbstractSCAMojo[] {new SCACohesionMojo(), new SCACouplingMojo(), new SCACyclesMojo()}) {
+      mojo.inheritConfiguration(this);
+      mojo.graphSnapshots = false;
+      outputs.addAll(mojo.getOutputs());
+    }
+    return outputs;
+  }
+
+  /** Find cyclic dependencies between the modules of the reactor */
+  void analyzeModuleCycles(
+      SCACyclesMojo cyclesMojo,
+      ClassGraphCreator classGraphCreator,
+      Map<String, ClassModel> moduleClassModels)
+      throws MojoFailureException, MojoExecutionException {
+    ModuleGraphCreator moduleGraphCreator =
+        new ModuleGraphCreator(classGraphCreator.getCycleGraph(), moduleClassModels);
+    try {
+      moduleGraphCreator.saveGraph(new File(cyclesMojo.getScaCyclesOutputDir(), "modules.dot"));
+    } catch (IOException e) {
+      e.printStackTrace();
+      throw new MojoExecutionException("Couldn't write module graph DOT-File");
+    }
+
+    if (moduleGraphCreator.hasCycles()) {
+      getLog().info("Found cycles between modules finding solution.");
+      SimpleDirectedGraph<String, InformativeEdge> moduleGraph =
+          moduleGraphCreator.getModuleGraph();
+      Set<InformativeEdge> feedbackArcSet;
+      try {
+        feedbackArcSet =
+            new FeedbackArcSetFinder(moduleGraph)
+                .getFeedbackArcSet(
+                    new StrongComponentFinder(moduleGraph).getCyclicComponents(),
+                    parallelism,
+                    feedbackArcSetBudgetMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MojoExecutionException("Interrupted while finding the Feedback Arc Set.");
+      }
+      cyclesMojo.saveFeedbackArcSetJSON(feedbackArcSet, "module-feedback-arc-set");
+      getLog()
+          .info("This is the likeliest Set of module dependencies to remove: " + feedbackArcSet);
+      if (breakOnCycle) {
+        throw new MojoFailureException("There is a cycle dependency between modules. Aborting.");
+      }
+    }
+  }
+}
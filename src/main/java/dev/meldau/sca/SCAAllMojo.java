@@ -0,0 +1,129 @@
+package dev.meldau.sca;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * This Mojo runs the cohesion, coupling and cycles analyses in one go. The class files are read
+ * only once and the resulting class model is shared by all analyses.
+ *
+ * @author Ingo Meldau
+ */
+@Mojo(
+    name = "sca-all",
+    defaultPhase = LifecyclePhase.TEST,
+    requiresDependencyResolution = ResolutionScope.COMPILE,
+    threadSafe = true)
+public class SCAAllMojo extends AbstractSCAMojo {
+  /** If this parameter is true, the build will break on cyclic dependencies */
+  @Parameter(name = "breakOnCycle", required = true, defaultValue = "false")
+  boolean breakOnCycle;
+  /** break threshold for LCOM */
+  @Parameter(name = "breakOnLCOM", required = true, defaultValue = "0")
+  int breakOnLCOM;
+  /** break threshold for CBO */
+  @Parameter(name = "breakOnCBO", required = true, defaultValue = "0")
+  int breakOnCBO;
+  /** break threshold for Pair-CBO */
+  @Parameter(name = "breakOnPairCBO", required = true, defaultValue = "0")
+  int breakOnPairCBO;
+  /** If this parameter is false, local variables do not count as coupling */
+  @Parameter(name = "localVariableCoupling", defaultValue = "true")
+  boolean localVariableCoupling;
+
+  /**
+   * Runs all analyses on one shared class model. A failing threshold does not stop the remaining
+   * analyses, all failures are reported together at the end.
+   */
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    createDirectories(outputDirectory, scaOutputDir);
+
+    UpToDateCheck upToDateCheck =
+        createUpToDateCheck("sca-all")
+            .addValue("breakOnCycle", breakOnCycle)
+            .addValue("breakOnLCOM", breakOnLCOM)
+            .addValue("breakOnCBO", breakOnCBO)
+            .addValue("breakOnPairCBO", breakOnPairCBO)
+            .addValue("localVariableCoupling", localVariableCoupling);
+    if (isUpToDate(upToDateCheck)) {
+      return;
+    }
+
+    // Dependencies are used by the coupling and cycles analyses, cohesion ignores them
+    ClassModel classModel =
+        readDependencies(readClassModel(localVariableCoupling), localVariableCoupling);
+    List<String> failures = new ArrayList<>();
+
+    SCACohesionMojo cohesionMojo = new SCACohesionMojo();
+    cohesionMojo.inheritConfiguration(this);
+    cohesionMojo.breakOnLCOM = breakOnLCOM;
+    try {
+      cohesionMojo.analyze(classModel);
+    } catch (MojoFailureException e) {
+      failures.add(e.getMessage());
+    }
+
+    SCACouplingMojo couplingMojo = new SCACouplingMojo();
+    couplingMojo.inheritConfiguration(this);
+    couplingMojo.breakOnCBO = breakOnCBO;
+    couplingMojo.breakOnPairCBO = breakOnPairCBO;
+    couplingMojo.localVariableCoupling = localVariableCoupling;
+    try {
+      couplingMojo.analyze(classModel);
+    } catch (MojoFailureException e) {
+      failures.add(e.getMessage());
+    }
+
+    SCACyclesMojo cyclesMojo = new SCACyclesMojo();
+    cyclesMojo.inheritConfiguration(this);
+    cyclesMojo.breakOnCycle = breakOnCycle;
+    cyclesMojo.localVariableCoupling = localVariableCoupling;
+    try {
+      cyclesMojo.analyze(classModel);
+    } catch (MojoFailureException e) {
+      failures.add(e.getMessage());
+    }
+
+    if (!failures.isEmpty()) {
+      throw new MojoFailureException(String.join(" ", failures));
+    }
+    upToDateCheck.record(getLog());
+  }
+
+  /** @return outputs of all combined goals */
+  @Override
+  List<File> getOutputs() {
+    List<File> outputs = new ArrayList<>();
+    for (AbstractSCAMojo mojo :
+        new AbstractSCAMojo[] {new SCACohesionMojo(), new SCACouplingMojo(), new SCACyclesMojo()}) {
+      mojo.inheritConfiguration(this);
+      outputs.addAll(mojo.getOutputs());
+    }
+    return outputs;
+  }
+}
@@ -1,19 +1,19 @@
 package dev.meldau.sca;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.json.simple.JSONValue;
+import org.json.simple.parser.ParseException;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static java.util.Collections.max;
@@ -41,7 +41,7 @@ import static java.util.Collections.max;
  */
 @SuppressFBWarnings("DM_DEFAULT_ENCODING")
 @Mojo(name = "sca-cohesion", defaultPhase = LifecyclePhase.TEST, threadSafe = true)
-public class SCACohesionMojo extends AbstractMojo {
+public class SCACohesionMojo extends AbstractSCAMojo {
 
   Log myLog;
   /**
@@ -49,64 +49,93 @@ public class SCACohesionMojo extends AbstractMojo {
    */
   @Parameter(name = "breakOnLCOM", required = true, defaultValue = "0")
   int breakOnLCOM;
-  /** Location of output directory */
-  @Parameter(property = "project.build.directory", required = true, readonly = true)
-  private File outputDirectory;
-  /** sca output Directory */
-  @Parameter(
-      name = "scaOutputDir",
-      required = true,
-      defaultValue = "${project.build.directory}/sca-output")
-  private File scaOutputDir;
 
   /** Save cohesion results as JSON */
   void saveResultJSON(Map<String, Integer> myLcomScores) throws MojoExecutionException {
-    String myPath = scaOutputDir.getAbsolutePath() + "/sca-cohesion-results.json";
-    myLog.info("Writing Results JSON: " + myPath);
+    myLog.info(
+        "Writing Results JSON: "
+            + ResultJSONWriter.getFile(scaOutputDir, "sca-cohesion-results", ndjson));
 
-    try (FileWriter resultsFile = new FileWriter(myPath)) {
-      resultsFile.write(JSONValue.toJSONString(myLcomScores));
-      resultsFile.flush();
+    try (ResultJSONWriter resultsFile =
+        ResultJSONWriter.forEntries(scaOutputDir, "sca-cohesion-results", ndjson)) {
+      for (Map.Entry<String, Integer> lcomScore : myLcomScores.entrySet()) {
+        resultsFile.writeEntry(lcomScore.getKey(), lcomScore.getValue());
+      }
     } catch (IOException exception) {
       throw new MojoExecutionException("Couldn't write result JSON-File");
     }
   }
 
   /** Calculates LCOM scores for all classes and saves the results as JSON */
-  @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
-    /* Maven Log Variable */
-    myLog = this.getLog();
-
     // Create Directories if they don't exist
-    for (File f : new File[] {outputDirectory, scaOutputDir}) {
-      if (!f.exists()) {
-        //noinspection ResultOfMethodCallIgnored
-        f.mkdir();
+    createDirectories(outputDirectory, scaOutputDir);
+
+    UpToDateCheck upToDateCheck =
+        createUpToDateCheck("sca-cohesion").addValue("breakOnLCOM", breakOnLCOM);
+    if (isUpToDate(upToDateCheck)) {
+      return;
+    }
+    // LCOM only looks at field accesses and method calls, local variables are not needed
+    analyze(readClassModel(false));
+    upToDateCheck.record(getLog());
+  }
+
+  @Override
+  List<File> getOutputs() {
+    List<File> outputs = new ArrayList<>();
+    File resultsFile = ResultJSONWriter.getFile(scaOutputDir, "sca-cohesion-results", ndjson);
+    outputs.add(resultsFile);
+    if (binaryResults) {
+      outputs.add(new File(scaOutputDir, "sca-cohesion-results.bin"));
+    }
+    // The LCOM graphs are rendered for the classes of the results, the report links them
+    if (resultsFile.isFile()) {
+      try {
+        ResultJSONReader.readEntries(
+            resultsFile,
+            (className, lcomScore) ->
+                outputs.add(
+                    new File(
+                        scaOutputDir,
+                        LCOMScoreCalculator.getGraphFileName(className) + ".png")));
+      } catch (ParseException | IOException e) {
+        // An unreadable results file doesn't match the recorded fingerprint anyway
+        getLog().debug("Couldn't read the LCOM graphs from " + resultsFile, e);
       }
     }
+    return outputs;
+  }
+
+  /** Calculates LCOM scores for all classes of the class model and saves the results as JSON */
+  void analyze(ClassModel classModel) throws MojoExecutionException, MojoFailureException {
+    /* Maven Log Variable */
+    myLog = this.getLog();
 
     /* Result Variable */
     Map<String, Integer> lcomScores;
 
-    ClassFileFinder classFileFinder =
-        new ClassFileFinder(new File(outputDirectory.getAbsolutePath() + "/classes"));
+    LCOMScoreCalculator lcomScoreCalculator = new LCOMScoreCalculator(classModel);
+    lcomScores = lcomScoreCalculator.getLCOMScores();
     try {
-      LCOMScoreCalculator lcomScoreCalculator =
-          new LCOMScoreCalculator(classFileFinder.getClassFiles());
-      lcomScores = lcomScoreCalculator.getLCOMScores();
-      lcomScoreCalculator.saveGraph(scaOutputDir);
-    } catch (FileNotFoundException e) {
-      e.printStackTrace();
-      throw new MojoExecutionException("Output directory does not exist.");
+      lcomScoreCalculator.saveGraph(scaOutputDir, exportDot);
     } catch (IOException e) {
       e.printStackTrace();
-      throw new MojoExecutionException("File not found when trying to gather class files.");
+      throw new MojoExecutionException("Couldn't write LCOM graphs.");
     }
 
     // Save cohesion output to JSON-file for reporting plugin
     saveResultJSON(lcomScores);
+    List<String> classNames = new ArrayList<>(lcomScores.keySet());
+    int[] lcomColumn = new int[classNames.size()];
+    for (int index = 0; index < lcomColumn.length; index++) {
+      lcomColumn[index] = lcomScores.get(classNames.get(index));
+    }
+    saveMetricsFile(
+        "sca-cohesion-results.bin",
+        classNames,
+        Collections.singletonMap(MetricsFile.LCOM, lcomColumn));
 
     myLog.info("LCOM Scores: " + lcomScores);
 
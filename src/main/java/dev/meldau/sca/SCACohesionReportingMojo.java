@@ -2,6 +2,7 @@ package dev.meldau.sca;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -9,18 +10,14 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.reporting.AbstractMavenReport;
 import org.apache.maven.reporting.MavenReportException;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.IntBuffer;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Objects;
 
 /*
  * Copyright 2020-2021 Ingo Meldau
@@ -61,6 +58,12 @@ public class SCACohesionReportingMojo extends AbstractMavenReport {
       required = true,
       defaultValue = "${project.build.directory}/sca-output")
   private File scaOutputDir;
+  /**
+   * If this parameter is true, the report is skipped when run on its own and neither the analysis
+   * results nor the generated page changed since its last run
+   */
+  @Parameter(name = "incremental", defaultValue = "true")
+  private boolean incremental;
 
   /**
    * Get report output directory
@@ -74,6 +77,33 @@ public class SCACohesionReportingMojo extends AbstractMavenReport {
     return outputDirectory.toString();
   }
 
+  /**
+   * Generates the report when run on its own, e.g. from the command line. The site plugin creates
+   * reports without calling this method.
+   */
+  @Override
+  public void execute() throws MojoExecutionException {
+    UpToDateCheck upToDateCheck =
+        UpToDateCheck.forReport(
+            scaOutputDir,
+            getReportOutputDirectory(),
+            getOutputName(),
+            Collections.singletonList(getResultsFile()));
+    if (incremental && upToDateCheck.isUpToDate(getLog())) {
+      return;
+    }
+    super.execute();
+    upToDateCheck.record(getLog());
+  }
+
+  /** @return the metrics file of the previous cohesion run, the JSON results if there is none */
+  private File getResultsFile() {
+    File metricsFile = new File(scaOutputDir, "sca-cohesion-results.bin");
+    return metricsFile.isFile()
+        ? metricsFile
+        : ResultJSONReader.findFile(scaOutputDir, "sca-cohesion-results");
+  }
+
   /** Build Cohesion Report with Maven Site Plugin */
   @Override
   protected void executeReport(Locale locale) throws MavenReportException {
@@ -92,22 +122,13 @@ public class SCACohesionReportingMojo extends AbstractMavenReport {
       }
     }
 
-    // Read JSON Results from previous cohesion run
-    JSONParser jsonParser = new JSONParser();
-    Map<String, Long> myMap = null;
-    try {
-      File cohesionJSONFile =
-          new File(scaOutputDir.getAbsolutePath() + "/sca-cohesion-results.json");
-      FileReader cohesionJSONFileReader = new FileReader(cohesionJSONFile);
-      //noinspection unchecked
-      myMap = (HashMap<String, Long>) jsonParser.parse(cohesionJSONFileReader);
-      myLog.info("Map:" + myMap);
-    } catch (FileNotFoundException e) {
+    // The results of the previous cohesion run are read while the report is written
+    File metricsFile = new File(scaOutputDir, "sca-cohesion-results.bin");
+    File cohesionJSONFile = ResultJSONReader.findFile(scaOutputDir, "sca-cohesion-results");
+    if (!metricsFile.isFile() && !cohesionJSONFile.isFile()) {
       myLog.error(
-          "Problems reading sca-output/sca-cohesion-output.json. Did you run the sca-cohesion target first?");
-      e.printStackTrace();
-    } catch (ParseException | IOException e) {
-      e.printStackTrace();
+          "Problems reading sca-output/sca-cohesion-results.json. Did you run the sca-cohesion target first?");
+      throw new MavenReportException("No cohesion results in " + scaOutputDir.getAbsolutePath());
     }
 
     // Get the Maven Doxia Sink, which will be used to generate the
@@ -127,46 +148,62 @@ public class SCACohesionReportingMojo extends AbstractMavenReport {
 
     mainSink.body();
 
-    // Average, best and worst score
-
-    for (Map.Entry<String, Long> classEntry : Objects.requireNonNull(myMap).entrySet()) {
-      myLog.debug("Cohesion Score for " + classEntry.getKey() + ": " + classEntry.getValue());
-      if (classEntry.getValue() < 1) {
-        continue;
-      }
-      String imageFileName = classEntry.getKey().replace("/", "_") + "_lcom_graph.png";
-      File imageFile = new File(outputDirectory.getAbsolutePath() + "/" + imageFileName);
-      myLog.debug("Path for ImageFile: " + imageFile.getAbsoluteFile());
-      File linkImageFile = new File(scaOutputDir.getAbsolutePath() + "/" + imageFileName);
-      try {
-        if (imageFile.exists()) {
-          if (!imageFile.delete()) {
-            throw new MavenReportException(
-                "Couldn't delete old version of image: " + imageFile.getAbsoluteFile());
-          }
+    try {
+      if (metricsFile.isFile()) {
+        // The binary results are mapped into memory instead of being parsed
+        MetricsFile metrics = MetricsFile.open(metricsFile);
+        IntBuffer lcomColumn = metrics.getColumn(MetricsFile.LCOM);
+        for (int index = 0; index < metrics.getClassCount(); index++) {
+          writeClassSection(mainSink, metrics.getClassName(index), lcomColumn.get(index));
         }
-        Files.createLink(
-            imageFile.getAbsoluteFile().toPath(), linkImageFile.getAbsoluteFile().toPath());
-      } catch (IOException e) {
-        e.printStackTrace();
+      } else {
+        ResultJSONReader.readEntries(
+            cohesionJSONFile,
+            (className, lcomScore) ->
+                writeClassSection(mainSink, className, ((Number) lcomScore).longValue()));
       }
-
-      myLog.debug("Cohesion Score for " + classEntry.getKey() + ": " + classEntry.getValue());
-      mainSink.section1();
-      mainSink.sectionTitle1();
-      mainSink.text("Report for class " + classEntry.getKey() + ":");
-      mainSink.sectionTitle1_();
-      mainSink.paragraph();
-      mainSink.text("LCOM Score: " + classEntry.getValue());
-      mainSink.paragraph_();
-      mainSink.figure();
-      mainSink.figureGraphics(imageFileName);
-      mainSink.figure_();
-      mainSink.section1_();
+    } catch (ParseException | IOException e) {
+      e.printStackTrace();
+      throw new MavenReportException("Couldn't read the results in " + scaOutputDir);
     }
     mainSink.body_();
   }
 
+  /** Writes the section of a class with its LCOM graph, classes with a score below 1 are skipped */
+  private void writeClassSection(Sink mainSink, String className, long lcomScore)
+      throws IOException {
+    Log myLog = getLog();
+    myLog.debug("Cohesion Score for " + className + ": " + lcomScore);
+    if (lcomScore < 1) {
+      return;
+    }
+    String imageFileName = LCOMScoreCalculator.getGraphFileName(className) + ".png";
+    File imageFile = new File(outputDirectory.getAbsolutePath() + "/" + imageFileName);
+    myLog.debug("Path for ImageFile: " + imageFile.getAbsoluteFile());
+    File linkImageFile = new File(scaOutputDir.getAbsolutePath() + "/" + imageFileName);
+    if (imageFile.exists() && !imageFile.delete()) {
+      throw new IOException("Couldn't delete old version of image: " + imageFile.getAbsoluteFile());
+    }
+    try {
+      Files.createLink(
+          imageFile.getAbsoluteFile().toPath(), linkImageFile.getAbsoluteFile().toPath());
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
+    mainSink.section1();
+    mainSink.sectionTitle1();
+    mainSink.text("Report for class " + className + ":");
+    mainSink.sectionTitle1_();
+    mainSink.paragraph();
+    mainSink.text("LCOM Score: " + lcomScore);
+    mainSink.paragraph_();
+    mainSink.figure();
+    mainSink.figureGraphics(imageFileName);
+    mainSink.figure_();
+    mainSink.section1_();
+  }
+
   @Override
   public String getOutputName() {
     return "sca-cohesion-report";
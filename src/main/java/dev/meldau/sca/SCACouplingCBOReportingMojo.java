@@ -4,6 +4,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.maven.doxia.sink.Sink;
 import org.apache.maven.doxia.sink.SinkEventAttributes;
 import org.apache.maven.doxia.sink.impl.SinkEventAttributeSet;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -11,18 +12,14 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.reporting.AbstractMavenReport;
 import org.apache.maven.reporting.MavenReportException;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.IntBuffer;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Objects;
 
 import static org.apache.maven.doxia.sink.Sink.JUSTIFY_LEFT;
 
@@ -65,6 +62,12 @@ public class SCACouplingCBOReportingMojo extends AbstractMavenReport {
       required = true,
       defaultValue = "${project.build.directory}/sca-output")
   private File scaOutputDir;
+  /**
+   * If this parameter is true, the report is skipped when run on its own and neither the analysis
+   * results nor the generated page changed since its last run
+   */
+  @Parameter(name = "incremental", defaultValue = "true")
+  private boolean incremental;
 
   /**
    * Get report output directory
@@ -78,6 +81,35 @@ public class SCACouplingCBOReportingMojo extends AbstractMavenReport {
     return outputDirectory.toString();
   }
 
+  /**
+   * Generates the report when run on its own, e.g. from the command line. The site plugin creates
+   * reports without calling this method.
+   */
+  @Override
+  public void execute() throws MojoExecutionException {
+    UpToDateCheck upToDateCheck =
+        UpToDateCheck.forReport(
+            scaOutputDir,
+            getReportOutputDirectory(),
+            getOutputName(),
+            Arrays.asList(
+                getResultsFile(),
+                new File(scaOutputDir, "coupling_graph.png")));
+    if (incremental && upToDateCheck.isUpToDate(getLog())) {
+      return;
+    }
+    super.execute();
+    upToDateCheck.record(getLog());
+  }
+
+  /** @return the metrics file of the previous coupling run, the JSON results if there is none */
+  private File getResultsFile() {
+    File metricsFile = new File(scaOutputDir, "sca-coupling-results.bin");
+    return metricsFile.isFile()
+        ? metricsFile
+        : ResultJSONReader.findFile(scaOutputDir, "sca-coupling-cbo-results");
+  }
+
   /** Build CBO Report with Maven Site Plugin */
   @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
   @Override
@@ -97,26 +129,12 @@ public class SCACouplingCBOReportingMojo extends AbstractMavenReport {
       }
     }
 
-    // Read JSON Results from previous CBO run
-    JSONParser jsonParser = new JSONParser();
-    HashMap<String, Integer> myMap = null;
-    try {
-      File couplingCBOJSONFile =
-          new File(scaOutputDir.getAbsolutePath() + "/sca-coupling-cbo-results.json");
-      if (!couplingCBOJSONFile.isFile()) {
-        myLog.info("No result File. Skipping CBO results report...");
-        return;
-      }
-      FileReader couplingCBOJSONFileReader = new FileReader(couplingCBOJSONFile);
-      //noinspection unchecked
-      myMap = (HashMap<String, Integer>) jsonParser.parse(couplingCBOJSONFileReader);
-      myLog.info("Map:" + myMap);
-    } catch (FileNotFoundException e) {
-      myLog.error(
-          "Problems reading sca-output/sca-coupling-cbo-results.json Did you run the sca-cohesion target first?");
-      e.printStackTrace();
-    } catch (ParseException | IOException e) {
-      e.printStackTrace();
+    // The results of the previous CBO run are read while the report is written
+    File metricsFile = new File(scaOutputDir, "sca-coupling-results.bin");
+    File couplingCBOJSONFile = ResultJSONReader.findFile(scaOutputDir, "sca-coupling-cbo-results");
+    if (!metricsFile.isFile() && !couplingCBOJSONFile.isFile()) {
+      myLog.info("No result File. Skipping CBO results report...");
+      return;
     }
 
     // Get the Maven Doxia Sink, which will be used to generate the
@@ -194,20 +212,40 @@ public class SCACouplingCBOReportingMojo extends AbstractMavenReport {
     mainSink.tableRows_();
     mainSink.table_();
 
-    for (Map.Entry<String, Integer> classEntry : Objects.requireNonNull(myMap).entrySet()) {
-      myLog.debug("Coupling CBO score for " + classEntry.getKey() + ": " + classEntry.getValue());
-      mainSink.section2();
-      mainSink.sectionTitle2();
-      mainSink.text("Report for class " + classEntry.getKey() + ":");
-      mainSink.sectionTitle2_();
-      mainSink.paragraph();
-      mainSink.text("CBO Score: " + classEntry.getValue());
-      mainSink.paragraph_();
-      mainSink.section2_();
+    try {
+      if (metricsFile.isFile()) {
+        // The binary results are mapped into memory instead of being parsed
+        MetricsFile metrics = MetricsFile.open(metricsFile);
+        IntBuffer cboColumn = metrics.getColumn(MetricsFile.CBO);
+        for (int index = 0; index < metrics.getClassCount(); index++) {
+          writeClassSection(mainSink, metrics.getClassName(index), cboColumn.get(index));
+        }
+      } else {
+        ResultJSONReader.readEntries(
+            couplingCBOJSONFile,
+            (className, cboScore) ->
+                writeClassSection(mainSink, className, ((Number) cboScore).longValue()));
+      }
+    } catch (ParseException | IOException e) {
+      e.printStackTrace();
+      throw new MavenReportException("Couldn't read the results in " + scaOutputDir);
     }
     mainSink.body_();
   }
 
+  /** Writes the section of a class with its CBO score */
+  private void writeClassSection(Sink mainSink, String className, long cboScore) {
+    getLog().debug("Coupling CBO score for " + className + ": " + cboScore);
+    mainSink.section2();
+    mainSink.sectionTitle2();
+    mainSink.text("Report for class " + className + ":");
+    mainSink.sectionTitle2_();
+    mainSink.paragraph();
+    mainSink.text("CBO Score: " + cboScore);
+    mainSink.paragraph_();
+    mainSink.section2_();
+  }
+
   @Override
   public String getOutputName() {
     return "sca-coupling-cbo-report";
@@ -1,23 +1,23 @@
 package dev.meldau.sca;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.jgrapht.graph.DirectedMultigraph;
-import org.json.simple.JSONValue;
+import org.apache.maven.plugins.annotations.ResolutionScope;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-
-import static java.util.Collections.max;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /*
  * Copyright 2020-2021 Ingo Meldau
@@ -41,106 +41,271 @@ import static java.util.Collections.max;
  * @author Ingo Meldau
  */
 @SuppressFBWarnings({"DM_DEFAULT_ENCODING", "DM_DEFAULT_ENCODING"})
-@Mojo(name = "sca-coupling", defaultPhase = LifecyclePhase.TEST, threadSafe = true)
-public class SCACouplingMojo extends AbstractMojo {
+@Mojo(
+    name = "sca-coupling",
+    defaultPhase = LifecyclePhase.TEST,
+    requiresDependencyResolution = ResolutionScope.COMPILE,
+    threadSafe = true)
+public class SCACouplingMojo extends AbstractSCAMojo {
   /** break threshold for CBO */
   @Parameter(name = "breakOnCBO", required = true, defaultValue = "0")
   int breakOnCBO;
   /** break threshold for Pair-CBO */
   @Parameter(name = "breakOnPairCBO", required = true, defaultValue = "0")
   int breakOnPairCBO;
-  /** Location of the file. */
-  @Parameter(property = "project.build.directory", required = true, readonly = true)
-  private File outputDirectory;
-  /** sca output Directory */
-  @Parameter(
-      name = "scaOutputDir",
-      required = true,
-      defaultValue = "${project.build.directory}/sca-output")
-  private File scaOutputDir;
+  /**
+   * If this parameter is false, local variables do not count as coupling. Debug information is
+   * skipped while reading the class files in that case.
+   */
+  @Parameter(name = "localVariableCoupling", defaultValue = "true")
+  boolean localVariableCoupling;
 
   private Log myLog;
 
   /** Save CBO results as JSON */
   void saveCBOResultJSON(HashMap<String, Integer> myCBOScores) throws MojoExecutionException {
-    String myPath = scaOutputDir.getAbsolutePath() + "/sca-coupling-cbo-results.json";
-    myLog.info("Writing Results JSON: " + myPath);
+    myLog.info(
+        "Writing Results JSON: "
+            + ResultJSONWriter.getFile(scaOutputDir, "sca-coupling-cbo-results", ndjson));
 
-    try (FileWriter resultsFile = new FileWriter(myPath)) {
-      resultsFile.write(JSONValue.toJSONString(myCBOScores));
-      resultsFile.flush();
+    try (ResultJSONWriter resultsFile =
+        ResultJSONWriter.forEntries(scaOutputDir, "sca-coupling-cbo-results", ndjson)) {
+      for (Map.Entry<String, Integer> cboScore : myCBOScores.entrySet()) {
+        resultsFile.writeEntry(cboScore.getKey(), cboScore.getValue());
+      }
     } catch (IOException exception) {
       throw new MojoExecutionException("Couldn't write result JSON-File");
     }
   }
 
-  /** Save pairwise CBO results as JSON */
-  void savePairCBOResultJSON(ArrayList<ArrayList<String>> myCBOScores)
+  /**
+   * Save pairwise CBO results as JSON. The pairs are written while they are calculated, pairs
+   * exceeding breakOnPairCBO are logged as they are found.
+   *
+   * @param dependencyClasses classes of dependencies, pairs of two of them are not checked
+   * @param pairColumns collects the pairs for the metrics file, null if none is written
+   * @return number of pairs exceeding breakOnPairCBO
+   */
+  int savePairCBOResultJSON(
+      CBOCalculator cboCalculator, Set<String> dependencyClasses, PairColumns pairColumns)
       throws MojoExecutionException {
-    String myPath = scaOutputDir.getAbsolutePath() + "/sca-coupling-pair-cbo-results.json";
-    myLog.info("Writing Results JSON: " + myPath);
+    myLog.info(
+        "Writing Results JSON: "
+            + ResultJSONWriter.getFile(scaOutputDir, "sca-coupling-pair-cbo-results", ndjson));
 
-    try (FileWriter resultsFile = new FileWriter(myPath)) {
-      resultsFile.write(JSONValue.toJSONString(myCBOScores));
-      resultsFile.flush();
+    try (ResultJSONWriter resultsFile =
+        ResultJSONWriter.forRows(scaOutputDir, "sca-coupling-pair-cbo-results", ndjson)) {
+      PairCBOWriter pairCBOWriter =
+          new PairCBOWriter(resultsFile, dependencyClasses, pairColumns);
+      cboCalculator.calculatePairCBO(pairCBOWriter);
+      return pairCBOWriter.violations;
     } catch (IOException exception) {
       throw new MojoExecutionException("Couldn't write result JSON-File");
     }
   }
 
+  /** Writes pairs as rows of the results and checks them against breakOnPairCBO */
+  private class PairCBOWriter implements CBOCalculator.PairCBOConsumer {
+    private final ResultJSONWriter writer;
+    private final Set<String> dependencyClasses;
+    private final PairColumns pairColumns;
+    private int violations;
+
+    PairCBOWriter(
+        ResultJSONWriter writer, Set<String> dependencyClasses, PairColumns pairColumns) {
+      this.writer = writer;
+      this.dependencyClasses = dependencyClasses;
+      this.pairColumns = pairColumns;
+    }
+
+    @Override
+    public void accept(String firstClass, String secondClass, int pairCBO) throws IOException {
+      writer.writeRow(Arrays.asList(firstClass, secondClass, String.valueOf(pairCBO)));
+      if (pairColumns != null) {
+        pairColumns.add(firstClass, secondClass, pairCBO);
+      }
+
+      // Couplings between dependencies can't be fixed by the project
+      boolean betweenDependencies =
+          dependencyClasses.contains(firstClass) && dependencyClasses.contains(secondClass);
+      if (breakOnPairCBO != 0 && !betweenDependencies && pairCBO > breakOnPairCBO) {
+        violations++;
+        myLog.error("Pair-CBO of " + firstClass + " and " + secondClass + " is " + pairCBO + ".");
+      }
+    }
+  }
+
+  /** Collects the coupled pairs as int columns, classes are referred to by dictionary index */
+  static class PairColumns {
+    private final Map<String, Integer> classIndexes = new HashMap<>();
+    private int[] firstClasses = new int[1024];
+    private int[] secondClasses = new int[1024];
+    private int[] pairCBOs = new int[1024];
+    private int pairs;
+
+    PairColumns(List<String> classNames) {
+      for (int index = 0; index < classNames.size(); index++) {
+        classIndexes.put(classNames.get(index), index);
+      }
+    }
+
+    void add(String firstClass, String secondClass, int pairCBO) {
+      if (pairs == pairCBOs.length) {
+        firstClasses = Arrays.copyOf(firstClasses, pairs * 2);
+        secondClasses = Arrays.copyOf(secondClasses, pairs * 2);
+        pairCBOs = Arrays.copyOf(pairCBOs, pairs * 2);
+      }
+      firstClasses[pairs] = classIndexes.get(firstClass);
+      secondClasses[pairs] = classIndexes.get(secondClass);
+      pairCBOs[pairs] = pairCBO;
+      pairs++;
+    }
+
+    /** Adds the pair columns to the columns of a metrics file */
+    void addTo(Map<String, int[]> columns) {
+      columns.put(MetricsFile.PAIR_FIRST, Arrays.copyOf(firstClasses, pairs));
+      columns.put(MetricsFile.PAIR_SECOND, Arrays.copyOf(secondClasses, pairs));
+      columns.put(MetricsFile.PAIR_CBO, Arrays.copyOf(pairCBOs, pairs));
+    }
+  }
+
   /** Calculates CBO and pairwise CBO values for all classes and saves the results as JSON */
-  @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
-    myLog = this.getLog();
-
     // Create target dir and cycles-output dir in target if they don't exist
-    for (File f : new File[] {outputDirectory, scaOutputDir}) {
-      if (!f.exists()) {
-        //noinspection ResultOfMethodCallIgnored
-        f.mkdirs();
+    createDirectories(outputDirectory, scaOutputDir);
+
+    UpToDateCheck upToDateCheck =
+        createUpToDateCheck("sca-coupling")
+            .addValue("breakOnCBO", breakOnCBO)
+            .addValue("breakOnPairCBO", breakOnPairCBO)
+            .addValue("localVariableCoupling", localVariableCoupling);
+    if (isUpToDate(upToDateCheck)) {
+      return;
+    }
+    // An unchanged coupling graph is loaded instead of reading the class files again
+    String snapshotKey = graphSnapshots ? getSnapshotKey() : null;
+    GraphSnapshot snapshot = loadGraphSnapshot(getSnapshotFile(), snapshotKey);
+    if (snapshot != null) {
+      try {
+        analyze(CouplingMultiGraphGenerator.fromSnapshot(snapshot));
+        upToDateCheck.record(getLog());
+        return;
+      } catch (IOException e) {
+        getLog().warn("Couldn't load graph snapshot " + getSnapshotFile(), e);
       }
     }
+    analyze(
+        readDependencies(readClassModel(localVariableCoupling), localVariableCoupling),
+        snapshotKey);
+    upToDateCheck.record(getLog());
+  }
+
+  /** @return file the coupling graph snapshot is stored in */
+  File getSnapshotFile() {
+    return new File(scaOutputDir, "coupling_graph.snapshot");
+  }
+
+  /** @return key of the coupling graph snapshot */
+  String getSnapshotKey() throws MojoExecutionException {
+    return getGraphKey("coupling-graph", localVariableCoupling);
+  }
+
+  @Override
+  List<File> getOutputs() {
+    List<File> outputs =
+        new ArrayList<>(
+            Arrays.asList(
+                ResultJSONWriter.getFile(scaOutputDir, "sca-coupling-cbo-results", ndjson),
+                ResultJSONWriter.getFile(scaOutputDir, "sca-coupling-pair-cbo-results", ndjson),
+                new File(scaOutputDir, "coupling_graph.png")));
+    if (binaryResults) {
+      outputs.add(new File(scaOutputDir, "sca-coupling-results.bin"));
+    }
+    if (graphSnapshots) {
+      outputs.add(getSnapshotFile());
+    }
+    return outputs;
+  }
+
+  /** Like {@link #analyze(ClassModel, String)}, with a snapshot if graphSnapshots is on */
+  void analyze(ClassModel classModel) throws MojoExecutionException, MojoFailureException {
+    analyze(classModel, graphSnapshots ? getSnapshotKey() : null);
+  }
+
+  /**
+   * Calculates CBO and pairwise CBO values for all classes of the class model and saves the results
+   * as JSON
+   *
+   * @param snapshotKey key the coupling graph snapshot is written with, null writes none
+   */
+  void analyze(ClassModel classModel, String snapshotKey)
+      throws MojoExecutionException, MojoFailureException {
+    CouplingMultiGraphGenerator couplingMultiGraphGenerator =
+        new CouplingMultiGraphGenerator(classModel);
+    if (snapshotKey != null) {
+      try {
+        couplingMultiGraphGenerator.writeSnapshot(getSnapshotFile(), snapshotKey);
+      } catch (IOException e) {
+        e.printStackTrace();
+        throw new MojoExecutionException("Couldn't write coupling graph snapshot.");
+      }
+    }
+    analyze(couplingMultiGraphGenerator);
+  }
+
+  /** Calculates CBO and pairwise CBO values for all classes of the coupling graph */
+  void analyze(CouplingMultiGraphGenerator couplingMultiGraphGenerator)
+      throws MojoExecutionException, MojoFailureException {
+    myLog = this.getLog();
 
     HashMap<String, Integer> CBOValues;
-    ArrayList<ArrayList<String>> PairCBOValues;
+    CBOCalculator cboCalculator;
+    Set<String> dependencyClasses;
 
     try {
-      CouplingMultiGraphGenerator couplingMultiGraphGenerator =
-          new CouplingMultiGraphGenerator(
-              new File(outputDirectory.getAbsolutePath() + "/classes"));
-      DirectedMultigraph<String, LabeledEdge> couplingMultiGraph =
-          couplingMultiGraphGenerator.getGraph();
-      // Save graph as DOT File and Image for reporting
-      couplingMultiGraphGenerator.saveGraph(scaOutputDir);
-
-      CBOCalculator cboCalculator = new CBOCalculator(couplingMultiGraph);
+      // Save graph as Image for reporting
+      couplingMultiGraphGenerator.saveGraph(scaOutputDir, exportDot);
+
+      cboCalculator = new CBOCalculator(couplingMultiGraphGenerator.getCouplingGraph());
       CBOValues = cboCalculator.calculateCBO();
-      PairCBOValues = cboCalculator.calculatePairCBO();
+      dependencyClasses = couplingMultiGraphGenerator.getDependencyClasses();
 
     } catch (IOException e) {
       e.printStackTrace();
-      throw new MojoExecutionException(
-          "The plugin encountered a problem while reading the class files.");
+      throw new MojoExecutionException("Couldn't write coupling graph.");
     }
 
     saveCBOResultJSON(CBOValues);
-    savePairCBOResultJSON(PairCBOValues);
+    // The metrics file refers to the classes in the order of the CBO results
+    List<String> classNames = new ArrayList<>(CBOValues.keySet());
+    PairColumns pairColumns = binaryResults ? new PairColumns(classNames) : null;
+    int pairCBOViolations =
+        savePairCBOResultJSON(cboCalculator, dependencyClasses, pairColumns);
 
-    // Check if CBO Metric exceeds configured threshold
-    if (breakOnCBO != 0) {
-      if (max(CBOValues.values()) > breakOnCBO) {
-        throw new MojoFailureException("The threshold for the CBO metric is exceeded.");
+    Map<String, int[]> columns = new LinkedHashMap<>();
+    if (binaryResults) {
+      int[] cboColumn = new int[classNames.size()];
+      for (int index = 0; index < cboColumn.length; index++) {
+        cboColumn[index] = CBOValues.get(classNames.get(index));
       }
+      columns.put(MetricsFile.CBO, cboColumn);
+      pairColumns.addTo(columns);
     }
+    saveMetricsFile("sca-coupling-results.bin", classNames, columns);
 
-    // Check if Pair-CBO Metric exceeds configured threshold
-    if (breakOnPairCBO != 0) {
-      for (ArrayList<String> values : PairCBOValues) {
-        if (Integer.parseInt(values.get(2)) > breakOnPairCBO) {
-          throw new MojoFailureException("The threshold for the Pair-CBO metric is exceeded.");
+    // Check if CBO Metric exceeds configured threshold, dependencies can't be fixed by the project
+    if (breakOnCBO != 0) {
+      for (Map.Entry<String, Integer> entry : CBOValues.entrySet()) {
+        if (!dependencyClasses.contains(entry.getKey()) && entry.getValue() > breakOnCBO) {
+          throw new MojoFailureException("The threshold for the CBO metric is exceeded.");
         }
       }
     }
+
+    // Check if Pair-CBO Metric exceeds configured threshold
+    if (pairCBOViolations > 0) {
+      throw new MojoFailureException("The threshold for the Pair-CBO metric is exceeded.");
+    }
   }
 }
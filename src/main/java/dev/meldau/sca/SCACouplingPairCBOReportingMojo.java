@@ -1,9 +1,12 @@
 package dev.meldau.sca;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.maven.doxia.module.xhtml.XhtmlSinkFactory;
 import org.apache.maven.doxia.sink.Sink;
 import org.apache.maven.doxia.sink.SinkEventAttributes;
+import org.apache.maven.doxia.sink.SinkFactory;
 import org.apache.maven.doxia.sink.impl.SinkEventAttributeSet;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -11,17 +14,16 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.reporting.AbstractMavenReport;
 import org.apache.maven.reporting.MavenReportException;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
-import java.util.Objects;
 
 import static org.apache.maven.doxia.sink.Sink.JUSTIFY_LEFT;
 
@@ -64,6 +66,18 @@ public class SCACouplingPairCBOReportingMojo extends AbstractMavenReport {
       required = true,
       defaultValue = "${project.build.directory}/sca-output")
   private File scaOutputDir;
+  /**
+   * If this parameter is true, the report is skipped when run on its own and neither the analysis
+   * results nor the generated page changed since its last run
+   */
+  @Parameter(name = "incremental", defaultValue = "true")
+  private boolean incremental;
+  /** Number of most strongly coupled pairs the report lists */
+  @Parameter(name = "maxPairs", defaultValue = "100")
+  private int maxPairs;
+  /** Number of pairs per page of the report, 0 lists all pairs on one page */
+  @Parameter(name = "pageSize", defaultValue = "25")
+  private int pageSize;
 
   /**
    * Get report output directory
@@ -77,6 +91,37 @@ public class SCACouplingPairCBOReportingMojo extends AbstractMavenReport {
     return outputDirectory.toString();
   }
 
+  /**
+   * Generates the report when run on its own, e.g. from the command line. The site plugin creates
+   * reports without calling this method.
+   */
+  @Override
+  public void execute() throws MojoExecutionException {
+    UpToDateCheck upToDateCheck =
+        UpToDateCheck.forReport(
+            scaOutputDir,
+            getReportOutputDirectory(),
+            getOutputName(),
+            Arrays.asList(
+                getResultsFile(),
+                new File(scaOutputDir, "coupling_graph.png")))
+            .addValue("maxPairs", maxPairs)
+            .addValue("pageSize", pageSize);
+    if (incremental && upToDateCheck.isUpToDate(getLog())) {
+      return;
+    }
+    super.execute();
+    upToDateCheck.record(getLog());
+  }
+
+  /** @return the metrics file of the previous coupling run, the JSON results if there is none */
+  private File getResultsFile() {
+    File metricsFile = new File(scaOutputDir, "sca-coupling-results.bin");
+    return metricsFile.isFile()
+        ? metricsFile
+        : ResultJSONReader.findFile(scaOutputDir, "sca-coupling-pair-cbo-results");
+  }
+
   /** Build pairwise CBO Report with Maven Site Plugin */
   @edu.umd.cs.findbugs.annotations.SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
   @Override
@@ -96,21 +141,26 @@ public class SCACouplingPairCBOReportingMojo extends AbstractMavenReport {
       }
     }
 
-    // Read JSON Results from previous cohesion run
-    JSONParser jsonParser = new JSONParser();
-    ArrayList<ArrayList<String>> pairCBOList = null;
+    // Read the most strongly coupled pairs from the results of the previous coupling run
+    TopPairCBOReader topPairCBOReader = new TopPairCBOReader(maxPairs);
+    List<TopPairCBOReader.PairCBO> topPairs = Collections.emptyList();
     try {
-      File couplingCBOJSONFile =
-          new File(scaOutputDir.getAbsolutePath() + "/sca-coupling-pair-cbo-results.json");
-      if (!couplingCBOJSONFile.isFile()) {
+      File resultsFile = getResultsFile();
+      if (!resultsFile.isFile()) {
         myLog.info("No result File. Skipping Pair CBO results report...");
         return;
       }
-      try (FileReader couplingCBOJSONFileReader = new FileReader(couplingCBOJSONFile)) {
-        //noinspection unchecked
-        pairCBOList = (ArrayList<ArrayList<String>>) jsonParser.parse(couplingCBOJSONFileReader);
-      }
-      myLog.info("Array:" + pairCBOList);
+      // The binary results are mapped into memory instead of being parsed
+      topPairs =
+          resultsFile.getName().endsWith(".bin")
+              ? topPairCBOReader.read(MetricsFile.open(resultsFile))
+              : topPairCBOReader.read(resultsFile);
+      myLog.info(
+          "Reporting "
+              + topPairs.size()
+              + " of "
+              + topPairCBOReader.getPairCount()
+              + " coupled pairs.");
     } catch (FileNotFoundException e) {
       myLog.error(
           "Problems reading sca-output/sca-coupling-pair-cbo-results.json Did you run the sca-cohesion target first?");
@@ -194,18 +244,110 @@ public class SCACouplingPairCBOReportingMojo extends AbstractMavenReport {
     }
     mainSink.tableRows_();
     mainSink.table_();
-    Objects.requireNonNull(pairCBOList)
-        .sort((al1, al2) -> (Integer.parseInt(al2.get(2)) - (Integer.parseInt(al1.get(2)))));
-    for (ArrayList<String> arrayList : pairCBOList) {
-      mainSink.section2();
-      mainSink.sectionTitle2();
-      String sectionTitle = "Pair " + arrayList.get(0) + " and " + arrayList.get(1);
-      mainSink.text(sectionTitle);
-      mainSink.sectionTitle2_();
-      mainSink.text("Pair CBO: " + arrayList.get(2));
-      mainSink.section2_();
-    }
+
+    int pageCount = pageSize > 0 ? Math.max(1, (topPairs.size() + pageSize - 1) / pageSize) : 1;
+    mainSink.section1();
+    mainSink.sectionTitle1();
+    mainSink.text("Pair CBO");
+    mainSink.sectionTitle1_();
+    mainSink.paragraph();
+    mainSink.text(
+        "The "
+            + topPairs.size()
+            + " most strongly coupled of "
+            + topPairCBOReader.getPairCount()
+            + " coupled pairs, highest Pair CBO first.");
+    mainSink.paragraph_();
+    writePage(mainSink, topPairs, 1, pageCount);
+    mainSink.section1_();
     mainSink.body_();
+
+    // Further pages are separate documents, so no page grows beyond pageSize pairs
+    for (int page = 2; page <= pageCount; page++) {
+      Sink pageSink = null;
+      try {
+        pageSink = createPageSink(page);
+        pageSink.head();
+        pageSink.title();
+        pageSink.text("SCA Coupling Pair CBO Report - Page " + page);
+        pageSink.title_();
+        pageSink.head_();
+        pageSink.body();
+        writePage(pageSink, topPairs, page, pageCount);
+        pageSink.body_();
+        pageSink.flush();
+      } catch (IOException e) {
+        e.printStackTrace();
+        throw new MavenReportException("Couldn't create page " + page + " of the report");
+      } finally {
+        if (pageSink != null) {
+          pageSink.close();
+        }
+      }
+    }
+  }
+
+  /** @return name of a page of the report, the first page is the report itself */
+  private String getPageName(int page) {
+    return page == 1 ? getOutputName() + ".html" : getOutputName() + "-" + page + ".html";
+  }
+
+  /** Creates the sink of a further page, the site provides a factory rendering with its skin */
+  private Sink createPageSink(int page) throws IOException {
+    SinkFactory sinkFactory = getSinkFactory();
+    if (sinkFactory == null) {
+      // Run on its own, the pages are written without the site skin
+      sinkFactory = new XhtmlSinkFactory();
+    }
+    return sinkFactory.createSink(getReportOutputDirectory(), getPageName(page));
+  }
+
+  /** Writes the pairs of one page as table, the rows are written as they are taken from the list */
+  private void writePage(
+      Sink sink, List<TopPairCBOReader.PairCBO> topPairs, int page, int pageCount) {
+    int first = pageSize > 0 ? (page - 1) * pageSize : 0;
+    int end = pageSize > 0 ? Math.min(topPairs.size(), first + pageSize) : topPairs.size();
+
+    sink.table();
+    sink.tableRows(new int[] {JUSTIFY_LEFT, JUSTIFY_LEFT, JUSTIFY_LEFT}, true);
+    sink.tableRow();
+    for (String header : new String[] {"Class", "Class", "Pair CBO"}) {
+      sink.tableHeaderCell();
+      sink.text(header);
+      sink.tableHeaderCell_();
+    }
+    sink.tableRow_();
+    for (TopPairCBOReader.PairCBO pair : topPairs.subList(first, end)) {
+      sink.tableRow();
+      for (String cell :
+          new String[] {
+            pair.getFirstClass(), pair.getSecondClass(), String.valueOf(pair.getPairCBO())
+          }) {
+        sink.tableCell();
+        sink.text(cell);
+        sink.tableCell_();
+      }
+      sink.tableRow_();
+    }
+    sink.tableRows_();
+    sink.table_();
+
+    if (pageCount > 1) {
+      sink.paragraph();
+      sink.text("Page " + page + " of " + pageCount + " ");
+      if (page > 1) {
+        sink.link(getPageName(page - 1));
+        sink.text("previous");
+        sink.link_();
+        sink.text(" ");
+      }
+      if (page < pageCount) {
+        sink.link(getPageName(page + 1));
+        sink.text("next");
+        sink.link_();
+      }
+      sink.paragraph_();
+    }
   }
 
   @Override
@@ -17,20 +17,23 @@ package dev.meldau.sca;
  */
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.json.simple.JSONValue;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.jgrapht.graph.SimpleDirectedGraph;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
 /**
  * Searches for cyclic dependcies if cyclic dependencies are found a FeedbackArcSet is calculated to
@@ -39,61 +42,144 @@ import java.util.Set;
  * @author Ingo Meldau
  */
 @SuppressFBWarnings("DM_DEFAULT_ENCODING")
-@Mojo(name = "sca-cycles", defaultPhase = LifecyclePhase.TEST, threadSafe = true)
-public class SCACyclesMojo extends AbstractMojo {
-  /** Maven Log Variable */
-  Log mvnLog = this.getLog();
+@Mojo(
+    name = "sca-cycles",
+    defaultPhase = LifecyclePhase.TEST,
+    requiresDependencyResolution = ResolutionScope.COMPILE,
+    threadSafe = true)
+public class SCACyclesMojo extends AbstractSCAMojo {
 
   /** If this parameter is true, the test phase will break with an exception */
   @Parameter(name = "breakOnCycle", required = true, defaultValue = "false")
   boolean breakOnCycle;
-  /** Maven output Directory */
-  @Parameter(property = "project.build.directory", required = true, readonly = true)
-  private File outputDirectory;
-  /** sca output Directory */
-  @Parameter(
-      name = "scaOutputDir",
-      required = true,
-      defaultValue = "${project.build.directory}/sca-output")
-  private File scaOutputDir;
+  /**
+   * If this parameter is false, local variables do not count as references when the dependencies
+   * are weighed (weightedFeedbackArcSet)
+   */
+  @Parameter(name = "localVariableCoupling", defaultValue = "true")
+  boolean localVariableCoupling;
 
   /**
    * Getter for sca cycles output directory (cannot use Parameter because inheriting of other
    * defaults from annotations is not possible)
    */
-  private File getScaCyclesOutputDir() {
+  File getScaCyclesOutputDir() {
     return new File(scaOutputDir.getAbsolutePath() + "/cycles");
   }
 
   /** Save FeedbackArcSet as JSON */
-  @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
   void saveFeedbackArcSetJSON(Set<InformativeEdge> feedbackArcSet) throws MojoExecutionException {
-    Log myLog = this.getLog();
-    ArrayList<ArrayList<String>> feedbackArcSetAL = new ArrayList<>();
-    for (InformativeEdge edge : feedbackArcSet) {
-      ArrayList<String> arc = new ArrayList<>();
-      arc.add(edge.getSource().toString());
-      arc.add(edge.getTarget().toString());
-      feedbackArcSetAL.add(arc);
-    }
+    saveFeedbackArcSetJSON(feedbackArcSet, "feedback-arc-set");
+  }
 
-    String myPath = scaOutputDir.getAbsolutePath() + "/cycles/feedback-arc-set.json";
-    File myFile = new File(myPath);
+  /** Save FeedbackArcSet as results file name, without extension, in the cycles output directory */
+  void saveFeedbackArcSetJSON(Set<InformativeEdge> feedbackArcSet, String fileName)
+      throws MojoExecutionException {
+    saveFeedbackArcSetJSON(feedbackArcSet, fileName, null);
+  }
 
-    // delete result file from previous run if it exists
-    if (myFile.isFile()) {
-      //noinspection ResultOfMethodCallIgnored
-      myFile.delete();
+  /**
+   * Save FeedbackArcSet as results file name, without extension, in the cycles output directory
+   *
+   * @param edgeWeights weight of every edge, written as third column. null writes no weights.
+   */
+  void saveFeedbackArcSetJSON(
+      Set<InformativeEdge> feedbackArcSet,
+      String fileName,
+      ToIntFunction<InformativeEdge> edgeWeights)
+      throws MojoExecutionException {
+    Log myLog = this.getLog();
+    File cyclesOutputDir = getScaCyclesOutputDir();
+    myLog.info(
+        "Writing Feedback Arc Set to JSON: "
+            + ResultJSONWriter.getFile(cyclesOutputDir, fileName, ndjson));
+
+    // The results file of the previous run is replaced, in either form
+    try (ResultJSONWriter resultsFile =
+        ResultJSONWriter.forRows(cyclesOutputDir, fileName, ndjson)) {
+      for (InformativeEdge edge : feedbackArcSet) {
+        List<Object> row = new ArrayList<>(3);
+        row.add(edge.getSource().toString());
+        row.add(edge.getTarget().toString());
+        if (edgeWeights != null) {
+          row.add(edgeWeights.applyAsInt(edge));
+        }
+        resultsFile.writeRow(row);
+      }
+    } catch (IOException exception) {
+      throw new MojoExecutionException("Couldn't write result JSON-File");
     }
+  }
 
-    myLog.info("Writing Feedback Arc Set to JSON: " + myPath);
+  /**
+   * Save the strongly connected components with cycles, one row per component: its size followed
+   * by its classes
+   */
+  void saveComponentsJSON(List<Set<String>> components) throws MojoExecutionException {
+    File cyclesOutputDir = getScaCyclesOutputDir();
+    try (ResultJSONWriter resultsFile =
+        ResultJSONWriter.forRows(cyclesOutputDir, "strongly-connected-components", ndjson)) {
+      for (Set<String> component : components) {
+        List<Object> row = new ArrayList<>(component.size() + 1);
+        row.add(component.size());
+        row.addAll(component);
+        resultsFile.writeRow(row);
+      }
+    } catch (IOException exception) {
+      throw new MojoExecutionException("Couldn't write result JSON-File");
+    }
+  }
 
-    try (FileWriter resultsFile = new FileWriter(myPath)) {
-      resultsFile.write(JSONValue.toJSONString(feedbackArcSetAL));
-      resultsFile.flush();
+  /**
+   * Lists the elementary cycles of every strongly connected component, within the configured
+   * limits. The cycles are streamed into the results file, one row per cycle: the index of its
+   * component followed by its classes.
+   */
+  void saveElementaryCyclesJSON(
+      SimpleDirectedGraph<String, InformativeEdge> graph, List<Set<String>> components)
+      throws MojoExecutionException {
+    File cyclesOutputDir = getScaCyclesOutputDir();
+    CycleEnumerator cycleEnumerator = new CycleEnumerator(graph, maxCycleLength, maxCycles);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cycleEnumerationMillis);
+    int[] cycles = new int[1];
+    int truncatedComponents = 0;
+    try (ResultJSONWriter resultsFile =
+        ResultJSONWriter.forRows(cyclesOutputDir, "elementary-cycles", ndjson)) {
+      // Without cycles to list the file is written empty, so no stale cycles are left behind
+      for (int component = 0; maxCycles > 0 && component < components.size(); component++) {
+        // Every component gets an equal share of the time left, so a dense one can't use it up
+        long now = System.nanoTime();
+        long componentDeadline =
+            now + Math.max(0, deadline - now) / (components.size() - component);
+        int componentIndex = component;
+        boolean complete =
+            cycleEnumerator.enumerate(
+                components.get(component),
+                componentDeadline,
+                cycle -> {
+                  List<Object> row = new ArrayList<>(cycle.size() + 1);
+                  row.add(componentIndex);
+                  row.addAll(cycle);
+                  resultsFile.writeRow(row);
+                  cycles[0]++;
+                });
+        if (!complete) {
+          truncatedComponents++;
+        }
+      }
     } catch (IOException exception) {
       throw new MojoExecutionException("Couldn't write result JSON-File");
     }
+    if (cycles[0] == 0) {
+      return;
+    }
+    getLog()
+        .info(
+            "Listed "
+                + cycles[0]
+                + " elementary cycles, "
+                + truncatedComponents
+                + " components have more than could be listed within the limits.");
   }
 
   /**
@@ -102,36 +188,136 @@ public class SCACyclesMojo extends AbstractMojo {
    * Calculate FeedbackArcSet (FAS) in case of cyclic dependencies to show the likeliest set of
    * dependencies that may be removed to break the cycle
    */
-  @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
   public void execute() throws MojoFailureException, MojoExecutionException {
+    UpToDateCheck upToDateCheck =
+        createUpToDateCheck("sca-cycles")
+            .addValue("breakOnCycle", breakOnCycle)
+            .addValue("localVariableCoupling", localVariableCoupling);
+    if (isUpToDate(upToDateCheck)) {
+      return;
+    }
+    // An unchanged dependency graph is loaded instead of reading the class files again
+    String snapshotKey = graphSnapshots ? getSnapshotKey() : null;
+    GraphSnapshot snapshot = loadGraphSnapshot(getSnapshotFile(), snapshotKey);
+    if (snapshot != null) {
+      createDirectories(scaOutputDir, getScaCyclesOutputDir());
+      analyze(new ClassGraphCreator(snapshot, "classes", getScaCyclesOutputDir()));
+    } else {
+      // The weights count the same references as the coupling analysis
+      boolean withLocalVariables = isWeighingLocalVariables();
+      analyze(
+          readDependencies(readClassModel(withLocalVariables), withLocalVariables), snapshotKey);
+    }
+    upToDateCheck.record(getLog());
+  }
 
-    // Create Directories if they don't exist
-    for (File f : new File[] {scaOutputDir, getScaCyclesOutputDir()}) {
-      if (!f.exists()) {
-        //noinspection ResultOfMethodCallIgnored
-        f.mkdir();
+  /** @return file the dependency graph snapshot is stored in */
+  File getSnapshotFile() {
+    return new File(getScaCyclesOutputDir(), "classes.snapshot");
+  }
+
+  /** @return key of the dependency graph snapshot, weighed graphs are kept apart */
+  String getSnapshotKey() throws MojoExecutionException {
+    return getGraphKey(
+        weightedFeedbackArcSet ? "weighted-classes" : "classes", isWeighingLocalVariables());
+  }
+
+  /** @return true if local variables count as references of the weighed dependencies */
+  boolean isWeighingLocalVariables() {
+    return weightedFeedbackArcSet && localVariableCoupling;
+  }
+
+  @Override
+  List<File> getOutputs() {
+    return Collections.singletonList(getScaCyclesOutputDir());
+  }
+
+  /** Like {@link #analyze(ClassModel, String)}, with a snapshot if graphSnapshots is on */
+  void analyze(ClassModel classModel) throws MojoFailureException, MojoExecutionException {
+    analyze(classModel, graphSnapshots ? getSnapshotKey() : null);
+  }
+
+  /**
+   * Find cyclic dependencies between the classes of the class model
+   *
+   * @param snapshotKey key the dependency graph snapshot is written with, null writes none
+   */
+  void analyze(ClassModel classModel, String snapshotKey)
+      throws MojoFailureException, MojoExecutionException {
+    ClassGraphCreator classGraphCreator = createClassGraph(classModel);
+    if (snapshotKey != null) {
+      try {
+        classGraphCreator.writeSnapshot(getSnapshotFile(), snapshotKey);
+      } catch (IOException e) {
+        e.printStackTrace();
+        throw new MojoExecutionException("Couldn't write dependency graph snapshot.");
       }
     }
-    File classDir = new File(outputDirectory.getAbsolutePath() + "/classes");
+    analyze(classGraphCreator);
+  }
+
+  /** Create the dependency graph of all classes of the class model */
+  ClassGraphCreator createClassGraph(ClassModel classModel) {
+    // Create Directories if they don't exist
+    createDirectories(scaOutputDir, getScaCyclesOutputDir());
+
+    ClassGraphCreator classGraphCreator =
+        new ClassGraphCreator(classModel, getScaCyclesOutputDir());
+    if (weightedFeedbackArcSet) {
+      classGraphCreator.weighDependencies(
+          new CouplingMultiGraphGenerator(classModel).getCouplingGraph());
+    }
+    return classGraphCreator;
+  }
 
-    // Create Graph
-    JdepsGraphCreator jdepsGraphCreator =
-        new JdepsGraphCreator(classDir, getScaCyclesOutputDir());
+  /** Find cyclic dependencies in the dependency graph */
+  void analyze(ClassGraphCreator classGraphCreator)
+      throws MojoFailureException, MojoExecutionException {
+    /* Maven Log Variable */
+    Log mvnLog = this.getLog();
 
-    // Check if graph has cycles - if so calculate FAS
-    if (jdepsGraphCreator.hasCycles()) {
-      mvnLog.info("Found cycles finding solution.");
+    // Cycles only exist within strongly connected components, the FAS is calculated per component
+    List<Set<String>> components =
+        new StrongComponentFinder(classGraphCreator.getCycleGraph()).getCyclicComponents();
+    saveComponentsJSON(components);
+    if (!components.isEmpty()) {
+      mvnLog.info(
+          "Found cycles in "
+              + components.size()
+              + " strongly connected components, the largest of "
+              + components.get(0).size()
+              + " classes, finding solution.");
+      saveElementaryCyclesJSON(classGraphCreator.getCycleGraph(), components);
+      // Weighed dependencies prefer to break the ones made of few references
+      ToIntFunction<InformativeEdge> edgeWeights =
+          classGraphCreator.isWeighed() ? classGraphCreator::getWeight : null;
       FeedbackArcSetFinder feedbackArcSetFinder =
-          new FeedbackArcSetFinder(jdepsGraphCreator.getCycleGraph());
-      Set<InformativeEdge> feedbackArcSet = feedbackArcSetFinder.getFeedbackArcSet();
-      saveFeedbackArcSetJSON(feedbackArcSet);
+          new FeedbackArcSetFinder(classGraphCreator.getCycleGraph(), edgeWeights);
+      Set<InformativeEdge> feedbackArcSet;
+      try {
+        feedbackArcSet =
+            feedbackArcSetFinder.getFeedbackArcSet(
+                components, parallelism, feedbackArcSetBudgetMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MojoExecutionException("Interrupted while finding the Feedback Arc Set.");
+      }
+      saveFeedbackArcSetJSON(feedbackArcSet, "feedback-arc-set", edgeWeights);
       mvnLog.info("This is the likeliest Set of dependencies to remove: " + feedbackArcSet);
+      if (edgeWeights != null) {
+        long references = 0;
+        for (InformativeEdge edge : feedbackArcSet) {
+          references += edgeWeights.applyAsInt(edge);
+        }
+        mvnLog.info("The dependencies to remove consist of " + references + " references.");
+      }
       if (breakOnCycle) {
         throw new MojoFailureException("There is a cycle dependency in the project. Aborting.");
       }
-      jdepsGraphCreator.saveGraphForReport(feedbackArcSet);
+      classGraphCreator.saveGraphForReport(feedbackArcSet, exportDot);
     } else {
-      jdepsGraphCreator.saveGraphForReport();
+      saveElementaryCyclesJSON(classGraphCreator.getCycleGraph(), components);
+      classGraphCreator.saveGraphForReport(exportDot);
     }
   }
 }
@@ -2,6 +2,7 @@ package dev.meldau.sca;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -9,15 +10,14 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.reporting.AbstractMavenReport;
 import org.apache.maven.reporting.MavenReportException;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
 /*
@@ -59,6 +59,12 @@ public class SCACyclesReportingMojo extends AbstractMavenReport {
       required = true,
       defaultValue = "${project.build.directory}/sca-output")
   private File scaOutputDir;
+  /**
+   * If this parameter is true, the report is skipped when run on its own and neither the analysis
+   * results nor the generated page changed since its last run
+   */
+  @Parameter(name = "incremental", defaultValue = "true")
+  private boolean incremental;
 
   /**
    * Get report output directory
@@ -72,6 +78,25 @@ public class SCACyclesReportingMojo extends AbstractMavenReport {
     return outputDirectory.toString();
   }
 
+  /**
+   * Generates the report when run on its own, e.g. from the command line. The site plugin creates
+   * reports without calling this method.
+   */
+  @Override
+  public void execute() throws MojoExecutionException {
+    UpToDateCheck upToDateCheck =
+        UpToDateCheck.forReport(
+            scaOutputDir,
+            getReportOutputDirectory(),
+            getOutputName(),
+            Collections.singletonList(new File(scaOutputDir, "cycles")));
+    if (incremental && upToDateCheck.isUpToDate(getLog())) {
+      return;
+    }
+    super.execute();
+    upToDateCheck.record(getLog());
+  }
+
   /** Build Cyclic Dependency Report with Maven Site Plugin */
   @Override
   protected void executeReport(Locale locale) throws MavenReportException {
@@ -90,23 +115,32 @@ public class SCACyclesReportingMojo extends AbstractMavenReport {
       }
     }
 
-    // Read JSON Results from previous cycles run
-    JSONParser jsonParser = new JSONParser();
-    ArrayList<ArrayList<String>> feedbackArcSet = new ArrayList<>();
+    // Read the feedback arc set from the previous cycles run
+    List<List<Object>> feedbackArcSet = new ArrayList<>();
     try {
       File feedbackArcSetJSONFile =
-          new File(scaOutputDir.getAbsolutePath() + "/cycles/feedback-arc-set.json");
+          ResultJSONReader.findFile(new File(scaOutputDir, "cycles"), "feedback-arc-set");
       if (feedbackArcSetJSONFile.isFile()) {
-        FileReader cohesionJSONFileReader = new FileReader(feedbackArcSetJSONFile);
-        //noinspection unchecked
-        feedbackArcSet = (ArrayList<ArrayList<String>>) jsonParser.parse(cohesionJSONFileReader);
+        ResultJSONReader.readRows(feedbackArcSetJSONFile, feedbackArcSet::add);
       }
-      myLog.info("List:" + feedbackArcSet);
-    } catch (FileNotFoundException e) {
+      myLog.info("Feedback arc set of " + feedbackArcSet.size() + " dependencies.");
+    } catch (ParseException | IOException e) {
       myLog.error(
           "Problems reading sca-output/cycles/feedback-arc-set.json. Did you run the sca-cycles target first?");
       e.printStackTrace();
+    }
+
+    // Sizes of the strongly connected components the cycles are in
+    List<Object> componentSizes = new ArrayList<>();
+    try {
+      File componentsJSONFile =
+          ResultJSONReader.findFile(
+              new File(scaOutputDir, "cycles"), "strongly-connected-components");
+      if (componentsJSONFile.isFile()) {
+        ResultJSONReader.readRows(componentsJSONFile, row -> componentSizes.add(row.get(0)));
+      }
     } catch (ParseException | IOException e) {
+      myLog.error("Problems reading sca-output/cycles/strongly-connected-components.json.");
       e.printStackTrace();
     }
 
@@ -157,13 +191,29 @@ public class SCACyclesReportingMojo extends AbstractMavenReport {
     if (feedbackArcSet.isEmpty()) {
       mainSink.text("No cycles have been found.");
     } else {
+      if (!componentSizes.isEmpty()) {
+        mainSink.paragraph();
+        mainSink.text(
+            "The loops are within "
+                + componentSizes.size()
+                + " strongly connected components of "
+                + componentSizes
+                + " classes.");
+        mainSink.paragraph_();
+      }
       mainSink.text("Loops have been found! Here is a suggested set of dependencies to remove:");
-      for (ArrayList<String> arc : feedbackArcSet) {
+      for (List<Object> arc : feedbackArcSet) {
         mainSink.paragraph();
-        mainSink.text(arc.get(0) + " => " + arc.get(1));
+        // A weighed feedback arc set has the number of references of each dependency
+        mainSink.text(
+            arc.get(0)
+                + " => "
+                + arc.get(1)
+                + (arc.size() > 2 ? " (" + arc.get(2) + " references)" : ""));
         mainSink.paragraph_();
       }
     }
+    writeElementaryCycles(mainSink);
     if (cyclesGraph.isFile()) {
       mainSink.figure();
       mainSink.figureGraphics(cyclesGraphCopy.getAbsolutePath());
@@ -176,6 +226,43 @@ public class SCACyclesReportingMojo extends AbstractMavenReport {
     mainSink.body_();
   }
 
+  /** Streams the elementary cycles listed by the cycles goal into the report, shortest first */
+  private void writeElementaryCycles(Sink sink) {
+    File cyclesJSONFile =
+        ResultJSONReader.findFile(new File(scaOutputDir, "cycles"), "elementary-cycles");
+    if (!cyclesJSONFile.isFile() || cyclesJSONFile.length() <= 2) {
+      return;
+    }
+    sink.section2();
+    sink.sectionTitle2();
+    sink.text("Elementary cycles");
+    sink.sectionTitle2_();
+    sink.paragraph();
+    sink.text(
+        "Cycles broken by the dependencies above, per strongly connected component and within"
+            + " the configured limits:");
+    sink.paragraph_();
+    try {
+      ResultJSONReader.readRows(
+          cyclesJSONFile,
+          row -> {
+            // Component index followed by the classes, the last one depends on the first one
+            StringBuilder cycle = new StringBuilder();
+            for (Object vertex : row.subList(1, row.size())) {
+              cycle.append(vertex).append(" => ");
+            }
+            cycle.append(row.get(1));
+            sink.paragraph();
+            sink.text(cycle.toString());
+            sink.paragraph_();
+          });
+    } catch (ParseException | IOException e) {
+      getLog().error("Problems reading sca-output/cycles/elementary-cycles.json.");
+      e.printStackTrace();
+    }
+    sink.section2_();
+  }
+
   @Override
   public String getOutputName() {
     return "sca-report";
@@ -0,0 +1,140 @@
+package dev.meldau.sca;
+
+import org.jgrapht.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Finds the strongly connected components of a dependency graph with Tarjan's algorithm. Cycles
+ * only exist within a component of more than one class, so everything outside of these components
+ * can be left out when cycles are broken.
+ *
+ * <p>The depth first search keeps its own stack instead of recursing, so long dependency chains
+ * don't overflow the thread stack.
+ *
+ * @author Ingo Meldau
+ */
+public class StrongComponentFinder {
+
+  private static final int UNVISITED = -1;
+
+  private final Graph<String, InformativeEdge> GRAPH;
+
+  public StrongComponentFinder(Graph<String, InformativeEdge> graph) {
+    this.GRAPH = graph;
+  }
+
+  /**
+   * Finds the components with cycles, i.e. of more than one vertex. Graphs with self loops aren't
+   * expected, the dependency graphs have none.
+   *
+   * @return components, largest first, the vertices of each in the iteration order of the graph
+   */
+  public List<Set<String>> getCyclicComponents() {
+    List<String> vertices = new ArrayList<>(GRAPH.vertexSet());
+    int vertexCount = vertices.size();
+    Map<String, Integer> vertexIds = new HashMap<>();
+    for (String vertex : vertices) {
+      vertexIds.put(vertex, vertexIds.size());
+    }
+    int[] offsets = new int[vertexCount + 1];
+    int[] successors = new int[GRAPH.edgeSet().size()];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      int edge = offsets[vertex];
+      for (InformativeEdge outgoingEdge : GRAPH.outgoingEdgesOf(vertices.get(vertex))) {
+        successors[edge++] = vertexIds.get(GRAPH.getEdgeTarget(outgoingEdge));
+      }
+      offsets[vertex + 1] = edge;
+    }
+
+    int[] indices = new int[vertexCount];
+    Arrays.fill(indices, UNVISITED);
+    int[] lowLinks = new int[vertexCount];
+    boolean[] onStack = new boolean[vertexCount];
+    int[] stack = new int[vertexCount];
+    int stackSize = 0;
+    // Vertices of the depth first search and the next of their edges to follow
+    int[] path = new int[vertexCount];
+    int[] nextEdges = new int[vertexCount];
+    int index = 0;
+    List<int[]> components = new ArrayList<>();
+
+    for (int root = 0; root < vertexCount; root++) {
+      if (indices[root] != UNVISITED) {
+        continue;
+      }
+      int depth = 0;
+      path[0] = root;
+      nextEdges[0] = offsets[root];
+      indices[root] = lowLinks[root] = index++;
+      stack[stackSize++] = root;
+      onStack[root] = true;
+      while (depth >= 0) {
+        int vertex = path[depth];
+        if (nextEdges[depth] < offsets[vertex + 1]) {
+          int successor = successors[nextEdges[depth]++];
+          if (indices[successor] == UNVISITED) {
+            indices[successor] = lowLinks[successor] = index++;
+            stack[stackSize++] = successor;
+            onStack[successor] = true;
+            path[++depth] = successor;
+            nextEdges[depth] = offsets[successor];
+          } else if (onStack[successor]) {
+            lowLinks[vertex] = Math.min(lowLinks[vertex], indices[successor]);
+          }
+          continue;
+        }
+        // All edges followed, the vertex is the root of a component or reports to its parent
+        if (lowLinks[vertex] == indices[vertex]) {
+          int start = stackSize;
+          do {
+            onStack[stack[--start]] = false;
+          } while (stack[start] != vertex);
+          if (stackSize - start > 1) {
+            components.add(Arrays.copyOfRange(stack, start, stackSize));
+          }
+          stackSize = start;
+        }
+        depth--;
+        if (depth >= 0) {
+          lowLinks[path[depth]] = Math.min(lowLinks[path[depth]], lowLinks[vertex]);
+        }
+      }
+    }
+
+    components.sort(Comparator.comparingInt((int[] component) -> -component.length));
+    List<Set<String>> cyclicComponents = new ArrayList<>(components.size());
+    for (int[] component : components) {
+      Arrays.sort(component);
+      Set<String> members = new LinkedHashSet<>();
+      for (int vertex : component) {
+        members.add(vertices.get(vertex));
+      }
+      cyclicComponents.add(members);
+    }
+    return cyclicComponents;
+  }
+}
@@ -0,0 +1,152 @@
+package dev.meldau.sca;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Interns class names. Every distinct string - an internal name, a descriptor or an array type - is
+ * normalized once to the class name it refers to and mapped to a compact int id, so the analyses
+ * compare ids instead of cleaning the same names over and over again.
+ *
+ * <p>Normalization drops leading array dimensions and the type letter of a descriptor as well as a
+ * trailing semicolon, e.g. "[Ldev/meldau/sca/ClassFacts;" becomes "dev/meldau/sca/ClassFacts".
+ * Descriptors of primitive types normalize to the empty name. Names of nested classes are either
+ * kept with "$" replaced by "_" or cut down to their outermost class.
+ *
+ * <p>Every package gets an id as well, so properties of a package, e.g. whether it belongs to the
+ * java packages, are computed only once per package. Names are kept in full, not split into
+ * package and simple name.
+ *
+ * <p>A symbol table is not thread safe.
+ *
+ * @author Ingo Meldau
+ */
+public class SymbolTable {
+
+  /** How the names of nested classes are normalized */
+  public enum NestedClasses {
+    /** Keep nested classes, "$" is replaced by "_" */
+    KEEP,
+    /** Cut names down to their outermost class, e.g. methods "lambda$main$0" become "lambda" */
+    STRIP
+  }
+
+  private static final String JAVA_PACKAGE = "java";
+
+  private final NestedClasses NESTED_CLASSES;
+  private final Map<String, Integer> idsByString = new HashMap<>();
+  private final Map<String, Integer> idsByName = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+  private final List<Integer> packageIds = new ArrayList<>();
+  private final Map<String, Integer> idsByPackage = new HashMap<>();
+  private final List<Boolean> javaPackages = new ArrayList<>();
+
+  public SymbolTable(NestedClasses nestedClasses) {
+    this.NESTED_CLASSES = nestedClasses;
+  }
+
+  /**
+   * @param string internal name, descriptor or array type
+   * @return id of the normalized name, equal for all strings referring to the same class
+   */
+  public int intern(String string) {
+    Integer id = idsByString.get(string);
+    if (id == null) {
+      id = internName(normalize(string, NESTED_CLASSES));
+      idsByString.put(string, id);
+    }
+    return id;
+  }
+
+  private int internName(String name) {
+    Integer id = idsByName.get(name);
+    if (id == null) {
+      id = names.size();
+      idsByName.put(name, id);
+      names.add(name);
+      packageIds.add(internPackage(name));
+    }
+    return id;
+  }
+
+  private int internPackage(String name) {
+    int separator = name.lastIndexOf('/');
+    String packageName = separator < 0 ? "" : name.substring(0, separator);
+    Integer id = idsByPackage.get(packageName);
+    if (id == null) {
+      id = javaPackages.size();
+      idsByPackage.put(packageName, id);
+      javaPackages.add(
+          packageName.equals(JAVA_PACKAGE) || packageName.startsWith(JAVA_PACKAGE + "/"));
+    }
+    return id;
+  }
+
+  /** @return normalized name of a symbol */
+  public String getName(int id) {
+    return names.get(id);
+  }
+
+  /** @return true if the symbol is the empty name, e.g. of a primitive type */
+  public boolean isEmpty(int id) {
+    return names.get(id).isEmpty();
+  }
+
+  /** @return true if the symbol is a class of the java package or one of its subpackages */
+  public boolean isJavaClass(int id) {
+    return javaPackages.get(packageIds.get(id));
+  }
+
+  /** @return number of distinct normalized names */
+  public int size() {
+    return names.size();
+  }
+
+  /**
+   * Normalizes a name without regular expressions
+   *
+   * @return class name the string refers to, the empty name for primitive types
+   */
+  static String normalize(String string, NestedClasses nestedClasses) {
+    int start = 0;
+    while (start < string.length() && string.charAt(start) == '[') {
+      start++;
+    }
+    // The dimensions are only dropped together with the type letter
+    if (start < string.length() && string.charAt(start) >= 'A' && string.charAt(start) <= 'Z') {
+      start++;
+    } else {
+      start = 0;
+    }
+    int end = string.length();
+    if (nestedClasses == NestedClasses.STRIP) {
+      int nested = string.indexOf('$', start);
+      if (nested >= 0) {
+        end = nested;
+      }
+    }
+    if (end > start && string.charAt(end - 1) == ';') {
+      end--;
+    }
+    String name = string.substring(start, end);
+    return nestedClasses == NestedClasses.KEEP ? name.replace('$', '_') : name;
+  }
+}
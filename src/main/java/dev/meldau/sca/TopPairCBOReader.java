@@ -0,0 +1,160 @@
+package dev.meldau.sca;
+
+import org.json.simple.parser.ParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Reads the highest pairwise CBO values from the pair CBO results. The results are streamed through
+ * {@link ResultJSONReader}, only the pairs with the highest values are kept in a bounded heap, so
+ * the size of the results file doesn't matter.
+ *
+ * @author Ingo Meldau
+ */
+public class TopPairCBOReader implements ResultJSONReader.RowConsumer {
+
+  /** One pair of classes and their pairwise CBO */
+  public static class PairCBO {
+    private final String firstClass;
+    private final String secondClass;
+    private final int pairCBO;
+    private final long position;
+
+    PairCBO(String firstClass, String secondClass, int pairCBO, long position) {
+      this.firstClass = firstClass;
+      this.secondClass = secondClass;
+      this.pairCBO = pairCBO;
+      this.position = position;
+    }
+
+    public String getFirstClass() {
+      return firstClass;
+    }
+
+    public String getSecondClass() {
+      return secondClass;
+    }
+
+    public int getPairCBO() {
+      return pairCBO;
+    }
+  }
+
+  /** Highest value first, equal values keep the order of the results file */
+  private static final Comparator<PairCBO> HIGHEST_FIRST =
+      Comparator.comparingInt((PairCBO pair) -> -pair.pairCBO)
+          .thenComparingLong(pair -> pair.position);
+
+  private final int MAX_PAIRS;
+  /** The pair to drop next is at the head */
+  private final PriorityQueue<PairCBO> topPairs;
+  private long pairCount;
+
+  /** @param maxPairs number of pairs to keep */
+  public TopPairCBOReader(int maxPairs) {
+    this.MAX_PAIRS = maxPairs;
+    this.topPairs = new PriorityQueue<>(Math.max(1, maxPairs) + 1, HIGHEST_FIRST.reversed());
+  }
+
+  /** Reads a pair CBO results file, JSON or NDJSON */
+  public List<PairCBO> read(File file) throws IOException, ParseException {
+    pairCount = 0;
+    topPairs.clear();
+    ResultJSONReader.readRows(file, this);
+    return getTopPairs();
+  }
+
+  /**
+   * Reads pair CBO results, rows of [first class, second class, pair CBO]
+   *
+   * @return pairs with the highest pair CBO, highest first
+   */
+  public List<PairCBO> read(Reader reader, boolean ndjson) throws IOException, ParseException {
+    pairCount = 0;
+    topPairs.clear();
+    ResultJSONReader.readRows(reader, ndjson, this);
+    return getTopPairs();
+  }
+
+  /** Reads the pair columns of a metrics file, only the names of kept pairs are decoded */
+  public List<PairCBO> read(MetricsFile metricsFile) throws IOException {
+    pairCount = 0;
+    topPairs.clear();
+    IntBuffer firstClasses = metricsFile.getColumn(MetricsFile.PAIR_FIRST);
+    IntBuffer secondClasses = metricsFile.getColumn(MetricsFile.PAIR_SECOND);
+    IntBuffer pairCBOs = metricsFile.getColumn(MetricsFile.PAIR_CBO);
+    for (int pair = 0; pair < pairCBOs.limit(); pair++) {
+      int pairCBO = pairCBOs.get(pair);
+      long position = pairCount++;
+      if (isKept(pairCBO)) {
+        offer(
+            new PairCBO(
+                metricsFile.getClassName(firstClasses.get(pair)),
+                metricsFile.getClassName(secondClasses.get(pair)),
+                pairCBO,
+                position));
+      }
+    }
+    return getTopPairs();
+  }
+
+  private List<PairCBO> getTopPairs() {
+    List<PairCBO> pairs = new ArrayList<>(topPairs);
+    pairs.sort(HIGHEST_FIRST);
+    return pairs;
+  }
+
+  /** @return number of pairs in the results, including the ones that weren't kept */
+  public long getPairCount() {
+    return pairCount;
+  }
+
+  @Override
+  public void accept(List<Object> row) {
+    if (row.size() != 3) {
+      return;
+    }
+    int pairCBO = Integer.parseInt(String.valueOf(row.get(2)));
+    long position = pairCount++;
+    if (isKept(pairCBO)) {
+      offer(
+          new PairCBO(String.valueOf(row.get(0)), String.valueOf(row.get(1)), pairCBO, position));
+    }
+  }
+
+  /** @return false if a pair read next with that value would be dropped right away */
+  private boolean isKept(int pairCBO) {
+    // Equal values of later pairs rank lower
+    return MAX_PAIRS > 0 && (topPairs.size() < MAX_PAIRS || pairCBO > topPairs.peek().pairCBO);
+  }
+
+  private void offer(PairCBO pair) {
+    topPairs.add(pair);
+    if (topPairs.size() > MAX_PAIRS) {
+      topPairs.poll();
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package dev.meldau.sca;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Lets a goal skip its work if neither its inputs nor its outputs changed since its last successful
+ * run.
+ *
+ * <p>The fingerprint of the inputs covers the configuration of the goal and the path, size and
+ * modification time of every input file, the content of class files is not read. After a
+ * successful run the fingerprint is recorded together with the state of the outputs, so outputs
+ * that were deleted or overwritten by another goal lead to a new run as well.
+ *
+ * @author Ingo Meldau
+ */
+public class UpToDateCheck {
+
+  private final String GOAL;
+  private final File FINGERPRINT_FILE;
+  private final Supplier<List<File>> OUTPUTS;
+  private final MessageDigest inputDigest = newDigest();
+  private String inputFingerprint;
+
+  /**
+   * @param scaOutputDir directory the fingerprints are recorded in
+   * @param goal name of the goal, each goal has a fingerprint of its own
+   * @param outputs files and directories written by the goal
+   */
+  public UpToDateCheck(File scaOutputDir, String goal, List<File> outputs) {
+    this(scaOutputDir, goal, () -> outputs);
+  }
+
+  /**
+   * @param scaOutputDir directory the fingerprints are recorded in
+   * @param goal name of the goal, each goal has a fingerprint of its own
+   * @param outputs lists the files and directories written by the goal, each time the outputs are
+   *     fingerprinted, e.g. outputs named after the results only exist after the run
+   */
+  public UpToDateCheck(File scaOutputDir, String goal, Supplier<List<File>> outputs) {
+    this.GOAL = goal;
+    this.FINGERPRINT_FILE = new File(scaOutputDir, "fingerprints/" + goal + ".fingerprint");
+    this.OUTPUTS = outputs;
+    addValue("goal", goal);
+  }
+
+  /** Adds a configuration value to the input fingerprint */
+  public UpToDateCheck addValue(String name, Object value) {
+    inputDigest.update((name + "=" + value + "\n").getBytes(StandardCharsets.UTF_8));
+    return this;
+  }
+
+  /** Adds the state of files and of all files in directories to the input fingerprint */
+  public UpToDateCheck addFiles(Collection<File> files) throws IOException {
+    for (File file : files) {
+      addFileStates(inputDigest, file);
+    }
+    return this;
+  }
+
+  /** Adds the plugin itself to the input fingerprint, another version may produce other results */
+  public UpToDateCheck addPlugin() throws IOException {
+    try {
+      File pluginLocation =
+          new File(UpToDateCheck.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      return addFiles(Collections.singletonList(pluginLocation));
+    } catch (URISyntaxException e) {
+      throw new IOException("Couldn't locate the plugin.", e);
+    }
+  }
+
+  /**
+   * Starts the up-to-date check of a report run on its own. The check covers the analysis results
+   * the report is created from, the plugin itself and the generated pages: the report itself and
+   * its further pages named outputName-N.html, if it has any.
+   */
+  static UpToDateCheck forReport(
+      File scaOutputDir, File reportOutputDirectory, String outputName, List<File> results)
+      throws MojoExecutionException {
+    UpToDateCheck upToDateCheck =
+        new UpToDateCheck(
+            scaOutputDir, outputName, () -> getReportPages(reportOutputDirectory, outputName));
+    try {
+      return upToDateCheck.addFiles(results).addPlugin();
+    } catch (IOException e) {
+      e.printStackTrace();
+      throw new MojoExecutionException("Couldn't fingerprint the results of " + outputName + ".");
+    }
+  }
+
+  /**
+   * Compares the inputs and outputs with the ones recorded by the last successful run. If they
+   * differ the recorded fingerprint is removed, so an interrupted or failing run can't be taken as
+   * up to date later on.
+   *
+   * @return true if the goal can be skipped
+   */
+  public boolean isUpToDate(Log log) {
+    try {
+      List<String> recorded =
+          FINGERPRINT_FILE.isFile()
+              ? Files.readAllLines(FINGERPRINT_FILE.toPath(), StandardCharsets.UTF_8)
+              : new ArrayList<>();
+      if (recorded.size() == 2
+          && recorded.get(0).equals(getInputFingerprint())
+          && recorded.get(1).equals(getOutputFingerprint())) {
+        log.info("Inputs and configuration of " + GOAL + " are unchanged, skipping.");
+        return true;
+      }
+      Files.deleteIfExists(FINGERPRINT_FILE.toPath());
+    } catch (IOException e) {
+      log.warn("Couldn't check whether " + GOAL + " is up to date.", e);
+    }
+    return false;
+  }
+
+  /**
+   * @return the report and its further pages, the number of pages is only known after the report
+   *     was generated, so they are listed from the directory
+   */
+  private static List<File> getReportPages(File reportOutputDirectory, String outputName) {
+    List<File> pages = new ArrayList<>();
+    pages.add(new File(reportOutputDirectory, outputName + ".html"));
+    File[] furtherPages =
+        reportOutputDirectory.listFiles(
+            (directory, name) -> name.matches(Pattern.quote(outputName) + "-[0-9]+\\.html"));
+    if (furtherPages != null) {
+      Arrays.sort(furtherPages);
+      pages.addAll(Arrays.asList(furtherPages));
+    }
+    return pages;
+  }
+
+  /** Records the fingerprints of inputs and outputs after a successful run */
+  @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
+  public void record(Log log) {
+    try {
+      //noinspection ResultOfMethodCallIgnored
+      FINGERPRINT_FILE.getParentFile().mkdirs();
+      Files.write(
+          FINGERPRINT_FILE.toPath(),
+          (getInputFingerprint() + "\n" + getOutputFingerprint() + "\n")
+              .getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      log.warn("Couldn't record fingerprint of " + GOAL + ".", e);
+    }
+  }
+
+  /** @return fingerprint of all inputs added so far, no inputs can be added afterwards */
+  String getInputFingerprint() {
+    if (inputFingerprint == null) {
+      inputFingerprint = toHex(inputDigest.digest());
+    }
+    return inputFingerprint;
+  }
+
+  /** @return fingerprint of the current state of the outputs */
+  String getOutputFingerprint() throws IOException {
+    MessageDigest outputDigest = newDigest();
+    for (File output : OUTPUTS.get()) {
+      addFileStates(outputDigest, output);
+    }
+    return toHex(outputDigest.digest());
+  }
+
+  /** Adds path, size and modification time of file or of all files below it to digest */
+  private static void addFileStates(MessageDigest digest, File file) throws IOException {
+    if (!file.exists()) {
+      digest.update(("missing " + file.getAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8));
+      return;
+    }
+    List<Path> paths;
+    try (Stream<Path> walk = Files.walk(file.toPath())) {
+      paths = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+    for (Path path : paths) {
+      String state =
+          path.toAbsolutePath()
+              + " "
+              + Files.size(path)
+              + " "
+              + Files.getLastModifiedTime(path).toMillis()
+              + "\n";
+      digest.update(state.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform has to support SHA-1
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+}
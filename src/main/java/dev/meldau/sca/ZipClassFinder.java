@@ -0,0 +1,270 @@
+package dev.meldau.sca;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Finds all class files in a zip archive (jar, war, shaded uber-jar, ...) without unpacking it.
+ *
+ * <p>The archive is memory-mapped and its central directory is read directly from the mapping.
+ * The content of an entry is copied or inflated straight from the mapping into the byte array
+ * handed to the ClassReader. Archives with more than 65535 entries (ZIP64) and archives with
+ * leading data are supported. Entries below META-INF/ (e.g. versioned classes of multi-release
+ * jars) are skipped.
+ *
+ * @author Ingo Meldau
+ */
+public class ZipClassFinder implements ClassSourceFinder {
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int END_SIZE = 22;
+  private static final int ZIP64_LOCATOR_SIZE = 20;
+  private static final int ZIP64_END_SIZE = 56;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+
+  final File ARCHIVE;
+  private final String ENTRY_PREFIX;
+
+  public ZipClassFinder(File archive) {
+    this(archive, "");
+  }
+
+  /** @param entryPrefix only entries below this prefix are analyzed, e.g. "classes/" */
+  public ZipClassFinder(File archive, String entryPrefix) {
+    this.ARCHIVE = archive;
+    this.ENTRY_PREFIX = entryPrefix;
+  }
+
+  /** Hands every class file entry of ARCHIVE to classSourceConsumer, in central directory order */
+  @Override
+  public void findClassSources(Consumer<ClassSource> classSourceConsumer) throws IOException {
+    if (!ARCHIVE.isFile()) {
+      throw new FileNotFoundException("Archive that should contain class Files not existent.");
+    }
+    ByteBuffer archive;
+    try (FileChannel channel = FileChannel.open(ARCHIVE.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Archives larger than 2 GB can't be mapped: " + ARCHIVE);
+      }
+      // The mapping stays valid after the channel is closed
+      archive = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    archive.order(ByteOrder.LITTLE_ENDIAN);
+
+    int endPosition = findEndOfCentralDirectory(archive);
+    long entries = unsignedShort(archive, endPosition + 10);
+    long centralDirectorySize = unsignedInt(archive, endPosition + 12);
+    long centralDirectoryOffset = unsignedInt(archive, endPosition + 16);
+    int centralDirectoryEnd = endPosition;
+
+    int zip64EndPosition = endPosition - ZIP64_LOCATOR_SIZE - ZIP64_END_SIZE;
+    if (endPosition >= ZIP64_LOCATOR_SIZE
+        && archive.getInt(endPosition - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE) {
+      if (zip64EndPosition < 0 || archive.getInt(zip64EndPosition) != ZIP64_END_SIGNATURE) {
+        throw new IOException("Unsupported ZIP64 end of central directory in " + ARCHIVE);
+      }
+      entries = archive.getLong(zip64EndPosition + 32);
+      centralDirectorySize = archive.getLong(zip64EndPosition + 40);
+      centralDirectoryOffset = archive.getLong(zip64EndPosition + 48);
+      centralDirectoryEnd = zip64EndPosition;
+    }
+
+    // Offsets are relative to the start of the zip data, which is not the start of the file if
+    // something (a launcher script, the jmod header, ...) is prepended
+    long archiveStart = centralDirectoryEnd - centralDirectorySize - centralDirectoryOffset;
+    if (archiveStart < 0) {
+      throw new IOException("Corrupt central directory in " + ARCHIVE);
+    }
+
+    int position = (int) (archiveStart + centralDirectoryOffset);
+    for (long entry = 0; entry < entries; entry++) {
+      if (archive.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+        throw new IOException("Corrupt central directory in " + ARCHIVE);
+      }
+      int method = unsignedShort(archive, position + 10);
+      long compressedSize = unsignedInt(archive, position + 20);
+      long size = unsignedInt(archive, position + 24);
+      int nameLength = unsignedShort(archive, position + 28);
+      int extraLength = unsignedShort(archive, position + 30);
+      int commentLength = unsignedShort(archive, position + 32);
+      long localHeaderOffset = unsignedInt(archive, position + 42);
+
+      byte[] nameBytes = new byte[nameLength];
+      ByteBuffer nameBuffer = archive.duplicate();
+      nameBuffer.position(position + 46);
+      nameBuffer.get(nameBytes);
+      String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+      // Sizes and offset that don't fit into 32 bit are stored in the ZIP64 extra field
+      int extra = position + 46 + nameLength;
+      int extraEnd = extra + extraLength;
+      while (extra + 4 <= extraEnd) {
+        int headerId = unsignedShort(archive, extra);
+        int dataSize = unsignedShort(archive, extra + 2);
+        if (headerId == 0x0001) {
+          int value = extra + 4;
+          if (size == 0xFFFFFFFFL) {
+            size = archive.getLong(value);
+            value += 8;
+          }
+          if (compressedSize == 0xFFFFFFFFL) {
+            compressedSize = archive.getLong(value);
+            value += 8;
+          }
+          if (localHeaderOffset == 0xFFFFFFFFL) {
+            localHeaderOffset = archive.getLong(value);
+          }
+        }
+        extra += 4 + dataSize;
+      }
+
+      if (name.startsWith(ENTRY_PREFIX)
+          && name.endsWith(".class")
+          && !name.startsWith("META-INF/", ENTRY_PREFIX.length())) {
+        classSourceConsumer.accept(
+            new ZipEntry(
+                archive,
+                ARCHIVE + "!/" + name,
+                archiveStart + localHeaderOffset,
+                method,
+                compressedSize,
+                size));
+      }
+      position += 46 + nameLength + extraLength + commentLength;
+    }
+  }
+
+  /** @return position of the end of central directory record */
+  private int findEndOfCentralDirectory(ByteBuffer archive) throws IOException {
+    int lowestPosition = Math.max(0, archive.limit() - END_SIZE - 0xFFFF);
+    for (int position = archive.limit() - END_SIZE; position >= lowestPosition; position--) {
+      if (archive.getInt(position) == END_SIGNATURE
+          && position + END_SIZE + unsignedShort(archive, position + 20) == archive.limit()) {
+        return position;
+      }
+    }
+    throw new IOException("Not a zip archive: " + ARCHIVE);
+  }
+
+  private static int unsignedShort(ByteBuffer buffer, int position) {
+    return buffer.getShort(position) & 0xFFFF;
+  }
+
+  private static long unsignedInt(ByteBuffer buffer, int position) {
+    return buffer.getInt(position) & 0xFFFFFFFFL;
+  }
+
+  /** A class file entry of a mapped archive */
+  static class ZipEntry implements ClassSource {
+    private final ByteBuffer archive;
+    private final String name;
+    private final long localHeaderPosition;
+    private final int method;
+    private final long compressedSize;
+    private final long size;
+
+    ZipEntry(
+        ByteBuffer archive,
+        String name,
+        long localHeaderPosition,
+        int method,
+        long compressedSize,
+        long size) {
+      this.archive = archive;
+      this.name = name;
+      this.localHeaderPosition = localHeaderPosition;
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public long getSize() {
+      return size;
+    }
+
+    @Override
+    public byte[] readBytes() throws IOException {
+      if (size > Integer.MAX_VALUE - 8
+          || localHeaderPosition + 30 > archive.limit()
+          || archive.getInt((int) localHeaderPosition) != LOCAL_HEADER_SIGNATURE) {
+        throw new IOException("Corrupt entry " + name);
+      }
+      int header = (int) localHeaderPosition;
+      long dataStart =
+          header + 30L + unsignedShort(archive, header + 26) + unsignedShort(archive, header + 28);
+      if (dataStart + compressedSize > archive.limit()) {
+        throw new IOException("Corrupt entry " + name);
+      }
+      // Absolute reads on a duplicate keep the shared mapping usable from several threads
+      ByteBuffer data = archive.duplicate();
+      data.limit((int) (dataStart + compressedSize));
+      data.position((int) dataStart);
+
+      byte[] bytes = new byte[(int) size];
+      if (method == STORED) {
+        if (compressedSize != size) {
+          throw new IOException("Corrupt entry " + name);
+        }
+        data.get(bytes);
+      } else if (method == DEFLATED) {
+        Inflater inflater = new Inflater(true);
+        try {
+          inflater.setInput(data);
+          int inflated = 0;
+          while (inflated < bytes.length) {
+            int count = inflater.inflate(bytes, inflated, bytes.length - inflated);
+            if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+              break;
+            }
+            inflated += count;
+          }
+          if (inflated != bytes.length) {
+            throw new IOException("Corrupt entry " + name);
+          }
+        } catch (DataFormatException e) {
+          throw new IOException("Corrupt entry " + name, e);
+        } finally {
+          inflater.end();
+        }
+      } else {
+        throw new IOException("Unsupported compression method " + method + " of entry " + name);
+      }
+      return bytes;
+    }
+  }
+}
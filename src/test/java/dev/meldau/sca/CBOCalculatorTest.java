@@ -0,0 +1,70 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class CBOCalculatorTest {
+
+  CBOCalculator cboCalculator;
+
+  @BeforeEach
+  void setUp() {
+    CouplingGraph.Builder builder = new CouplingGraph.Builder();
+    for (String vertex : new String[] {"a", "b", "c", "d"}) {
+      builder.addVertex(vertex);
+    }
+    builder.addReference("a", "b", ConnectionType.CALLS_METHOD);
+    builder.addReference("a", "b", ConnectionType.LOCAL_VARIABLE);
+    builder.addReference("b", "a", ConnectionType.PARAMETER_TYPE);
+    builder.addReference("c", "a", ConnectionType.SUPERCLASS);
+    builder.addReference("c", "b", ConnectionType.INSTANCE_VARIABLE);
+    cboCalculator = new CBOCalculator(builder.build());
+  }
+
+  @Test
+  void calculateCBO() {
+    assertEquals(1, cboCalculator.calculateCBO().get("a"));
+    assertEquals(2, cboCalculator.calculateCBO().get("c"));
+    assertEquals(0, cboCalculator.calculateCBO().get("d"));
+  }
+
+  @Test
+  void calculatePairCBO() {
+    // References of both directions are summed up, pairs without any reference are left out
+    assertEquals(
+        Arrays.asList(
+            Arrays.asList("a", "b", "3"), Arrays.asList("a", "c", "1"), Arrays.asList("b", "c", "1")),
+        cboCalculator.calculatePairCBO());
+  }
+
+  @Test
+  void streamPairCBO() throws IOException {
+    List<String> pairs = new ArrayList<>();
+    cboCalculator.calculatePairCBO(
+        (firstClass, secondClass, pairCBO) -> pairs.add(firstClass + secondClass + pairCBO));
+    assertEquals(Arrays.asList("ab3", "ac1", "bc1"), pairs);
+  }
+}
@@ -0,0 +1,118 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class ClassFactsCacheTest {
+
+  @TempDir Path tempDir;
+
+  /** @return all facts of the class as text, used to compare parsed and cached facts */
+  static String describe(ClassFacts classFacts) {
+    StringBuilder description = new StringBuilder();
+    description.append(classFacts.getName()).append(' ').append(classFacts.getSuperName());
+    description.append(classFacts.getFieldDescriptors());
+    for (ClassFacts.MethodFacts method : classFacts.getMethods()) {
+      description.append(' ').append(method.getName()).append(method.getDescriptor());
+      for (ClassFacts.MemberReference reference : method.getReferences()) {
+        description.append(reference.isField() ? " F:" : " M:");
+        description.append(reference.getOwner()).append('.').append(reference.getName());
+      }
+      description.append(method.getLocalVariableDescriptors());
+    }
+    description.append(classFacts.getDependencies());
+    return description.toString();
+  }
+
+  List<String> read(File classDir, ClassFactsCache factsCache) throws IOException {
+    List<String> descriptions = new ArrayList<>();
+    for (ClassModel classModel :
+        ClassModel.readEach(
+            Collections.singletonList(new ClassFileFinder(classDir)), 2, true, factsCache)) {
+      for (ClassFacts classFacts : classModel.getClassFacts()) {
+        descriptions.add(describe(classFacts));
+      }
+    }
+    return descriptions;
+  }
+
+  @Test
+  void cachedFactsAreReused() throws IOException {
+    File classDir = new File("src/test/resources/ClassesWithCycle");
+    File cacheFile = tempDir.resolve("class-facts.cache").toFile();
+    List<String> parsed = read(classDir, null);
+
+    ClassFactsCache firstRun = new ClassFactsCache(cacheFile);
+    assertEquals(parsed, read(classDir, firstRun));
+    assertEquals(2, firstRun.getMisses());
+    assertEquals(0, firstRun.getHits());
+    firstRun.save();
+
+    ClassFactsCache secondRun = new ClassFactsCache(cacheFile);
+    assertEquals(parsed, read(classDir, secondRun));
+    assertEquals(0, secondRun.getMisses());
+    assertEquals(2, secondRun.getHits());
+  }
+
+  @Test
+  void changedClassIsParsed() throws IOException {
+    Path classDir = tempDir.resolve("classes");
+    Files.createDirectories(classDir);
+    for (String className : new String[] {"App", "SuperThing"}) {
+      Files.copy(
+          Path.of("src/test/resources/ClassesWithCycle", className + ".class"),
+          classDir.resolve(className + ".class"));
+    }
+    File cacheFile = tempDir.resolve("class-facts.cache").toFile();
+    ClassFactsCache firstRun = new ClassFactsCache(cacheFile);
+    read(classDir.toFile(), firstRun);
+    firstRun.save();
+
+    // SuperThing changes, App stays the same
+    Files.copy(
+        Path.of("src/test/resources/ClassesWithoutCycle/SuperThing.class"),
+        classDir.resolve("SuperThing.class"),
+        StandardCopyOption.REPLACE_EXISTING);
+    ClassFactsCache secondRun = new ClassFactsCache(cacheFile);
+    assertEquals(read(classDir.toFile(), null), read(classDir.toFile(), secondRun));
+    assertEquals(1, secondRun.getMisses());
+    assertEquals(1, secondRun.getHits());
+  }
+
+  @Test
+  void brokenCacheFile() throws IOException {
+    File cacheFile = tempDir.resolve("class-facts.cache").toFile();
+    Files.write(cacheFile.toPath(), new byte[] {0x53, 0x43, 0x41, 0x46, 0, 0, 0, 1, 0, 0, 0, 9});
+
+    ClassFactsCache factsCache = new ClassFactsCache(cacheFile);
+    read(new File("src/test/resources/ClassesWithCycle"), factsCache);
+    assertEquals(2, factsCache.getMisses());
+  }
+}
@@ -0,0 +1,304 @@
+package dev.meldau.sca;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.spi.ToolProvider;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class ClassGraphCreatorTest {
+
+  ClassGraphCreator classGraphCreatorWithLoop;
+  ClassGraphCreator classGraphCreatorWithoutLoop;
+  File classesWithCycle;
+  File classesWithoutCycle;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    classesWithCycle = new File("src/test/resources/ClassesWithCycle");
+    classGraphCreatorWithLoop = new ClassGraphCreator(classesWithCycle, classesWithCycle);
+    classesWithoutCycle = new File("src/test/resources/ClassesWithoutCycle");
+    classGraphCreatorWithoutLoop = new ClassGraphCreator(classesWithoutCycle, classesWithoutCycle);
+  }
+
+  @SuppressFBWarnings({"NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE", "RV_RETURN_VALUE_IGNORED_BAD_PRACTICE"})
+  @SuppressWarnings("ResultOfMethodCallIgnored")
+  @AfterEach
+  void tearDown() {
+    for (File candidate : Objects.requireNonNull(classesWithCycle.listFiles())) {
+      if (candidate.getName().endsWith(".dot")) {
+        candidate.delete();
+      }
+    }
+    for (File candidate : Objects.requireNonNull(classesWithoutCycle.listFiles())) {
+      if (candidate.getName().endsWith(".dot")) {
+        candidate.delete();
+      }
+    }
+  }
+
+  @Test
+  void getCycleGraph() {
+    SimpleDirectedGraph<String, InformativeEdge> loopGraph = classGraphCreatorWithLoop.getCycleGraph();
+    assertTrue(
+        loopGraph.containsEdge(
+            "dev.meldau.myjavamvntest.SuperThing", "dev.meldau.myjavamvntest.App"));
+    assertTrue(
+        loopGraph.containsEdge(
+            "dev.meldau.myjavamvntest.App", "dev.meldau.myjavamvntest.SuperThing"));
+    SimpleDirectedGraph<String, InformativeEdge> looplessGraph =
+        classGraphCreatorWithoutLoop.getCycleGraph();
+    assertTrue(
+        looplessGraph.containsEdge(
+            "dev.meldau.myjavamvntest.App", "dev.meldau.myjavamvntest.SuperThing"));
+    assertFalse(
+        looplessGraph.containsEdge(
+            "dev.meldau.myjavamvntest.SuperThing", "dev.meldau.myjavamvntest.App"));
+  }
+
+  @Test
+  void hasCycles() {
+    assertTrue(classGraphCreatorWithLoop.hasCycles());
+    assertFalse(classGraphCreatorWithoutLoop.hasCycles());
+  }
+
+  @Test
+  void createDotFile() throws IOException {
+    File dotFile = new File("src/test/resources/ClassesWithCycle/ClassesWithCycle_clean.dot");
+    File dotFile2 =
+        new File("src/test/resources/ClassesWithoutCycle/ClassesWithoutCycle_clean.dot");
+    // DOT files are only written on request
+    assertFalse(dotFile.exists());
+    classGraphCreatorWithLoop.exportDot(dotFile);
+    classGraphCreatorWithoutLoop.exportDot(dotFile2);
+    assertTrue(dotFile.exists());
+    assertTrue(dotFile2.exists());
+    assertTrue(
+        Files.readAllLines(dotFile.toPath())
+            .contains("  dev_meldau_myjavamvntest_App -> dev_meldau_myjavamvntest_SuperThing;"));
+  }
+
+  @Test
+  void createGraph() {
+    assertNotNull (classGraphCreatorWithLoop.getCycleGraph());
+    assertNotNull (classGraphCreatorWithoutLoop.getCycleGraph());
+  }
+
+  /** The graph has to be the one jdeps -verbose:class -filter:none creates */
+  @Test
+  void sameAsJdeps(@TempDir Path tempDir) {
+    ToolProvider jdeps = ToolProvider.findFirst("jdeps").orElseThrow(IllegalStateException::new);
+    assertEquals(
+        0,
+        jdeps.run(
+            System.out,
+            System.err,
+            "-dotoutput",
+            tempDir.toString(),
+            "-verbose:class",
+            "-filter:none",
+            classesWithCycle.getAbsolutePath()));
+
+    Set<String> jdepsEdges = new HashSet<>();
+    Pattern edgePattern = Pattern.compile("\"([^\" ]+)[^\"]*\"\\s*->\\s*\"([^\" ]+)[^\"]*\"");
+    try {
+      for (String line : Files.readAllLines(tempDir.resolve("ClassesWithCycle.dot"))) {
+        Matcher matcher = edgePattern.matcher(line);
+        if (matcher.find()) {
+          jdepsEdges.add(matcher.group(1) + " -> " + matcher.group(2));
+        }
+      }
+    } catch (IOException e) {
+      fail(e);
+    }
+
+    Set<String> edges = new HashSet<>();
+    SimpleDirectedGraph<String, InformativeEdge> graph = classGraphCreatorWithLoop.getCycleGraph();
+    for (InformativeEdge edge : graph.edgeSet()) {
+      edges.add(graph.getEdgeSource(edge) + " -> " + graph.getEdgeTarget(edge));
+    }
+    assertFalse(jdepsEdges.isEmpty());
+    assertEquals(jdepsEdges, edges);
+  }
+
+  @Test
+  void archiveInput(@TempDir Path tempDir) throws IOException {
+    File jar = tempDir.resolve("cycle.jar").toFile();
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (String className : new String[] {"App", "SuperThing"}) {
+        out.putNextEntry(new ZipEntry("dev/meldau/myjavamvntest/" + className + ".class"));
+        out.write(Files.readAllBytes(classesWithCycle.toPath().resolve(className + ".class")));
+      }
+    }
+    File outputDir = tempDir.resolve("cycles").toFile();
+    assertTrue(outputDir.mkdir());
+
+    // The graphs of all inputs are merged into one graph
+    ClassModel classModel =
+        new ClassModel(
+            Arrays.asList(new ZipClassFinder(jar), new ClassFileFinder(classesWithoutCycle)),
+            1,
+            false);
+    ClassGraphCreator classGraphCreator = new ClassGraphCreator(classModel, outputDir);
+    assertTrue(classGraphCreator.hasCycles());
+    assertFalse(new File(outputDir, "classes_clean.dot").exists());
+  }
+
+  @Test
+  void runtimeModules(@TempDir Path tempDir) throws IOException {
+    ClassModel classModel;
+    try (JrtClassFinder jrtClassFinder =
+        new JrtClassFinder(Collections.singletonList("java.logging"), 1)) {
+      classModel =
+          new ClassModel(
+              Arrays.asList(new ClassFileFinder(classesWithoutCycle), jrtClassFinder), 1, false);
+    }
+    ClassGraphCreator classGraphCreator = new ClassGraphCreator(classModel, tempDir.toFile());
+    assertTrue(classGraphCreator.getCycleGraph().containsVertex("java.util.logging.Logger"));
+    assertTrue(
+        classGraphCreator
+            .getCycleGraph()
+            .containsVertex("dev.meldau.myjavamvntest.SuperThing"));
+  }
+
+  @Test
+  void cyclesThroughDependencies(@TempDir Path tempDir) throws IOException {
+    // App is the project, SuperThing comes from a dependency and refers back to App
+    ClassModel projectModel =
+        new ClassModel(Collections.singletonList(new File(classesWithCycle, "App.class")));
+    String app = "dev.meldau.myjavamvntest.App";
+    String superThing = "dev.meldau.myjavamvntest.SuperThing";
+
+    ClassGraphCreator withoutDependencies = new ClassGraphCreator(projectModel, tempDir.toFile());
+    assertFalse(withoutDependencies.hasCycles());
+
+    ClassGraphCreator withDependencies =
+        new ClassGraphCreator(
+            projectModel.withDependencies(new ClassModel(classesWithCycle).getClassFacts()),
+            tempDir.toFile());
+    assertTrue(withDependencies.hasCycles());
+    assertTrue(withDependencies.getCycleGraph().containsEdge(superThing, app));
+    // Dependencies of SuperThing that don't lead back into the project are left out
+    assertEquals(
+        withoutDependencies.getCycleGraph().edgeSet().size() + 1,
+        withDependencies.getCycleGraph().edgeSet().size());
+  }
+
+  @Test
+  void snapshot(@TempDir Path tempDir) throws IOException {
+    File snapshotFile = tempDir.resolve("classes.snapshot").toFile();
+    classGraphCreatorWithLoop.writeSnapshot(snapshotFile, "key");
+    GraphSnapshot snapshot = GraphSnapshot.open(snapshotFile);
+    assertEquals("key", snapshot.getKey());
+
+    ClassGraphCreator loaded = new ClassGraphCreator(snapshot, "classes", tempDir.toFile());
+    SimpleDirectedGraph<String, InformativeEdge> graph = classGraphCreatorWithLoop.getCycleGraph();
+    // Vertices keep their order, the feedback arc set depends on it
+    assertEquals(
+        Arrays.asList(graph.vertexSet().toArray()),
+        Arrays.asList(loaded.getCycleGraph().vertexSet().toArray()));
+    assertEquals(graph.edgeSet().size(), loaded.getCycleGraph().edgeSet().size());
+    SimpleDirectedGraph<String, InformativeEdge> loadedGraph = loaded.getCycleGraph();
+    for (InformativeEdge edge : graph.edgeSet()) {
+      assertTrue(loadedGraph.containsEdge(graph.getEdgeSource(edge), graph.getEdgeTarget(edge)));
+    }
+    assertTrue(loaded.hasCycles());
+  }
+
+  @Test
+  void weighDependencies(@TempDir Path tempDir) throws IOException {
+    assertFalse(classGraphCreatorWithLoop.isWeighed());
+    CouplingGraph couplingGraph =
+        new CouplingMultiGraphGenerator(new ClassModel(classesWithCycle)).getCouplingGraph();
+    classGraphCreatorWithLoop.weighDependencies(couplingGraph);
+    assertTrue(classGraphCreatorWithLoop.isWeighed());
+
+    SimpleDirectedGraph<String, InformativeEdge> graph = classGraphCreatorWithLoop.getCycleGraph();
+    InformativeEdge appToSuperThing =
+        graph.getEdge("dev.meldau.myjavamvntest.App", "dev.meldau.myjavamvntest.SuperThing");
+    int coupling =
+        couplingGraph.getCoupling(
+            couplingGraph.getVertexId("dev/meldau/myjavamvntest/App"),
+            couplingGraph.getVertexId("dev/meldau/myjavamvntest/SuperThing"));
+    assertEquals(
+        couplingGraph.getCount(coupling), classGraphCreatorWithLoop.getWeight(appToSuperThing));
+    for (InformativeEdge edge : graph.edgeSet()) {
+      assertTrue(classGraphCreatorWithLoop.getWeight(edge) >= 1);
+    }
+
+    // The weights are part of the snapshot
+    File snapshotFile = tempDir.resolve("classes.snapshot").toFile();
+    classGraphCreatorWithLoop.writeSnapshot(snapshotFile, "key");
+    ClassGraphCreator loaded =
+        new ClassGraphCreator(GraphSnapshot.open(snapshotFile), "classes", tempDir.toFile());
+    assertTrue(loaded.isWeighed());
+    SimpleDirectedGraph<String, InformativeEdge> loadedGraph = loaded.getCycleGraph();
+    for (InformativeEdge edge : graph.edgeSet()) {
+      assertEquals(
+          classGraphCreatorWithLoop.getWeight(edge),
+          loaded.getWeight(
+              loadedGraph.getEdge(graph.getEdgeSource(edge), graph.getEdgeTarget(edge))));
+    }
+  }
+
+  @Test
+  void weighDependenciesOfDefaultPackage(@TempDir Path tempDir) throws IOException {
+    ToolProvider javac = ToolProvider.findFirst("javac").orElseThrow(IllegalStateException::new);
+    Path source = tempDir.resolve("Foo.java");
+    Files.write(
+        source,
+        Arrays.asList(
+            "class Foo { Bar bar; void foo() { bar.bar(); bar.bar(); bar.bar(); } }",
+            "class Bar { Foo foo; void bar() { foo.foo(); } }"));
+    assertEquals(0, javac.run(System.out, System.err, "-d", tempDir.toString(), source.toString()));
+
+    ClassModel classModel = new ClassModel(tempDir.toFile());
+    ClassGraphCreator classGraphCreator = new ClassGraphCreator(classModel, tempDir.toFile());
+    CouplingGraph couplingGraph = new CouplingMultiGraphGenerator(classModel).getCouplingGraph();
+    classGraphCreator.weighDependencies(couplingGraph);
+
+    // The coupling analysis drops the first letter of names without package, like descriptors
+    String foo = SymbolTable.normalize("Foo", SymbolTable.NestedClasses.KEEP);
+    String bar = SymbolTable.normalize("Bar", SymbolTable.NestedClasses.KEEP);
+    int coupling =
+        couplingGraph.getCoupling(couplingGraph.getVertexId(foo), couplingGraph.getVertexId(bar));
+    assertTrue(couplingGraph.getCount(coupling) > 1);
+    assertEquals(
+        couplingGraph.getCount(coupling),
+        classGraphCreator.getWeight(classGraphCreator.getCycleGraph().getEdge("Foo", "Bar")));
+  }
+}
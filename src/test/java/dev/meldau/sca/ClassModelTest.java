@@ -0,0 +1,108 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class ClassModelTest {
+
+  ClassModel classModel;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    classModel = new ClassModel(new File("src/test/resources/ClassesWithCycle/"));
+  }
+
+  ClassFacts getFacts(String className) {
+    for (ClassFacts classFacts : classModel.getClassFacts()) {
+      if (classFacts.getName().equals(className)) {
+        return classFacts;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  void getClassFacts() {
+    List<ClassFacts> classFacts = classModel.getClassFacts();
+    assertEquals(2, classFacts.size());
+
+    ClassFacts app = getFacts("dev/meldau/myjavamvntest/App");
+    assertNotNull(app);
+    assertEquals("java/lang/Object", app.getSuperName());
+    assertFalse(app.getMethods().isEmpty());
+
+    ClassFacts superThing = getFacts("dev/meldau/myjavamvntest/SuperThing");
+    assertNotNull(superThing);
+    assertFalse(superThing.getFieldDescriptors().isEmpty());
+  }
+
+  @Test
+  void sharedModel() {
+    // Both analyses must produce the same results from a shared model as from their own pass
+    LCOMScoreCalculator lcomScoreCalculator = new LCOMScoreCalculator(classModel);
+    assertEquals(2, (int) lcomScoreCalculator.getLCOMScores().get("dev/meldau/myjavamvntest/App"));
+    CouplingMultiGraphGenerator couplingMultiGraphGenerator =
+        new CouplingMultiGraphGenerator(classModel);
+    assertTrue(
+        couplingMultiGraphGenerator
+            .getGraph()
+            .containsEdge("dev/meldau/myjavamvntest/App", "dev/meldau/myjavamvntest/SuperThing"));
+  }
+
+  @Test
+  void withoutLocalVariables() throws IOException {
+    ClassModel withoutDebug =
+        new ClassModel(new File("src/test/resources/ClassesWithoutCycle/"), 1, false);
+    assertFalse(withoutDebug.isWithLocalVariables());
+    for (ClassFacts classFacts : withoutDebug.getClassFacts()) {
+      for (ClassFacts.MethodFacts method : classFacts.getMethods()) {
+        assertTrue(method.getLocalVariableDescriptors().isEmpty());
+      }
+    }
+    // Without local variables the coupling graph has no LOCAL_VARIABLE edges
+    for (LabeledEdge edge : new CouplingMultiGraphGenerator(withoutDebug).getGraph().edgeSet()) {
+      assertNotEquals(ConnectionType.LOCAL_VARIABLE, edge.getConnectionType());
+    }
+  }
+
+  @Test
+  void readEach() throws IOException {
+    List<ClassModel> classModels =
+        ClassModel.readEach(
+            Arrays.asList(
+                new ClassFileFinder(new File("src/test/resources/ClassesWithCycle/")),
+                new ClassFileFinder(new File("src/test/resources/ClassesWithoutCycle/"))),
+            2,
+            true);
+    assertEquals(2, classModels.size());
+    assertEquals(2, classModels.get(0).getClassFacts().size());
+    assertEquals(2, classModels.get(1).getClassFacts().size());
+
+    ClassModel combined = ClassModel.combine(classModels);
+    assertEquals(4, combined.getClassFacts().size());
+    assertSame(classModels.get(1).getClassFacts().get(0), combined.getClassFacts().get(2));
+  }
+}
@@ -0,0 +1,107 @@
+package dev.meldau.sca;
+
+import org.jgrapht.graph.DirectedMultigraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class CouplingGraphTest {
+
+  CouplingGraph couplingGraph;
+
+  @BeforeEach
+  void setUp() {
+    CouplingGraph.Builder builder = new CouplingGraph.Builder();
+    builder.addVertex("c");
+    builder.addVertex("a");
+    builder.addVertex("b");
+    builder.addReference("c", "b", ConnectionType.CALLS_METHOD);
+    builder.addReference("c", "a", ConnectionType.LOCAL_VARIABLE);
+    builder.addReference("c", "b", ConnectionType.CALLS_METHOD);
+    builder.addReference("c", "b", ConnectionType.SUPERCLASS);
+    builder.addReference("a", "c", ConnectionType.PARAMETER_TYPE);
+    couplingGraph = builder.build();
+  }
+
+  @Test
+  void vertices() {
+    // Vertices keep the order they were added in
+    assertEquals(3, couplingGraph.getVertexCount());
+    assertEquals("c", couplingGraph.getVertex(0));
+    assertEquals(2, couplingGraph.getVertexId("b"));
+    assertEquals(-1, couplingGraph.getVertexId("d"));
+  }
+
+  @Test
+  void couplings() {
+    assertEquals(3, couplingGraph.getCouplingCount());
+    assertEquals(2, couplingGraph.getOutDegree(0));
+    assertEquals(1, couplingGraph.getOutDegree(1));
+    assertEquals(0, couplingGraph.getOutDegree(2));
+    // Couplings are sorted by target
+    assertEquals(1, couplingGraph.getTarget(couplingGraph.getFirstCoupling(0)));
+    assertEquals(2, couplingGraph.getTarget(couplingGraph.getFirstCoupling(0) + 1));
+
+    int cToB = couplingGraph.getCoupling(0, 2);
+    assertEquals(3, couplingGraph.getCount(cToB));
+    assertEquals(2, couplingGraph.getCount(cToB, ConnectionType.CALLS_METHOD));
+    assertEquals(1, couplingGraph.getCount(cToB, ConnectionType.SUPERCLASS));
+    assertEquals(0, couplingGraph.getCount(cToB, ConnectionType.LOCAL_VARIABLE));
+    assertEquals(-1, couplingGraph.getCoupling(2, 0));
+  }
+
+  @Test
+  void inCouplings() {
+    assertEquals(1, couplingGraph.getInDegree(0));
+    assertEquals(1, couplingGraph.getInDegree(2));
+    int inCoupling = couplingGraph.getFirstInCoupling(2);
+    assertEquals(0, couplingGraph.getSource(inCoupling));
+    assertEquals(couplingGraph.getCoupling(0, 2), couplingGraph.getInCoupling(inCoupling));
+    assertEquals(1, couplingGraph.getSource(couplingGraph.getFirstInCoupling(0)));
+  }
+
+  @Test
+  void toMultigraph() throws IOException {
+    DirectedMultigraph<String, LabeledEdge> multigraph = couplingGraph.toMultigraph();
+    // One edge per connection type, repeated references are counted
+    assertEquals(4, multigraph.edgeSet().size());
+    assertEquals(2, multigraph.getAllEdges("c", "b").size());
+    for (LabeledEdge edge : multigraph.getAllEdges("c", "b")) {
+      assertEquals(edge.getConnectionType() == ConnectionType.CALLS_METHOD ? 2 : 1, edge.getCount());
+    }
+
+    // The counts of the edges add up to all references the classes make
+    CouplingMultiGraphGenerator generator =
+        new CouplingMultiGraphGenerator(new File("src/test/resources/ClassesWithoutCycle/"));
+    CouplingGraph classes = generator.getCouplingGraph();
+    int references = 0;
+    for (int coupling = 0; coupling < classes.getCouplingCount(); coupling++) {
+      references += classes.getCount(coupling);
+    }
+    int counted = 0;
+    for (LabeledEdge edge : generator.getGraph().edgeSet()) {
+      counted += edge.getCount();
+    }
+    assertEquals(references, counted);
+  }
+}
@@ -3,12 +3,17 @@ package dev.meldau.sca;
 import org.jgrapht.graph.DirectedMultigraph;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /*
  * Copyright 2020-2021 Ingo Meldau
@@ -45,13 +50,75 @@ class CouplingMultiGraphGeneratorTest {
 
     Set<LabeledEdge> labeledEdges = couplingMultiGraph.edgeSet();
     int edgeCounter = 0;
+    int referenceCounter = 0;
     for (LabeledEdge labeledEdge : labeledEdges) {
       if (labeledEdge.getSource().equals("dev/meldau/myjavamvntest/App")
           && labeledEdge.getTarget().equals("dev/meldau/myjavamvntest/SuperThing")
           && labeledEdge.getConnectionType() == ConnectionType.LOCAL_VARIABLE) {
         edgeCounter++;
+        referenceCounter += labeledEdge.getCount();
       }
     }
-    assertEquals(3, edgeCounter);
+    // The three local variables are collapsed into one counted edge
+    assertEquals(1, edgeCounter);
+    assertEquals(3, referenceCounter);
+  }
+
+  @Test
+  void withDependencies() throws IOException {
+    // App is the project, SuperThing comes from a dependency
+    File withCycle = new File("src/test/resources/ClassesWithCycle/");
+    ClassModel projectModel =
+        new ClassModel(Collections.singletonList(new File(withCycle, "App.class")));
+    String app = "dev/meldau/myjavamvntest/App";
+    String superThing = "dev/meldau/myjavamvntest/SuperThing";
+
+    CouplingMultiGraphGenerator withoutDependencies = new CouplingMultiGraphGenerator(projectModel);
+    assertTrue(withoutDependencies.getGraph().containsEdge(app, superThing));
+    assertFalse(withoutDependencies.getGraph().containsEdge(superThing, app));
+
+    CouplingMultiGraphGenerator withDependencies =
+        new CouplingMultiGraphGenerator(
+            projectModel.withDependencies(new ClassModel(withCycle).getClassFacts()));
+    assertTrue(withDependencies.getGraph().containsEdge(superThing, app));
+    // Only SuperThing is taken from the dependency, App is part of the project
+    assertEquals(Collections.singleton(superThing), withDependencies.getDependencyClasses());
+    assertEquals(
+        withoutDependencies.getGraph().outgoingEdgesOf(app).size(),
+        withDependencies.getGraph().outgoingEdgesOf(app).size());
+    assertEquals(
+        withoutDependencies.getGraph().vertexSet(), withDependencies.getGraph().vertexSet());
+  }
+
+  @Test
+  void snapshot(@TempDir Path tempDir) throws IOException {
+    File withCycle = new File("src/test/resources/ClassesWithCycle/");
+    ClassModel projectModel =
+        new ClassModel(Collections.singletonList(new File(withCycle, "App.class")));
+    CouplingMultiGraphGenerator generator =
+        new CouplingMultiGraphGenerator(
+            projectModel.withDependencies(new ClassModel(withCycle).getClassFacts()));
+    File snapshotFile = tempDir.resolve("coupling_graph.snapshot").toFile();
+    generator.writeSnapshot(snapshotFile, "key");
+
+    CouplingMultiGraphGenerator loaded =
+        CouplingMultiGraphGenerator.fromSnapshot(GraphSnapshot.open(snapshotFile));
+    CouplingGraph graph = generator.getCouplingGraph();
+    CouplingGraph loadedGraph = loaded.getCouplingGraph();
+    assertEquals(graph.getVertexCount(), loadedGraph.getVertexCount());
+    assertEquals(graph.getCouplingCount(), loadedGraph.getCouplingCount());
+    for (int vertex = 0; vertex < graph.getVertexCount(); vertex++) {
+      assertEquals(graph.getVertex(vertex), loadedGraph.getVertex(vertex));
+      assertEquals(graph.getInDegree(vertex), loadedGraph.getInDegree(vertex));
+    }
+    for (int coupling = 0; coupling < graph.getCouplingCount(); coupling++) {
+      assertEquals(graph.getTarget(coupling), loadedGraph.getTarget(coupling));
+      for (ConnectionType connectionType : ConnectionType.values()) {
+        assertEquals(
+            graph.getCount(coupling, connectionType),
+            loadedGraph.getCount(coupling, connectionType));
+      }
+    }
+    assertEquals(generator.getDependencyClasses(), loaded.getDependencyClasses());
   }
 }
@@ -0,0 +1,166 @@
+package dev.meldau.sca;
+
+import org.jgrapht.alg.cycle.JohnsonSimpleCycles;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class CycleEnumeratorTest {
+
+  private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+  /*
+   *   a -> b -> c -> a      b -> a
+   */
+  private static SimpleDirectedGraph<String, InformativeEdge> createGraph() {
+    SimpleDirectedGraph<String, InformativeEdge> graph =
+        new SimpleDirectedGraph<>(InformativeEdge.class);
+    for (String vertex : Arrays.asList("a", "b", "c")) {
+      graph.addVertex(vertex);
+    }
+    graph.addEdge("a", "b");
+    graph.addEdge("b", "c");
+    graph.addEdge("c", "a");
+    graph.addEdge("b", "a");
+    return graph;
+  }
+
+  @Test
+  void enumerate() throws IOException {
+    List<List<String>> cycles = new ArrayList<>();
+    boolean complete =
+        new CycleEnumerator(createGraph(), 8, 100)
+            .enumerate(Arrays.asList("a", "b", "c"), NO_DEADLINE, cycles::add);
+
+    assertTrue(complete);
+    // Shortest first, each cycle once, starting at its earliest class
+    assertEquals(
+        Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("a", "b", "c")), cycles);
+  }
+
+  @Test
+  void enumerateWithinMaxLength() throws IOException {
+    List<List<String>> cycles = new ArrayList<>();
+    boolean complete =
+        new CycleEnumerator(createGraph(), 2, 100)
+            .enumerate(Arrays.asList("a", "b", "c"), NO_DEADLINE, cycles::add);
+
+    // Longer cycles aren't part of the enumeration, so it is still complete
+    assertTrue(complete);
+    assertEquals(Arrays.asList(Arrays.asList("a", "b")), cycles);
+  }
+
+  @Test
+  void enumerateWithinMaxCycles() throws IOException {
+    List<List<String>> cycles = new ArrayList<>();
+    boolean complete =
+        new CycleEnumerator(createGraph(), 8, 1)
+            .enumerate(Arrays.asList("a", "b", "c"), NO_DEADLINE, cycles::add);
+
+    assertFalse(complete);
+    assertEquals(Arrays.asList(Arrays.asList("a", "b")), cycles);
+  }
+
+  @Test
+  void enumerateWithinDeadline() throws IOException {
+    // A complete graph of 30 classes has far more cycles than can be listed
+    SimpleDirectedGraph<String, InformativeEdge> graph =
+        new SimpleDirectedGraph<>(InformativeEdge.class);
+    List<String> vertices = new ArrayList<>();
+    for (int vertex = 0; vertex < 30; vertex++) {
+      vertices.add("v" + vertex);
+      graph.addVertex("v" + vertex);
+    }
+    for (String source : vertices) {
+      for (String target : vertices) {
+        if (!source.equals(target)) {
+          graph.addEdge(source, target);
+        }
+      }
+    }
+
+    long start = System.nanoTime();
+    boolean complete =
+        new CycleEnumerator(graph, 30, Integer.MAX_VALUE)
+            .enumerate(vertices, start + TimeUnit.MILLISECONDS.toNanos(100), cycle -> {});
+
+    assertFalse(complete);
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+  }
+
+  @Test
+  void enumerateRandomGraphs() throws IOException {
+    Random random = new Random(42);
+    for (int run = 0; run < 20; run++) {
+      SimpleDirectedGraph<String, InformativeEdge> graph =
+          new SimpleDirectedGraph<>(InformativeEdge.class);
+      for (int vertex = 0; vertex < 9; vertex++) {
+        graph.addVertex("v" + vertex);
+      }
+      for (int edge = 0; edge < 22; edge++) {
+        String source = "v" + random.nextInt(9);
+        String target = "v" + random.nextInt(9);
+        if (!source.equals(target)) {
+          graph.addEdge(source, target);
+        }
+      }
+      int maxLength = 2 + random.nextInt(5);
+
+      Set<Set<String>> expected = new HashSet<>();
+      int expectedCount = 0;
+      for (List<String> cycle : new JohnsonSimpleCycles<>(graph).findSimpleCycles()) {
+        if (cycle.size() <= maxLength) {
+          expected.add(new HashSet<>(cycle));
+          expectedCount++;
+        }
+      }
+      List<List<String>> cycles = new ArrayList<>();
+      Set<Set<String>> found = new HashSet<>();
+      CycleEnumerator cycleEnumerator = new CycleEnumerator(graph, maxLength, Integer.MAX_VALUE);
+      for (Set<String> component : new StrongComponentFinder(graph).getCyclicComponents()) {
+        int previousLength = 0;
+        int first = cycles.size();
+        assertTrue(cycleEnumerator.enumerate(component, NO_DEADLINE, cycles::add));
+        for (List<String> cycle : cycles.subList(first, cycles.size())) {
+          assertTrue(cycle.size() >= previousLength);
+          previousLength = cycle.size();
+          for (int i = 0; i < cycle.size(); i++) {
+            assertTrue(graph.containsEdge(cycle.get(i), cycle.get((i + 1) % cycle.size())));
+          }
+          assertEquals(cycle.size(), new HashSet<>(cycle).size());
+          found.add(new HashSet<>(cycle));
+        }
+      }
+      assertEquals(expectedCount, cycles.size());
+      assertEquals(expected, found);
+    }
+  }
+}
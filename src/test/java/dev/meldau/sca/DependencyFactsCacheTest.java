@@ -0,0 +1,111 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class DependencyFactsCacheTest {
+
+  static final Path CLASSES_DIR = new File("src/test/resources/ClassesWithCycle/").toPath();
+
+  @TempDir Path tempDir;
+
+  /** Writes the test classes into a jar, like a dependency in the local repository */
+  File createJar() throws IOException {
+    File jar = tempDir.resolve("dependency-1.0.jar").toFile();
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (String className : new String[] {"App", "SuperThing"}) {
+        out.putNextEntry(new ZipEntry("dev/meldau/myjavamvntest/" + className + ".class"));
+        out.write(Files.readAllBytes(CLASSES_DIR.resolve(className + ".class")));
+      }
+    }
+    return jar;
+  }
+
+  static List<String> describe(List<ClassFacts> facts) {
+    List<String> descriptions = new ArrayList<>();
+    for (ClassFacts classFacts : facts) {
+      descriptions.add(ClassFactsCacheTest.describe(classFacts));
+    }
+    return descriptions;
+  }
+
+  @Test
+  void sharedBetweenBuilds() throws IOException {
+    File jar = createJar();
+    File cacheDir = tempDir.resolve("sca-cache").toFile();
+
+    DependencyFactsCache firstBuild = new DependencyFactsCache(cacheDir);
+    List<ClassFacts> parsed = firstBuild.getFacts(jar, 2, true);
+    assertEquals(2, parsed.size());
+    assertEquals(0, firstBuild.getHits());
+    assertEquals(1, firstBuild.getMisses());
+    String checksum = DependencyFactsCache.checksum(jar);
+    assertTrue(firstBuild.getFactsFile(checksum, true).isFile());
+
+    DependencyFactsCache secondBuild = new DependencyFactsCache(cacheDir);
+    assertEquals(describe(parsed), describe(secondBuild.getFacts(jar, 2, true)));
+    assertEquals(1, secondBuild.getHits());
+    assertEquals(0, secondBuild.getMisses());
+
+    // Facts without local variables are stored separately
+    List<ClassFacts> withoutLocalVariables = secondBuild.getFacts(jar, 2, false);
+    assertEquals(1, secondBuild.getMisses());
+    assertTrue(secondBuild.getFactsFile(checksum, false).isFile());
+    for (ClassFacts classFacts : withoutLocalVariables) {
+      for (ClassFacts.MethodFacts method : classFacts.getMethods()) {
+        assertTrue(method.getLocalVariableDescriptors().isEmpty());
+      }
+    }
+  }
+
+  @Test
+  void brokenFactsFile() throws IOException {
+    File jar = createJar();
+    DependencyFactsCache dependencyFactsCache =
+        new DependencyFactsCache(tempDir.resolve("sca-cache").toFile());
+    List<ClassFacts> parsed = dependencyFactsCache.getFacts(jar, 1, true);
+
+    File factsFile = dependencyFactsCache.getFactsFile(DependencyFactsCache.checksum(jar), true);
+    Files.write(factsFile.toPath(), new byte[] {1, 2, 3});
+    assertEquals(describe(parsed), describe(dependencyFactsCache.getFacts(jar, 1, true)));
+    assertEquals(2, dependencyFactsCache.getMisses());
+  }
+
+  @Test
+  void classDirectory() throws IOException {
+    File cacheDir = tempDir.resolve("sca-cache").toFile();
+    DependencyFactsCache dependencyFactsCache = new DependencyFactsCache(cacheDir);
+    assertEquals(2, dependencyFactsCache.getFacts(CLASSES_DIR.toFile(), 1, true).size());
+    // Class directories of other modules change all the time, they are not cached
+    assertEquals(0, dependencyFactsCache.getMisses());
+    assertFalse(cacheDir.exists());
+  }
+}
@@ -1,16 +1,22 @@
 package dev.meldau.sca;
 
+import org.jgrapht.alg.cycle.CycleDetector;
 import org.jgrapht.graph.SimpleDirectedGraph;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /*
  * Copyright 2020-2021 Ingo Meldau
@@ -121,4 +127,138 @@ class FeedbackArcSetFinderTest {
     assertEquals(
         feedbackArcSet, feedbackArcSetFinderLoop.getFeedbackArcSet());
   }
+
+  @Test
+  void getFeedbackArcSetOfAcyclicGraph() {
+    assertTrue(feedbackArcSetFinderSimple.getFeedbackArcSet().isEmpty());
+  }
+
+  @Test
+  void getFeedbackArcSetOfTwoCycle() {
+    SimpleDirectedGraph<String, InformativeEdge> graph =
+        new SimpleDirectedGraph<>(InformativeEdge.class);
+    graph.addVertex("a");
+    graph.addVertex("b");
+    graph.addEdge("a", "b");
+    graph.addEdge("b", "a");
+    assertEquals(1, new FeedbackArcSetFinder(graph).getFeedbackArcSet().size());
+  }
+
+  @Test
+  void getFeedbackArcSetBreaksAllCycles() {
+    Random random = new Random(42);
+    for (int round = 0; round < 20; round++) {
+      SimpleDirectedGraph<String, InformativeEdge> graph =
+          new SimpleDirectedGraph<>(InformativeEdge.class);
+      int vertexCount = 5 + random.nextInt(60);
+      for (int vertex = 0; vertex < vertexCount; vertex++) {
+        graph.addVertex("v" + vertex);
+      }
+      for (int edge = 0; edge < vertexCount * 3; edge++) {
+        int source = random.nextInt(vertexCount);
+        int target = random.nextInt(vertexCount);
+        if (source != target) {
+          graph.addEdge("v" + source, "v" + target);
+        }
+      }
+      Set<InformativeEdge> feedbackArcSet = new FeedbackArcSetFinder(graph).getFeedbackArcSet();
+      assertTrue(graph.edgeSet().containsAll(feedbackArcSet));
+      graph.removeAllEdges(feedbackArcSet);
+      assertFalse(new CycleDetector<>(graph).detectCycles());
+    }
+  }
+
+  @Test
+  void getFeedbackArcSetPerComponent() throws InterruptedException {
+    Random random = new Random(42);
+    SimpleDirectedGraph<String, InformativeEdge> graph =
+        new SimpleDirectedGraph<>(InformativeEdge.class);
+    // Sparse, so there are several components next to acyclic parts
+    int vertexCount = 300;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      graph.addVertex("v" + vertex);
+    }
+    for (int edge = 0; edge < vertexCount; edge++) {
+      int source = random.nextInt(vertexCount);
+      int target = random.nextInt(vertexCount);
+      if (source != target) {
+        graph.addEdge("v" + source, "v" + target);
+      }
+    }
+    List<Set<String>> components = new StrongComponentFinder(graph).getCyclicComponents();
+    assertTrue(components.size() > 1);
+    FeedbackArcSetFinder feedbackArcSetFinder = new FeedbackArcSetFinder(graph);
+    Set<InformativeEdge> feedbackArcSet = feedbackArcSetFinder.getFeedbackArcSet(components, 4);
+    assertEquals(feedbackArcSet, feedbackArcSetFinder.getFeedbackArcSet(components, 1));
+    graph.removeAllEdges(feedbackArcSet);
+    assertFalse(new CycleDetector<>(graph).detectCycles());
+  }
+
+  @Test
+  void getFeedbackArcSetWithBudget() throws InterruptedException {
+    Random random = new Random(11);
+    SimpleDirectedGraph<String, InformativeEdge> graph =
+        new SimpleDirectedGraph<>(InformativeEdge.class);
+    int vertexCount = 200;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      graph.addVertex("v" + vertex);
+    }
+    for (int edge = 0; edge < vertexCount * 3; edge++) {
+      int source = random.nextInt(vertexCount);
+      int target = random.nextInt(vertexCount);
+      if (source != target) {
+        graph.addEdge("v" + source, "v" + target);
+      }
+    }
+    List<Set<String>> components = new StrongComponentFinder(graph).getCyclicComponents();
+    FeedbackArcSetFinder feedbackArcSetFinder = new FeedbackArcSetFinder(graph);
+    Set<InformativeEdge> greedy = feedbackArcSetFinder.getFeedbackArcSet(components, 2);
+    Set<InformativeEdge> improved = feedbackArcSetFinder.getFeedbackArcSet(components, 2, 60000);
+    assertTrue(improved.size() <= greedy.size());
+    graph.removeAllEdges(improved);
+    assertFalse(new CycleDetector<>(graph).detectCycles());
+  }
+
+  @Test
+  void getWeightedFeedbackArcSet() throws InterruptedException {
+    // Breaking loopA2 -> loopA3 is expensive, breaking each cycle elsewhere is cheap
+    InformativeEdge heavyEdge = loopTestGraph.getEdge("loopA2", "loopA3");
+    FeedbackArcSetFinder feedbackArcSetFinder =
+        new FeedbackArcSetFinder(loopTestGraph, edge -> edge == heavyEdge ? 100 : 1);
+    List<Set<String>> components = new StrongComponentFinder(loopTestGraph).getCyclicComponents();
+    Set<InformativeEdge> feedbackArcSet = feedbackArcSetFinder.getFeedbackArcSet(components, 1);
+    assertEquals(2, feedbackArcSet.size());
+    assertFalse(feedbackArcSet.contains(heavyEdge));
+    loopTestGraph.removeAllEdges(feedbackArcSet);
+    assertFalse(new CycleDetector<>(loopTestGraph).detectCycles());
+  }
+
+  @Test
+  void getWeightedFeedbackArcSetBreaksAllCycles() throws InterruptedException {
+    Random random = new Random(5);
+    for (int round = 0; round < 20; round++) {
+      SimpleDirectedGraph<String, InformativeEdge> graph =
+          new SimpleDirectedGraph<>(InformativeEdge.class);
+      int vertexCount = 5 + random.nextInt(60);
+      for (int vertex = 0; vertex < vertexCount; vertex++) {
+        graph.addVertex("v" + vertex);
+      }
+      for (int edge = 0; edge < vertexCount * 3; edge++) {
+        int source = random.nextInt(vertexCount);
+        int target = random.nextInt(vertexCount);
+        if (source != target) {
+          graph.addEdge("v" + source, "v" + target);
+        }
+      }
+      Map<InformativeEdge, Integer> weights = new HashMap<>();
+      for (InformativeEdge edge : graph.edgeSet()) {
+        weights.put(edge, 1 + random.nextInt(300));
+      }
+      List<Set<String>> components = new StrongComponentFinder(graph).getCyclicComponents();
+      Set<InformativeEdge> feedbackArcSet =
+          new FeedbackArcSetFinder(graph, weights::get).getFeedbackArcSet(components, 2, 1000);
+      graph.removeAllEdges(feedbackArcSet);
+      assertFalse(new CycleDetector<>(graph).detectCycles());
+    }
+  }
 }
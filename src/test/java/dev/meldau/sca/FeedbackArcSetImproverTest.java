@@ -0,0 +1,108 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class FeedbackArcSetImproverTest {
+
+  private static long inOneMinute() {
+    return System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+  }
+
+  @Test
+  void siftBadOrder() {
+    // Cycle 0 -> 1 -> 2 -> 3 -> 4 -> 0 in the reversed order needs one back arc instead of four
+    FeedbackArcSetImprover improver =
+        new FeedbackArcSetImprover(5, new int[] {0, 1, 2, 3, 4}, new int[] {1, 2, 3, 4, 0});
+    int[] positions = {4, 3, 2, 1, 0};
+    assertEquals(4, improver.countBackArcs(positions));
+
+    int[] order = improver.sift(new int[] {4, 3, 2, 1, 0}, inOneMinute());
+    int[] siftedPositions = new int[5];
+    for (int position = 0; position < 5; position++) {
+      siftedPositions[order[position]] = position;
+    }
+    assertEquals(1, improver.countBackArcs(siftedPositions));
+  }
+
+  @Test
+  void improveIsNeverWorse() throws InterruptedException {
+    Random random = new Random(3);
+    for (int round = 0; round < 10; round++) {
+      int vertexCount = 10 + random.nextInt(50);
+      int edgeCount = vertexCount * 3;
+      int[] sources = new int[edgeCount];
+      int[] targets = new int[edgeCount];
+      // Random graph without parallel edges and loops
+      boolean[][] seen = new boolean[vertexCount][vertexCount];
+      int edges = 0;
+      while (edges < edgeCount) {
+        int source = random.nextInt(vertexCount);
+        int target = random.nextInt(vertexCount);
+        if (source != target && !seen[source][target]) {
+          seen[source][target] = true;
+          sources[edges] = source;
+          targets[edges++] = target;
+        }
+      }
+      int[] greedy = FeedbackArcSetFinder.getPositions(vertexCount, sources, targets, null);
+      FeedbackArcSetImprover improver = new FeedbackArcSetImprover(vertexCount, sources, targets);
+      int[] improved = improver.improve(greedy, 2, inOneMinute());
+      assertTrue(improver.countBackArcs(improved) <= improver.countBackArcs(greedy));
+      // Still an order of all vertices
+      boolean[] taken = new boolean[vertexCount];
+      for (int position : improved) {
+        taken[position] = true;
+      }
+      for (boolean positionTaken : taken) {
+        assertTrue(positionTaken);
+      }
+      // Without reaching the deadline the result doesn't depend on the threads
+      assertArrayEquals(improved, improver.improve(greedy, 1, inOneMinute()));
+    }
+  }
+
+  @Test
+  void improveWithoutTimeLeft() throws InterruptedException {
+    FeedbackArcSetImprover improver =
+        new FeedbackArcSetImprover(5, new int[] {0, 1, 2, 3, 4}, new int[] {1, 2, 3, 4, 0});
+    int[] positions = {4, 3, 2, 1, 0};
+    int[] improved = improver.improve(positions, 1, System.nanoTime());
+    assertTrue(improver.countBackArcs(improved) <= 4);
+  }
+
+  @Test
+  void improveWeighted() throws InterruptedException {
+    // Cycle 0 -> 1 -> 2 -> 0, the greedy order cuts the heavy edge 2 -> 0
+    FeedbackArcSetImprover improver =
+        new FeedbackArcSetImprover(
+            3, new int[] {0, 1, 2}, new int[] {1, 2, 0}, new int[] {1, 5, 50});
+    int[] positions = {0, 1, 2};
+    assertEquals(50, improver.getBackArcWeight(positions));
+    int[] improved = improver.improve(positions, 1, inOneMinute());
+    assertEquals(1, improver.getBackArcWeight(improved));
+    assertEquals(1, improver.countBackArcs(improved));
+  }
+}
@@ -0,0 +1,97 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class GraphSnapshotTest {
+
+  @Test
+  void writeAndOpen(@TempDir Path tempDir) throws IOException {
+    File file = tempDir.resolve("graph.snapshot").toFile();
+    // a -> b (2 calls), a -> c (1 field), c -> a (1 call)
+    GraphSnapshot.write(
+        file,
+        "fingerprint",
+        Arrays.asList("a", "b", "c"),
+        new int[] {0, GraphSnapshot.DEPENDENCY_CLASS, 0},
+        new int[] {0, 2, 2, 3},
+        new int[] {1, 2, 0},
+        Arrays.asList("CALLS", "FIELD"),
+        new int[] {2, 0, 0, 1, 1, 0});
+
+    GraphSnapshot snapshot = GraphSnapshot.open(file);
+    assertEquals("fingerprint", snapshot.getKey());
+    assertEquals(3, snapshot.getVertexCount());
+    assertEquals(3, snapshot.getEdgeCount());
+    assertEquals("c", snapshot.getVertex(2));
+    assertEquals(GraphSnapshot.DEPENDENCY_CLASS, snapshot.getFlags(1));
+    assertEquals(0, snapshot.getFlags(2));
+    assertEquals(Arrays.asList("CALLS", "FIELD"), snapshot.getTypeNames());
+    assertArrayEquals(new int[] {0, 2, 2, 3}, snapshot.getOffsets());
+    assertArrayEquals(new int[] {1, 2, 0}, snapshot.getTargets());
+    assertArrayEquals(new int[] {2, 0, 0, 1, 1, 0}, snapshot.getCounts());
+  }
+
+  @Test
+  void withoutTypes(@TempDir Path tempDir) throws IOException {
+    File file = tempDir.resolve("graph.snapshot").toFile();
+    GraphSnapshot.write(
+        file,
+        "",
+        Arrays.asList("a", "b"),
+        new int[2],
+        new int[] {0, 1, 1},
+        new int[] {1},
+        Collections.emptyList(),
+        new int[0]);
+    GraphSnapshot snapshot = GraphSnapshot.open(file);
+    assertTrue(snapshot.getTypeNames().isEmpty());
+    assertEquals(0, snapshot.getCounts().length);
+    assertArrayEquals(new int[] {1}, snapshot.getTargets());
+  }
+
+  @Test
+  void openBrokenFile(@TempDir Path tempDir) throws IOException {
+    File file = tempDir.resolve("graph.snapshot").toFile();
+    GraphSnapshot.write(
+        file,
+        "key",
+        Arrays.asList("a", "b"),
+        new int[2],
+        new int[] {0, 1, 1},
+        new int[] {1},
+        Collections.emptyList(),
+        new int[0]);
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 4));
+    assertThrows(IOException.class, () -> GraphSnapshot.open(file));
+
+    Files.write(file.toPath(), "[]".getBytes());
+    assertThrows(IOException.class, () -> GraphSnapshot.open(file));
+  }
+}
@@ -0,0 +1,115 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class JrtClassFinderTest {
+
+  static final List<String> JAVA_BASE = Collections.singletonList("java.base");
+
+  List<String> classNames(ClassModel classModel) {
+    List<String> classNames = new ArrayList<>();
+    for (ClassFacts classFacts : classModel.getClassFacts()) {
+      classNames.add(classFacts.getName());
+    }
+    return classNames;
+  }
+
+  @Test
+  void findClassSources() throws IOException {
+    Set<String> names = Collections.synchronizedSet(new TreeSet<>());
+    new JrtClassFinder(JAVA_BASE, 0).findClassSources(source -> names.add(source.getName()));
+    assertTrue(names.size() > 1000);
+    assertTrue(names.contains("/modules/java.base/java/lang/String.class"));
+  }
+
+  @Test
+  void javaBaseModel() throws IOException {
+    // java.base is a large corpus that is available on every machine
+    ClassModel javaBase =
+        new ClassModel(Collections.singletonList(new JrtClassFinder(JAVA_BASE, 0)), 0, true);
+    assertTrue(classNames(javaBase).size() > 1000);
+    assertTrue(new LCOMScoreCalculator(javaBase).getLCOMScores().containsKey("java/lang/String"));
+    assertFalse(new CouplingMultiGraphGenerator(javaBase).getGraph().edgeSet().isEmpty());
+  }
+
+  @Test
+  void parallelism() throws IOException {
+    List<String> modules = Arrays.asList("java.logging", "java.sql");
+    ClassModel sequential =
+        new ClassModel(Collections.singletonList(new JrtClassFinder(modules, 1)), 1, true);
+    ClassModel parallel =
+        new ClassModel(Collections.singletonList(new JrtClassFinder(modules, 0)), 0, true);
+    assertEquals(classNames(sequential), classNames(parallel));
+  }
+
+  @Test
+  void runtimeImage() throws IOException {
+    File javaHome = new File(System.getProperty("java.home"));
+    List<String> names = new ArrayList<>();
+    try (JrtClassFinder jrtClassFinder =
+        new JrtClassFinder(javaHome, Collections.singletonList("java.logging"), 1)) {
+      jrtClassFinder.findClassSources(source -> names.add(source.getName()));
+    }
+    assertTrue(names.contains("/modules/java.logging/java/util/logging/Logger.class"));
+  }
+
+  @Test
+  void jmod() throws IOException {
+    File jmod = new File(System.getProperty("java.home"), "jmods/java.logging.jmod");
+    assumeTrue(jmod.isFile(), "runtime without jmods");
+
+    // A jmod contains the same classes as the module in the runtime image
+    Set<String> fromJmod =
+        new TreeSet<>(
+            classNames(
+                new ClassModel(
+                    Collections.singletonList(new ZipClassFinder(jmod, "classes/")), 0, true)));
+    Set<String> fromJrt =
+        new TreeSet<>(
+            classNames(
+                new ClassModel(
+                    Collections.singletonList(
+                        new JrtClassFinder(Collections.singletonList("java.logging"), 0)),
+                    0,
+                    true)));
+    assertEquals(fromJrt, fromJmod);
+  }
+
+  @Test
+  void unknownModule() {
+    assertThrows(
+        FileNotFoundException.class,
+        () ->
+            new JrtClassFinder(Collections.singletonList("no.such.module"), 0)
+                .findClassSources(source -> fail()));
+  }
+}
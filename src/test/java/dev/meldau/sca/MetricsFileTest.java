@@ -0,0 +1,66 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class MetricsFileTest {
+
+  @Test
+  void writeAndOpen(@TempDir Path tempDir) throws IOException {
+    File file = tempDir.resolve("metrics.bin").toFile();
+    List<String> classNames = Arrays.asList("a/B", "a/C", "a/Ä");
+    Map<String, int[]> columns = new LinkedHashMap<>();
+    columns.put(MetricsFile.CBO, new int[] {2, 0, 1});
+    columns.put(MetricsFile.PAIR_FIRST, new int[] {0, 0});
+    columns.put(MetricsFile.PAIR_SECOND, new int[] {1, 2});
+    columns.put(MetricsFile.PAIR_CBO, new int[] {3, 1});
+    MetricsFile.write(file, classNames, columns);
+
+    MetricsFile metricsFile = MetricsFile.open(file);
+    assertEquals(3, metricsFile.getClassCount());
+    assertEquals("a/B", metricsFile.getClassName(0));
+    assertEquals("a/Ä", metricsFile.getClassName(2));
+    IntBuffer cboColumn = metricsFile.getColumn(MetricsFile.CBO);
+    assertEquals(3, cboColumn.limit());
+    assertEquals(1, cboColumn.get(2));
+    assertEquals(2, metricsFile.getColumn(MetricsFile.PAIR_SECOND).get(1));
+    assertTrue(metricsFile.hasColumn(MetricsFile.PAIR_CBO));
+    assertFalse(metricsFile.hasColumn(MetricsFile.LCOM));
+    assertThrows(IOException.class, () -> metricsFile.getColumn(MetricsFile.LCOM));
+  }
+
+  @Test
+  void openOtherFile(@TempDir Path tempDir) throws IOException {
+    File file = tempDir.resolve("results.json").toFile();
+    Files.write(file.toPath(), "{\"a/B\":3}".getBytes());
+    assertThrows(IOException.class, () -> MetricsFile.open(file));
+  }
+}
@@ -0,0 +1,87 @@
+package dev.meldau.sca;
+
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class ModuleGraphCreatorTest {
+
+  static final Path CLASSES_WITH_CYCLE = Path.of("src/test/resources/ClassesWithCycle");
+
+  /** Copies one class into the classes directory of a module */
+  File createModule(Path tempDir, String module, String className) throws IOException {
+    Path packageDir = tempDir.resolve(module + "/classes/dev/meldau/myjavamvntest");
+    Files.createDirectories(packageDir);
+    Files.copy(
+        CLASSES_WITH_CYCLE.resolve(className + ".class"),
+        packageDir.resolve(className + ".class"));
+    return tempDir.resolve(module + "/classes").toFile();
+  }
+
+  @Test
+  void getModuleGraph(@TempDir Path tempDir) throws IOException {
+    // App and SuperThing depend on each other, but live in different modules
+    List<File> classDirs =
+        Arrays.asList(createModule(tempDir, "a", "App"), createModule(tempDir, "b", "SuperThing"));
+    List<ClassModel> classModels =
+        ClassModel.readEach(
+            Arrays.asList(
+                new ClassFileFinder(classDirs.get(0)), new ClassFileFinder(classDirs.get(1))),
+            0,
+            true);
+    Map<String, ClassModel> moduleClassModels = new LinkedHashMap<>();
+    moduleClassModels.put("a", classModels.get(0));
+    moduleClassModels.put("b", classModels.get(1));
+
+    File outputDir = tempDir.resolve("cycles").toFile();
+    assertTrue(outputDir.mkdir());
+    ClassGraphCreator classGraphCreator =
+        new ClassGraphCreator(ClassModel.combine(classModels), outputDir);
+
+    ModuleGraphCreator moduleGraphCreator =
+        new ModuleGraphCreator(classGraphCreator.getCycleGraph(), moduleClassModels);
+    SimpleDirectedGraph<String, InformativeEdge> moduleGraph = moduleGraphCreator.getModuleGraph();
+    assertEquals(2, moduleGraph.vertexSet().size());
+    assertTrue(moduleGraph.containsEdge("a", "b"));
+    assertTrue(moduleGraph.containsEdge("b", "a"));
+    assertTrue(moduleGraphCreator.hasCycles());
+
+    File dotFile = new File(outputDir, "modules.dot");
+    moduleGraphCreator.saveGraph(dotFile);
+    assertTrue(dotFile.isFile());
+  }
+
+  @Test
+  void toJdepsName() {
+    assertEquals(
+        "dev.meldau.sca.ClassFacts$MethodFacts",
+        ModuleGraphCreator.toJdepsName("dev/meldau/sca/ClassFacts$MethodFacts"));
+  }
+}
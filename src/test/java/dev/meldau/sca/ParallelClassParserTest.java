@@ -0,0 +1,71 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class ParallelClassParserTest {
+
+  ArrayList<File> classFiles;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    classFiles = new ClassFileFinder(new File("src/test/resources")).getClassFiles();
+  }
+
+  List<String> parseNames(int parallelism) throws IOException {
+    List<String> names = new ArrayList<>();
+    for (ClassFacts classFacts : new ParallelClassParser(parallelism, 0).parse(classFiles)) {
+      names.add(classFacts.getName() + " " + classFacts.getMethods().size());
+    }
+    return names;
+  }
+
+  @Test
+  void parse() throws IOException {
+    // The result order must not depend on the number of threads
+    List<String> sequential = parseNames(1);
+    assertEquals(classFiles.size(), sequential.size());
+    assertEquals(sequential, parseNames(2));
+    assertEquals(sequential, parseNames(8));
+  }
+
+  @Test
+  void parseWhileFinding() throws IOException {
+    // Class files found by the ClassFileFinder are returned sorted by path
+    for (int parallelism : new int[] {1, 4}) {
+      List<String> names = new ArrayList<>();
+      for (ClassFacts classFacts :
+          new ParallelClassParser(parallelism, 0)
+              .parseSources(
+                  Collections.singletonList(
+                      new ClassFileFinder(new File("src/test/resources"), parallelism)))) {
+        names.add(classFacts.getName() + " " + classFacts.getMethods().size());
+      }
+      assertEquals(parseNames(1), names);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package dev.meldau.sca;
+
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class ResultJSONReaderTest {
+
+  @Test
+  void readEntries() throws IOException, ParseException {
+    Map<String, Object> entries = new LinkedHashMap<>();
+    ResultJSONReader.readEntries(new StringReader("{\"a\":3,\"b\":0}"), false, entries::put);
+    assertEquals(Map.of("a", 3L, "b", 0L), entries);
+
+    entries.clear();
+    ResultJSONReader.readEntries(new StringReader("{\"a\":3}\n\n{\"b\":0}\n"), true, entries::put);
+    assertEquals(Arrays.asList("a", "b"), new ArrayList<>(entries.keySet()));
+  }
+
+  @Test
+  void readRows() throws IOException, ParseException {
+    List<List<Object>> rows = new ArrayList<>();
+    ResultJSONReader.readRows(new StringReader("[[\"a\",\"b\"],[\"b\",\"c\"]]"), false, rows::add);
+    assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("b", "c")), rows);
+
+    rows.clear();
+    ResultJSONReader.readRows(new StringReader("[\"a\",\"b\"]\n[\"b\",\"c\"]"), true, rows::add);
+    assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("b", "c")), rows);
+  }
+
+  @Test
+  void findFile(@TempDir Path tempDir) throws IOException, ParseException {
+    File directory = tempDir.toFile();
+    assertEquals(
+        new File(directory, "results.json"), ResultJSONReader.findFile(directory, "results"));
+
+    try (ResultJSONWriter writer = ResultJSONWriter.forRows(directory, "results", true)) {
+      writer.writeRow(Arrays.asList("a", "b", "3"));
+    }
+    File resultsFile = ResultJSONReader.findFile(directory, "results");
+    assertEquals(new File(directory, "results.ndjson"), resultsFile);
+    List<List<Object>> rows = new ArrayList<>();
+    ResultJSONReader.readRows(resultsFile, rows::add);
+    assertEquals(Arrays.asList(Arrays.asList("a", "b", "3")), rows);
+  }
+}
@@ -0,0 +1,83 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class ResultJSONWriterTest {
+
+  static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void writeEntries(@TempDir Path tempDir) throws IOException {
+    try (ResultJSONWriter writer =
+        ResultJSONWriter.forEntries(tempDir.toFile(), "results", false)) {
+      writer.writeEntry("a/B", 3);
+      writer.writeEntry("a/\"C\"", 0);
+    }
+    assertEquals(
+        "{\"a\\/B\":3,\"a\\/\\\"C\\\"\":0}",
+        read(ResultJSONWriter.getFile(tempDir.toFile(), "results", false)));
+
+    try (ResultJSONWriter writer = ResultJSONWriter.forEntries(tempDir.toFile(), "results", true)) {
+      writer.writeEntry("a/B", 3);
+    }
+    assertEquals(
+        "{\"a\\/B\":3}\n", read(ResultJSONWriter.getFile(tempDir.toFile(), "results", true)));
+    // The results of the other form are removed
+    assertFalse(ResultJSONWriter.getFile(tempDir.toFile(), "results", false).exists());
+  }
+
+  @Test
+  void writeRows(@TempDir Path tempDir) throws IOException {
+    try (ResultJSONWriter writer = ResultJSONWriter.forRows(tempDir.toFile(), "results", false)) {
+      writer.writeRow(Arrays.asList("a", "b", "3"));
+      writer.writeRow(Arrays.asList("b", "c", "1"));
+    }
+    assertEquals(
+        "[[\"a\",\"b\",\"3\"],[\"b\",\"c\",\"1\"]]",
+        read(new File(tempDir.toFile(), "results.json")));
+
+    try (ResultJSONWriter writer = ResultJSONWriter.forRows(tempDir.toFile(), "results", true)) {
+      writer.writeRow(Arrays.asList("a", "b", "3"));
+      writer.writeRow(Arrays.asList("b", "c", "1"));
+    }
+    assertEquals(
+        "[\"a\",\"b\",\"3\"]\n[\"b\",\"c\",\"1\"]\n",
+        read(new File(tempDir.toFile(), "results.ndjson")));
+  }
+
+  @Test
+  void writeEmpty(@TempDir Path tempDir) throws IOException {
+    ResultJSONWriter.forRows(tempDir.toFile(), "rows", false).close();
+    ResultJSONWriter.forEntries(tempDir.toFile(), "entries", false).close();
+    assertEquals("[]", read(new File(tempDir.toFile(), "rows.json")));
+    assertEquals("{}", read(new File(tempDir.toFile(), "entries.json")));
+  }
+}
@@ -0,0 +1,117 @@
+package dev.meldau.sca;
+
+import org.jgrapht.alg.connectivity.KosarajuStrongConnectivityInspector;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class StrongComponentFinderTest {
+
+  @Test
+  void getCyclicComponents() {
+    /*
+     *   a -> b -> c -> a      d -> e -> d      f -> a
+     */
+    SimpleDirectedGraph<String, InformativeEdge> graph =
+        new SimpleDirectedGraph<>(InformativeEdge.class);
+    for (String vertex : Arrays.asList("a", "b", "c", "d", "e", "f")) {
+      graph.addVertex(vertex);
+    }
+    graph.addEdge("a", "b");
+    graph.addEdge("b", "c");
+    graph.addEdge("c", "a");
+    graph.addEdge("d", "e");
+    graph.addEdge("e", "d");
+    graph.addEdge("f", "a");
+    graph.addEdge("c", "d");
+
+    List<Set<String>> components = new StrongComponentFinder(graph).getCyclicComponents();
+    assertEquals(2, components.size());
+    assertEquals(Arrays.asList("a", "b", "c"), Arrays.asList(components.get(0).toArray()));
+    assertEquals(new HashSet<>(Arrays.asList("d", "e")), components.get(1));
+  }
+
+  @Test
+  void getCyclicComponentsOfAcyclicGraph() {
+    SimpleDirectedGraph<String, InformativeEdge> graph =
+        new SimpleDirectedGraph<>(InformativeEdge.class);
+    graph.addVertex("a");
+    graph.addVertex("b");
+    graph.addEdge("a", "b");
+    assertTrue(new StrongComponentFinder(graph).getCyclicComponents().isEmpty());
+  }
+
+  @Test
+  void getCyclicComponentsOfLongCycle() {
+    // Deep enough to overflow the stack of a recursive search
+    SimpleDirectedGraph<String, InformativeEdge> graph =
+        new SimpleDirectedGraph<>(InformativeEdge.class);
+    int vertexCount = 100000;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      graph.addVertex("v" + vertex);
+    }
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      graph.addEdge("v" + vertex, "v" + (vertex + 1) % vertexCount);
+    }
+    List<Set<String>> components = new StrongComponentFinder(graph).getCyclicComponents();
+    assertEquals(1, components.size());
+    assertEquals(vertexCount, components.get(0).size());
+  }
+
+  @Test
+  void getCyclicComponentsLikeKosaraju() {
+    Random random = new Random(7);
+    for (int round = 0; round < 20; round++) {
+      SimpleDirectedGraph<String, InformativeEdge> graph =
+          new SimpleDirectedGraph<>(InformativeEdge.class);
+      int vertexCount = 5 + random.nextInt(80);
+      for (int vertex = 0; vertex < vertexCount; vertex++) {
+        graph.addVertex("v" + vertex);
+      }
+      for (int edge = 0; edge < vertexCount * 3 / 2; edge++) {
+        int source = random.nextInt(vertexCount);
+        int target = random.nextInt(vertexCount);
+        if (source != target) {
+          graph.addEdge("v" + source, "v" + target);
+        }
+      }
+      Set<Set<String>> expected = new HashSet<>();
+      for (Set<String> component :
+          new KosarajuStrongConnectivityInspector<>(graph).stronglyConnectedSets()) {
+        if (component.size() > 1) {
+          expected.add(new HashSet<>(component));
+        }
+      }
+      Set<Set<String>> actual = new LinkedHashSet<>();
+      for (Set<String> component : new StrongComponentFinder(graph).getCyclicComponents()) {
+        actual.add(new HashSet<>(component));
+      }
+      assertEquals(expected, actual);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class SymbolTableTest {
+
+  @Test
+  void intern() {
+    SymbolTable symbols = new SymbolTable(SymbolTable.NestedClasses.KEEP);
+    int id = symbols.intern("dev/meldau/sca/ClassFacts");
+    // Descriptors and array types refer to the same class
+    assertEquals(id, symbols.intern("Ldev/meldau/sca/ClassFacts;"));
+    assertEquals(id, symbols.intern("[[Ldev/meldau/sca/ClassFacts;"));
+    assertEquals("dev/meldau/sca/ClassFacts", symbols.getName(id));
+    assertNotEquals(id, symbols.intern("dev/meldau/sca/ClassModel"));
+    assertEquals(2, symbols.size());
+  }
+
+  @Test
+  void properties() {
+    SymbolTable symbols = new SymbolTable(SymbolTable.NestedClasses.KEEP);
+    assertTrue(symbols.isEmpty(symbols.intern("I")));
+    assertTrue(symbols.isEmpty(symbols.intern("[J")));
+    assertTrue(symbols.isJavaClass(symbols.intern("Ljava/lang/String;")));
+    assertTrue(symbols.isJavaClass(symbols.intern("java/Thing")));
+    assertFalse(symbols.isJavaClass(symbols.intern("javax/swing/JFrame")));
+    assertFalse(symbols.isJavaClass(symbols.intern("dev/meldau/sca/ClassFacts")));
+  }
+
+  @Test
+  void normalize() {
+    // Must give the same names as the regular expressions used before
+    String[] names = {
+      "dev/meldau/sca/ClassFacts$MethodFacts",
+      "[Ldev/meldau/sca/ClassFacts$MethodFacts;",
+      "Ljava/util/Map$Entry;",
+      "[[I",
+      "[[",
+      "lambda$main$0",
+      "<init>",
+      "App",
+      ";"
+    };
+    for (String name : names) {
+      String withoutPrefix = name.replaceAll("^\\[*[A-Z]", "");
+      assertEquals(
+          withoutPrefix.replaceAll("\\$", "_").replaceAll(";$", ""),
+          SymbolTable.normalize(name, SymbolTable.NestedClasses.KEEP));
+      assertEquals(
+          withoutPrefix.replaceAll("\\$.*", "").replaceAll(";$", ""),
+          SymbolTable.normalize(name, SymbolTable.NestedClasses.STRIP));
+    }
+  }
+}
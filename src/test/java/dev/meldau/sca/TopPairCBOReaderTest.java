@@ -0,0 +1,98 @@
+package dev.meldau.sca;
+
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class TopPairCBOReaderTest {
+
+  static final String RESULTS =
+      "[[\"a\",\"b\",\"3\"],[\"a\",\"c\",\"1\"],[\"b\",\"c\",\"5\"],[\"b\",\"d\",\"3\"],"
+          + "[\"c\",\"d\",\"2\"]]";
+
+  static List<String> describe(List<TopPairCBOReader.PairCBO> pairs) {
+    List<String> descriptions = new ArrayList<>();
+    for (TopPairCBOReader.PairCBO pair : pairs) {
+      descriptions.add(
+          pair.getFirstClass() + "-" + pair.getSecondClass() + ":" + pair.getPairCBO());
+    }
+    return descriptions;
+  }
+
+  @Test
+  void readKeepsHighestPairs() throws IOException, ParseException {
+    TopPairCBOReader topPairCBOReader = new TopPairCBOReader(3);
+    List<TopPairCBOReader.PairCBO> pairs =
+        topPairCBOReader.read(new StringReader(RESULTS), false);
+    // Equal values keep the order of the results
+    assertEquals(List.of("b-c:5", "a-b:3", "b-d:3"), describe(pairs));
+    assertEquals(5, topPairCBOReader.getPairCount());
+  }
+
+  @Test
+  void readAllPairs() throws IOException, ParseException {
+    List<TopPairCBOReader.PairCBO> pairs =
+        new TopPairCBOReader(10).read(new StringReader(RESULTS), false);
+    assertEquals(List.of("b-c:5", "a-b:3", "b-d:3", "c-d:2", "a-c:1"), describe(pairs));
+  }
+
+  @Test
+  void readNDJSON() throws IOException, ParseException {
+    String results = "[\"a\",\"b\",\"3\"]\n[\"b\",\"c\",\"5\"]\n[\"c\",\"d\",\"2\"]\n";
+    TopPairCBOReader topPairCBOReader = new TopPairCBOReader(2);
+    List<TopPairCBOReader.PairCBO> pairs = topPairCBOReader.read(new StringReader(results), true);
+    assertEquals(List.of("b-c:5", "a-b:3"), describe(pairs));
+    assertEquals(3, topPairCBOReader.getPairCount());
+  }
+
+  @Test
+  void readMetricsFile(@TempDir Path tempDir) throws IOException {
+    File file = tempDir.resolve("metrics.bin").toFile();
+    Map<String, int[]> columns = new LinkedHashMap<>();
+    columns.put(MetricsFile.PAIR_FIRST, new int[] {0, 0, 1, 1, 2});
+    columns.put(MetricsFile.PAIR_SECOND, new int[] {1, 2, 2, 3, 3});
+    columns.put(MetricsFile.PAIR_CBO, new int[] {3, 1, 5, 3, 2});
+    MetricsFile.write(file, Arrays.asList("a", "b", "c", "d"), columns);
+
+    TopPairCBOReader topPairCBOReader = new TopPairCBOReader(3);
+    List<TopPairCBOReader.PairCBO> pairs = topPairCBOReader.read(MetricsFile.open(file));
+    assertEquals(List.of("b-c:5", "a-b:3", "b-d:3"), describe(pairs));
+    assertEquals(5, topPairCBOReader.getPairCount());
+  }
+
+  @Test
+  void readWithoutPairs() throws IOException, ParseException {
+    TopPairCBOReader topPairCBOReader = new TopPairCBOReader(0);
+    assertTrue(topPairCBOReader.read(new StringReader(RESULTS), false).isEmpty());
+    assertEquals(5, topPairCBOReader.getPairCount());
+    assertTrue(new TopPairCBOReader(3).read(new StringReader("[]"), false).isEmpty());
+  }
+}
@@ -0,0 +1,122 @@
+package dev.meldau.sca;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class UpToDateCheckTest {
+
+  @TempDir Path tempDir;
+
+  final Log log = new SystemStreamLog();
+  File scaOutputDir;
+  File inputDir;
+  File output;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    scaOutputDir = tempDir.resolve("sca-output").toFile();
+    inputDir = Files.createDirectories(tempDir.resolve("classes")).toFile();
+    Files.write(inputDir.toPath().resolve("A.class"), new byte[] {1, 2, 3});
+    output = tempDir.resolve("result.json").toFile();
+    Files.write(output.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+  }
+
+  UpToDateCheck createCheck(int threshold) throws IOException {
+    return new UpToDateCheck(scaOutputDir, "sca-test", Collections.singletonList(output))
+        .addFiles(Collections.singletonList(inputDir))
+        .addValue("threshold", threshold);
+  }
+
+  @Test
+  void upToDateAfterRecord() throws IOException {
+    assertFalse(createCheck(1).isUpToDate(log));
+    createCheck(1).record(log);
+    assertTrue(createCheck(1).isUpToDate(log));
+  }
+
+  @Test
+  void changedConfiguration() throws IOException {
+    createCheck(1).record(log);
+    assertFalse(createCheck(2).isUpToDate(log));
+    // The mismatch removed the fingerprint, the old configuration has to run again as well
+    assertFalse(createCheck(1).isUpToDate(log));
+  }
+
+  @Test
+  void changedInput() throws IOException {
+    createCheck(1).record(log);
+    Files.write(inputDir.toPath().resolve("B.class"), new byte[] {4});
+    assertFalse(createCheck(1).isUpToDate(log));
+  }
+
+  @Test
+  void changedOutput() throws IOException {
+    createCheck(1).record(log);
+    Files.write(output.toPath(), "{\"changed\":true}".getBytes(StandardCharsets.UTF_8));
+    assertFalse(createCheck(1).isUpToDate(log));
+    createCheck(1).record(log);
+    assertTrue(output.delete());
+    assertFalse(createCheck(1).isUpToDate(log));
+  }
+
+  @Test
+  void outputsListedAfterRun() throws IOException {
+    // Outputs named after the results are only known once the results were written
+    File graph = tempDir.resolve("graph.png").toFile();
+    Supplier<List<File>> outputs =
+        () -> graph.isFile() ? Arrays.asList(output, graph) : Collections.singletonList(output);
+    UpToDateCheck upToDateCheck = new UpToDateCheck(scaOutputDir, "sca-test", outputs);
+    assertFalse(upToDateCheck.isUpToDate(log));
+    Files.write(graph.toPath(), new byte[] {1});
+    upToDateCheck.record(log);
+    assertTrue(new UpToDateCheck(scaOutputDir, "sca-test", outputs).isUpToDate(log));
+    assertTrue(graph.delete());
+    assertFalse(new UpToDateCheck(scaOutputDir, "sca-test", outputs).isUpToDate(log));
+  }
+
+  @Test
+  void reportPages() throws Exception {
+    File reportDir = Files.createDirectories(tempDir.resolve("site")).toFile();
+    for (String page : Arrays.asList("report.html", "report-2.html", "report-3.html")) {
+      Files.write(reportDir.toPath().resolve(page), new byte[] {1});
+    }
+    List<File> results = Collections.singletonList(output);
+    UpToDateCheck.forReport(scaOutputDir, reportDir, "report", results).record(log);
+    assertTrue(UpToDateCheck.forReport(scaOutputDir, reportDir, "report", results).isUpToDate(log));
+    // A missing further page breaks the links between the pages
+    assertTrue(new File(reportDir, "report-3.html").delete());
+    assertFalse(
+        UpToDateCheck.forReport(scaOutputDir, reportDir, "report", results).isUpToDate(log));
+  }
+}
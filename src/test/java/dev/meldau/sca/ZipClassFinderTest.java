@@ -0,0 +1,132 @@
+package dev.meldau.sca;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Copyright 2020-2021 Ingo Meldau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class ZipClassFinderTest {
+
+  static final Path CLASSES_DIR = Path.of("src/test/resources/ClassesWithCycle");
+
+  @TempDir Path tempDir;
+
+  /** Writes App.class deflated and SuperThing.class stored into a jar */
+  File createJar() throws IOException {
+    File jar = tempDir.resolve("classes.jar").toFile();
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+      out.write("Manifest-Version: 1.0\n".getBytes());
+      out.putNextEntry(new ZipEntry("dev/meldau/myjavamvntest/App.class"));
+      out.write(Files.readAllBytes(CLASSES_DIR.resolve("App.class")));
+
+      byte[] superThing = Files.readAllBytes(CLASSES_DIR.resolve("SuperThing.class"));
+      ZipEntry stored = new ZipEntry("dev/meldau/myjavamvntest/SuperThing.class");
+      CRC32 crc = new CRC32();
+      crc.update(superThing);
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(superThing.length);
+      stored.setCrc(crc.getValue());
+      out.putNextEntry(stored);
+      out.write(superThing);
+
+      out.putNextEntry(new ZipEntry("dev/meldau/myjavamvntest/readme.txt"));
+      out.write("no class".getBytes());
+    }
+    return jar;
+  }
+
+  @Test
+  void findClassSources() throws IOException {
+    Map<String, byte[]> found = new HashMap<>();
+    new ZipClassFinder(createJar())
+        .findClassSources(
+            classSource -> {
+              try {
+                assertEquals(classSource.getSize(), classSource.readBytes().length);
+                found.put(classSource.getName(), classSource.readBytes());
+              } catch (IOException e) {
+                fail(e);
+              }
+            });
+
+    assertEquals(2, found.size());
+    String prefix = tempDir.resolve("classes.jar").toFile() + "!/dev/meldau/myjavamvntest/";
+    assertArrayEquals(
+        Files.readAllBytes(CLASSES_DIR.resolve("App.class")), found.get(prefix + "App.class"));
+    assertArrayEquals(
+        Files.readAllBytes(CLASSES_DIR.resolve("SuperThing.class")),
+        found.get(prefix + "SuperThing.class"));
+  }
+
+  @Test
+  void sameModelAsDirectory() throws IOException {
+    ClassModel fromJar =
+        new ClassModel(Collections.singletonList(new ZipClassFinder(createJar())), 2, true);
+    ClassModel fromDirectory = new ClassModel(CLASSES_DIR.toFile(), 2, true);
+
+    assertEquals(
+        new CouplingMultiGraphGenerator(fromDirectory).getGraph().toString(),
+        new CouplingMultiGraphGenerator(fromJar).getGraph().toString());
+    assertEquals(
+        new LCOMScoreCalculator(fromDirectory).getLCOMScores(),
+        new LCOMScoreCalculator(fromJar).getLCOMScores());
+  }
+
+  @Test
+  void zip64() throws IOException {
+    // More than 65535 entries force a ZIP64 end of central directory record
+    int entries = 70000;
+    File jar = tempDir.resolve("shaded.jar").toFile();
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (int i = 0; i < entries; i++) {
+        out.putNextEntry(new ZipEntry("shaded/C" + i + ".class"));
+        out.write(i);
+      }
+    }
+
+    List<ClassSource> found = new ArrayList<>();
+    new ZipClassFinder(jar).findClassSources(found::add);
+    assertEquals(entries, found.size());
+    assertArrayEquals(new byte[] {(byte) 12345}, found.get(12345).readBytes());
+  }
+
+  @Test
+  void notAnArchive() {
+    assertThrows(
+        IOException.class,
+        () ->
+            new ZipClassFinder(CLASSES_DIR.resolve("App.class").toFile())
+                .findClassSources(classSource -> fail()));
+  }
+}